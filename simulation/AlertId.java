@@ -21,7 +21,7 @@
 
 public class AlertId implements RoadReportInfo
 {
-  public final Integer      msgId ;
+  public final Long         msgId ;
   public final Double       time ;
 
 
@@ -37,30 +37,40 @@ public class AlertId implements RoadReportInfo
    */
 
   public AlertId (
-    int                     msg_id,
+    long                    msg_id,
     double                  now
   )
   {
-    msgId     = new Integer (msg_id) ;
-    time      = new Double  (now) ;
+    msgId     = Long.valueOf   (msg_id) ;
+    time      = Double.valueOf (now) ;
   }
 
 
   /*************************************************************************
    *
    *  Compare two message IDs.
-   *  Perform the equals comparison on two message IDs.
+   *  Perform the equals comparison on two message IDs.  This overrides
+   *  Object.equals so alert IDs can be used as hash table keys.
    *
-   *  @param    alert_id    Alert ID to compare to this one.
+   *  @param    other       Alert ID to compare to this one.
    *  @return               True if they are equal, false if not.
    *
    *************************************************************************
    */
 
   public boolean equals (
-    AlertId               alert_id
+    Object                other
   )
   {
+    AlertId               alert_id ;
+
+    if (! (other instanceof AlertId))
+    {
+      return (false) ;
+    }
+
+    alert_id = (AlertId) other ;
+
     return (msgId.equals (alert_id.msgId) &&
             time.equals  (alert_id.time)) ;
   }
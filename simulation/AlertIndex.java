@@ -0,0 +1,364 @@
+/***************************************************************************
+ *
+ *  Road alert index.
+ *  Hash index from an alert's message ID and time to a table position.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Road alert index.
+ *  Open addressed hash table keyed by an alert's message ID and time.
+ *  It returns the position of the alert in a table kept by the owner of
+ *  the index.  Keys and positions are kept in primitive arrays so that
+ *  no objects are created when alerts are looked up.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+class AlertIndex
+{
+  //  Initial number of slots in the hash table.  Must be a power of 2.
+
+  private static final int    INITIAL_SLOTS   = 16 ;
+
+  //  Empty slots have a position of -1.
+
+  private static final int    EMPTY_SLOT      = -1 ;
+
+  //  Hash table.  Keys are the message ID and the bits of the time.
+
+  private long            []  keyIds ;
+  private long            []  keyTimes ;
+  private int             []  positions ;
+  private int                 slotMask ;
+  private int                 entryCnt ;
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create an empty alert index.
+   *
+   *************************************************************************
+   */
+
+  public AlertIndex ()
+  {
+    allocate (INITIAL_SLOTS) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the number of alerts in the index.
+   *
+   *  @return                 Number of alerts indexed.
+   *
+   *************************************************************************
+   */
+
+  public int size ()
+  {
+    return (entryCnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Estimate the memory used by the index.
+   *
+   *  @return                 Estimated number of heap bytes used.
+   *
+   *************************************************************************
+   */
+
+  public int footprint ()
+  {
+    return (32 + 3 * 16 + positions.length * 20) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Remove all alerts from the index.
+   *  The table is shrunk back to its initial size as well.
+   *
+   *************************************************************************
+   */
+
+  public void clear ()
+  {
+    if (positions.length > INITIAL_SLOTS)
+    {
+      allocate (INITIAL_SLOTS) ;
+    }
+    else
+    {
+      Arrays.fill (positions, EMPTY_SLOT) ;
+      entryCnt = 0 ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find an alert.
+   *  Return the table position of the alert with the given key.
+   *
+   *  @param    msg_id        Message ID of the alert. (car & msg seq)
+   *  @param    time          Time the alert occured at.
+   *  @return                 Position of the alert or -1 if not indexed.
+   *
+   *************************************************************************
+   */
+
+  public int get (
+    long                      msg_id,
+    double                    time
+  )
+  {
+    long                      time_bits = Double.doubleToLongBits (time) ;
+    int                       slot ;
+
+    slot = hashSlot (msg_id, time_bits) ;
+
+    while (positions [slot] != EMPTY_SLOT)
+    {
+      if (keyIds [slot] == msg_id && keyTimes [slot] == time_bits)
+      {
+        return (positions [slot]) ;
+      }
+
+      slot = (slot + 1) & slotMask ;
+    }
+
+    return (EMPTY_SLOT) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add or replace an alert.
+   *  Set the table position of the alert with the given key.
+   *
+   *  @param    msg_id        Message ID of the alert. (car & msg seq)
+   *  @param    time          Time the alert occured at.
+   *  @param    position      Position of the alert in the owner's table.
+   *
+   *************************************************************************
+   */
+
+  public void put (
+    long                      msg_id,
+    double                    time,
+    int                       position
+  )
+  {
+    long                      time_bits = Double.doubleToLongBits (time) ;
+    int                       slot ;
+
+    //  Keep the table at most half full so probe sequences stay short.
+
+    if ((entryCnt + 1) * 2 > positions.length)
+    {
+      rehash (positions.length * 2) ;
+    }
+
+    slot = hashSlot (msg_id, time_bits) ;
+
+    while (positions [slot] != EMPTY_SLOT)
+    {
+      if (keyIds [slot] == msg_id && keyTimes [slot] == time_bits)
+      {
+        positions [slot] = position ;
+        return ;
+      }
+
+      slot = (slot + 1) & slotMask ;
+    }
+
+    keyIds    [slot] = msg_id ;
+    keyTimes  [slot] = time_bits ;
+    positions [slot] = position ;
+    entryCnt ++ ;
+
+  } //  END public void put
+
+
+  /*************************************************************************
+   *
+   *  Remove an alert.
+   *  Remove the alert with the given key from the index.  Entries after
+   *  it in the same probe sequence are moved back to fill the hole.
+   *
+   *  @param    msg_id        Message ID of the alert. (car & msg seq)
+   *  @param    time          Time the alert occured at.
+   *  @return                 Position the alert had or -1 if it was not
+   *                          indexed.
+   *
+   *************************************************************************
+   */
+
+  public int remove (
+    long                      msg_id,
+    double                    time
+  )
+  {
+    long                      time_bits = Double.doubleToLongBits (time) ;
+    int                       slot ;
+    int                       next ;
+    int                       home ;
+    int                       result ;
+
+    slot = hashSlot (msg_id, time_bits) ;
+
+    while (positions [slot] != EMPTY_SLOT)
+    {
+      if (keyIds [slot] == msg_id && keyTimes [slot] == time_bits)
+      {
+        break ;
+      }
+
+      slot = (slot + 1) & slotMask ;
+    }
+
+    result = positions [slot] ;
+
+    if (result == EMPTY_SLOT)
+    {
+      return (EMPTY_SLOT) ;
+    }
+
+    //  Shift following entries back into the hole unless doing so would
+    //  move them in front of their home slot.
+
+    next = slot ;
+
+    while (true)
+    {
+      next = (next + 1) & slotMask ;
+
+      if (positions [next] == EMPTY_SLOT)
+      {
+        break ;
+      }
+
+      home = hashSlot (keyIds [next], keyTimes [next]) ;
+
+      if (((next - home) & slotMask) >= ((next - slot) & slotMask))
+      {
+        keyIds    [slot] = keyIds    [next] ;
+        keyTimes  [slot] = keyTimes  [next] ;
+        positions [slot] = positions [next] ;
+        slot             = next ;
+      }
+    }
+
+    positions [slot] = EMPTY_SLOT ;
+    entryCnt -- ;
+
+    return (result) ;
+
+  } //  END public int remove
+
+
+  /*************************************************************************
+   *
+   *  Determine the home slot of a key.
+   *
+   *  @param    msg_id        Message ID of the alert.
+   *  @param    time_bits     Bits of the time the alert occured at.
+   *  @return                 Slot the key hashes to.
+   *
+   *************************************************************************
+   */
+
+  private int hashSlot (
+    long                      msg_id,
+    long                      time_bits
+  )
+  {
+    long                      hash ;
+
+    hash  = (msg_id * 0x9E3779B97F4A7C15L) ^ time_bits ;
+    hash ^= (hash >>> 32) ;
+    hash *= 0xD6E8FEB86659FD93L ;
+    hash ^= (hash >>> 29) ;
+
+    return ((int) hash & slotMask) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Allocate empty hash table arrays.
+   *
+   *  @param    slot_cnt      Number of slots.  Must be a power of 2.
+   *
+   *************************************************************************
+   */
+
+  private void allocate (
+    int                       slot_cnt
+  )
+  {
+    keyIds    = new long [slot_cnt] ;
+    keyTimes  = new long [slot_cnt] ;
+    positions = new int  [slot_cnt] ;
+    slotMask  = slot_cnt - 1 ;
+    entryCnt  = 0 ;
+
+    Arrays.fill (positions, EMPTY_SLOT) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Grow the hash table.
+   *  Move all the entries into a new table of the given size.
+   *
+   *  @param    slot_cnt      Number of slots.  Must be a power of 2.
+   *
+   *************************************************************************
+   */
+
+  private void rehash (
+    int                       slot_cnt
+  )
+  {
+    long                  []  old_ids       = keyIds ;
+    long                  []  old_times     = keyTimes ;
+    int                   []  old_positions = positions ;
+    int                       slot ;
+
+    allocate (slot_cnt) ;
+
+    for (int i = 0 ; i < old_positions.length ; i ++)
+    {
+      if (old_positions [i] != EMPTY_SLOT)
+      {
+        slot = hashSlot (old_ids [i], old_times [i]) ;
+
+        while (positions [slot] != EMPTY_SLOT)
+        {
+          slot = (slot + 1) & slotMask ;
+        }
+
+        keyIds    [slot] = old_ids       [i] ;
+        keyTimes  [slot] = old_times     [i] ;
+        positions [slot] = old_positions [i] ;
+        entryCnt ++ ;
+      }
+    }
+  } //  END private void rehash
+
+} //  END class AlertIndex
@@ -21,7 +21,7 @@
 
 public class AlertInfo implements RoadReportInfo
 {
-  public final int          msgId ;
+  public final long         msgId ;
   public final byte         msgType ;
   public final double       longitude ;
   public final double       latitude ;
@@ -43,7 +43,7 @@ public class AlertInfo implements RoadReportInfo
    */
 
   public AlertInfo (
-    int                     msg_id,
+    long                    msg_id,
     byte                    msg_type,
     double                  lon,
     double                  lat,
@@ -58,6 +58,21 @@ public class AlertInfo implements RoadReportInfo
   }
 
 
+  /*************************************************************************
+   *
+   *  Estimate the memory used by the alert.
+   *
+   *  @return                 Estimated number of heap bytes used.
+   *
+   *************************************************************************
+   */
+
+  public int footprint ()
+  {
+    return (56) ;
+  }
+
+
   /*************************************************************************
    *
    *  Format the data as a string.
@@ -0,0 +1,208 @@
+/***************************************************************************
+ *
+ *  Cellular server alert ingest load generator.
+ *  Measures the cell server's alert ingest as its alert history grows.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Cellular Server Alert Ingest Load Generator.
+ *  Passes a history of distinct alerts to a new cell server in alert
+ *  table messages, then passes the same messages again.  The first pass
+ *  adds every alert to the server's tables and the second finds every
+ *  one already there.  For comparison the alerts are also found by
+ *  scanning the whole history for each of them, as the server did before
+ *  it indexed its alerts.  The time per alert of each is printed for
+ *  each history size.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class AlertIngestLoad implements RoadReportInfo
+{
+  //  Simulation time the alerts are received at and the age of the
+  //  alerts then.
+
+  private static final double START_TIME      = 1000.0 ;
+  private static final double ALERT_AGE       = 10.0 ;
+
+  //  Alerts in each alert table message.
+
+  private static final int    TABLE_ALERTS    = 50 ;
+
+
+  /*************************************************************************
+   *
+   *  Start the alert ingest load generator program.
+   *
+   *  @param      args    Optional history sizes.  1000 and 10000 alerts
+   *                      by default.
+   *
+   *************************************************************************
+   */
+
+  public static void main (
+    String              []  args
+  )
+  {
+    int                 []  history_sizes = { 1000, 10000 } ;
+
+    if (args.length > 0)
+    {
+      history_sizes = new int [args.length] ;
+
+      for (int i = 0 ; i < args.length ; i ++)
+      {
+        history_sizes [i] = Integer.parseInt (args [i]) ;
+      }
+    }
+
+    //  Run once untimed so the code is compiled before it is measured.
+
+    runHistory (history_sizes [history_sizes.length - 1], false) ;
+
+    for (int i = 0 ; i < history_sizes.length ; i ++)
+    {
+      runHistory (history_sizes [i], true) ;
+    }
+
+    System.exit (0) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Ingest a history of alerts.
+   *
+   *  @param    alert_cnt     Number of alerts in the history.
+   *  @param    print         True to print the times taken.
+   *
+   *************************************************************************
+   */
+
+  private static void runHistory (
+    int                       alert_cnt,
+    boolean                   print
+  )
+  {
+    RoadReport                sim       = RoadReport.create () ;
+    CellServer                server    = new CellServer (sim) ;
+    Vector<CellCommMessage>   messages  = new Vector<CellCommMessage> () ;
+    Vector<AlertInfo>         history   = new Vector<AlertInfo> () ;
+    int                       table_cnt ;
+    int                   []  car_ids ;
+    long                  []  alert_ids ;
+    byte                  []  alert_types ;
+    double                []  times ;
+    double                []  lons ;
+    double                []  lats ;
+    CarAlertMatrix.Builder    car_alert_bld ;
+    AlertInfo                 alert_info ;
+    long                      start ;
+    long                      add_nanos ;
+    long                      hit_nanos ;
+    long                      scan_nanos ;
+    int                       found     = 0 ;
+
+    sim.setCurrentTime (START_TIME) ;
+
+    //  Build the alert table messages.  Each is sent by a different car,
+    //  which the server does not know, so only the alerts are ingested.
+
+    for (int first_no = 0 ; first_no < alert_cnt ; first_no += TABLE_ALERTS)
+    {
+      table_cnt     = Math.min (TABLE_ALERTS, alert_cnt - first_no) ;
+
+      car_ids       = new int [] { first_no + 1 } ;
+      alert_ids     = new long   [table_cnt] ;
+      alert_types   = new byte   [table_cnt] ;
+      times         = new double [table_cnt] ;
+      lons          = new double [table_cnt] ;
+      lats          = new double [table_cnt] ;
+      car_alert_bld = new CarAlertMatrix.Builder (1, table_cnt) ;
+
+      for (int i = 0 ; i < table_cnt ; i ++)
+      {
+        alert_ids   [i] = ((long) (first_no + i + 1) << MSG_SEQ_BITS) | 1 ;
+        alert_types [i] = (byte) (MT_ALERTS + (first_no + i) %
+                                              MT_ALERT_COUNT) ;
+        times       [i] = START_TIME - ALERT_AGE ;
+        lons        [i] = -100.0 + 0.11 * ((first_no + i) % 100) / 100.0 ;
+        lats        [i] =   40.0 + 0.09 * ((first_no + i) / 100 % 100) /
+                                          100.0 ;
+
+        car_alert_bld.set (0, i) ;
+
+        history.addElement (new AlertInfo (alert_ids [i], alert_types [i],
+                                           lons [i], lats [i], times [i])) ;
+      }
+
+      messages.addElement (new CellCommMessage (MT_ALERT_TBL_SENT, car_ids,
+                                                times, lons, lats,
+                                                null, null,
+                                                alert_ids, alert_types,
+                                                car_alert_bld.build ())) ;
+    }
+
+    //  Add the alerts, then find them again.
+
+    start = System.nanoTime () ;
+
+    for (int msg_no = 0 ; msg_no < messages.size () ; msg_no ++)
+    {
+      server.receiveMessage (messages.elementAt (msg_no)) ;
+    }
+
+    add_nanos = System.nanoTime () - start ;
+    start     = System.nanoTime () ;
+
+    for (int msg_no = 0 ; msg_no < messages.size () ; msg_no ++)
+    {
+      server.receiveMessage (messages.elementAt (msg_no)) ;
+    }
+
+    hit_nanos = System.nanoTime () - start ;
+
+    //  Find each alert by scanning the history.
+
+    start = System.nanoTime () ;
+
+    for (int alert_no = 0 ; alert_no < alert_cnt ; alert_no ++)
+    {
+      alert_info = history.elementAt (alert_no) ;
+
+      for (int i = 0 ; i < alert_cnt ; i ++)
+      {
+        if (history.elementAt (i).msgId == alert_info.msgId &&
+            history.elementAt (i).time  == alert_info.time)
+        {
+          found ++ ;
+          break ;
+        }
+      }
+    }
+
+    scan_nanos = System.nanoTime () - start ;
+
+    //  Microseconds per alert.
+
+    if (print)
+    {
+      System.out.format ("AlertIngestLoad: %d %d %.3f %.3f %.3f\n",
+                         alert_cnt, found,
+                         add_nanos  / 1000.0 / alert_cnt,
+                         hit_nanos  / 1000.0 / alert_cnt,
+                         scan_nanos / 1000.0 / alert_cnt) ;
+    }
+  } //  END private static void runHistory
+
+} // END public class AlertIngestLoad
@@ -0,0 +1,199 @@
+/***************************************************************************
+ *
+ *  Car alert table join load generator.
+ *  Measures matching neighbours' alert tables against a car's alerts.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Car Alert Table Join Load Generator.
+ *  Builds a car's alerts received table and its alert index, and the
+ *  alert tables a set of neighbours send it in MT_ALERT_RECVD messages.
+ *  Each neighbour has heard most of the car's alerts and a few the car
+ *  has not.  Every neighbour's table is then matched against the car's
+ *  alerts, first by scanning the car's alerts for each of the
+ *  neighbour's, then by looking each of the neighbour's up in the alert
+ *  index, as Car.receiveCarMessage does.  The time each way takes to
+ *  match all the neighbours' tables is printed.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class AlertJoinLoad implements RoadReportInfo
+{
+  //  Share of the car's alerts each neighbour has heard, and the number
+  //  of alerts each neighbour has that the car has not.
+
+  private static final double HEARD_SHARE     = 0.75 ;
+  private static final int    UNKNOWN_CNT     = 10 ;
+
+  //  Number of times all the neighbours' tables are matched, the first
+  //  of them untimed so the code is compiled before it is measured.
+
+  private static final int    ROUNDS          = 200 ;
+  private static final int    WARM_ROUNDS     = 50 ;
+
+  //  Seed of the random numbers the tables are made from.
+
+  private static final long   RANDOM_SEED     = 0xABCDEF987653L ;
+
+
+  /*************************************************************************
+   *
+   *  Start the alert table join load generator program.
+   *
+   *  @param      args    Optional number of alerts the car has and number
+   *                      of neighbours.
+   *
+   *************************************************************************
+   */
+
+  public static void main (
+    String              []  args
+  )
+  {
+    Random                  random        = new Random (RANDOM_SEED) ;
+    int                     alert_cnt     = 200 ;
+    int                     neighbour_cnt = 100 ;
+    Vector<AlertInfo>       alerts        = new Vector<AlertInfo> () ;
+    AlertIndex              alert_idx     = new AlertIndex () ;
+    long                []  msg_ids ;
+    double              []  msg_times ;
+    long              [][]  neighbour_ids ;
+    double            [][]  neighbour_times ;
+    int                     heard_cnt ;
+    int                     alert_no ;
+    long                    start ;
+    long                    scan_nanos    = 0 ;
+    long                    index_nanos   = 0 ;
+    long                    scan_found    = 0 ;
+    long                    index_found   = 0 ;
+
+    if (args.length > 0)
+    {
+      alert_cnt = Integer.parseInt (args [0]) ;
+    }
+
+    if (args.length > 1)
+    {
+      neighbour_cnt = Integer.parseInt (args [1]) ;
+    }
+
+    //  The car's alerts.
+
+    for (alert_no = 0 ; alert_no < alert_cnt ; alert_no ++)
+    {
+      alerts.addElement (new AlertInfo (
+                            ((long) (alert_no + 1) << MSG_SEQ_BITS) | 1,
+                            (byte) (MT_ALERTS + alert_no % MT_ALERT_COUNT),
+                            -100.0 + 0.11 * random.nextDouble (),
+                              40.0 + 0.09 * random.nextDouble (),
+                            1000.0 + alert_no)) ;
+      alert_idx.put (alerts.elementAt (alert_no).msgId,
+                     alerts.elementAt (alert_no).time, alert_no) ;
+    }
+
+    //  The neighbours' alert tables.
+
+    heard_cnt       = (int) (alert_cnt * HEARD_SHARE) ;
+    neighbour_ids   = new long   [neighbour_cnt] [] ;
+    neighbour_times = new double [neighbour_cnt] [] ;
+
+    for (int car_no = 0 ; car_no < neighbour_cnt ; car_no ++)
+    {
+      msg_ids   = new long   [heard_cnt + UNKNOWN_CNT] ;
+      msg_times = new double [heard_cnt + UNKNOWN_CNT] ;
+
+      for (int i = 0 ; i < heard_cnt ; i ++)
+      {
+        alert_no      = random.nextInt (alert_cnt) ;
+        msg_ids   [i] = alerts.elementAt (alert_no).msgId ;
+        msg_times [i] = alerts.elementAt (alert_no).time ;
+      }
+
+      for (int i = heard_cnt ; i < msg_ids.length ; i ++)
+      {
+        msg_ids   [i] = ((long) (alert_cnt + car_no * UNKNOWN_CNT + i + 1)
+                                << MSG_SEQ_BITS) | 1 ;
+        msg_times [i] = 1000.0 ;
+      }
+
+      neighbour_ids   [car_no] = msg_ids ;
+      neighbour_times [car_no] = msg_times ;
+    }
+
+    //  Match the tables both ways.
+
+    for (int round = 0 ; round < WARM_ROUNDS + ROUNDS ; round ++)
+    {
+      start = System.nanoTime () ;
+
+      for (int car_no = 0 ; car_no < neighbour_cnt ; car_no ++)
+      {
+        msg_ids   = neighbour_ids   [car_no] ;
+        msg_times = neighbour_times [car_no] ;
+
+        for (int i = 0 ; i < alert_cnt ; i ++)
+        {
+          for (int j = 0 ; j < msg_ids.length ; j ++)
+          {
+            if (alerts.elementAt (i).msgId == msg_ids   [j] &&
+                alerts.elementAt (i).time  == msg_times [j])
+            {
+              scan_found ++ ;
+            }
+          }
+        }
+      }
+
+      if (round >= WARM_ROUNDS)
+      {
+        scan_nanos += System.nanoTime () - start ;
+      }
+
+      start = System.nanoTime () ;
+
+      for (int car_no = 0 ; car_no < neighbour_cnt ; car_no ++)
+      {
+        msg_ids   = neighbour_ids   [car_no] ;
+        msg_times = neighbour_times [car_no] ;
+
+        for (int j = 0 ; j < msg_ids.length ; j ++)
+        {
+          if (alert_idx.get (msg_ids [j], msg_times [j]) >= 0)
+          {
+            index_found ++ ;
+          }
+        }
+      }
+
+      if (round >= WARM_ROUNDS)
+      {
+        index_nanos += System.nanoTime () - start ;
+      }
+    }
+
+    if (scan_found != index_found)
+    {
+      System.out.format ("AlertJoinMismatch: %d %d\n",
+                         scan_found, index_found) ;
+    }
+
+    //  Microseconds to match all the neighbours' tables once.
+
+    System.out.format ("AlertJoinLoad: %d %d %.1f %.1f\n",
+                       alert_cnt, neighbour_cnt,
+                       scan_nanos  / 1000.0 / ROUNDS,
+                       index_nanos / 1000.0 / ROUNDS) ;
+  }
+
+} // END public class AlertJoinLoad
@@ -50,6 +50,21 @@ class AlertReceived
   }
 
 
+  /*************************************************************************
+   *
+   *  Estimate the memory used by the alert information.
+   *
+   *  @return                 Estimated number of heap bytes used.
+   *
+   *************************************************************************
+   */
+
+  public int footprint ()
+  {
+    return (24 + 16 + receivedTbl.length) ;
+  }
+
+
   /*************************************************************************
    *
    *  Format the data as a string.
@@ -0,0 +1,611 @@
+/***************************************************************************
+ *
+ *  Road alert tree.
+ *  R-tree of alert locations used to find the alerts in an area.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Road alert tree.
+ *  Dynamic R-tree of alert locations.  Each alert is a point given by its
+ *  longitude and latitude, and is kept with the time it occured at and
+ *  its position in a table kept by the owner of the tree.  Every node
+ *  keeps the bounds of each of its entries along with the latest alert
+ *  time under it, so searches skip the parts of the tree that are outside
+ *  the area or hold only older alerts.  Alerts are added one at a time
+ *  and full nodes are split in half along their longer side.  Nodes left
+ *  empty by removals are dropped, but nodes are not merged.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+class AlertTree
+{
+  //  Most entries in a node.
+
+  private static final int    NODE_ENTRIES    = 16 ;
+
+  //  Inner class for a node.  Leaf entries are alerts, whose bounds are
+  //  their location.  The entries of other nodes are child nodes.
+
+  private static class Node
+  {
+    public final boolean    leaf ;
+    public int              entryCnt ;
+    public double       []  minLon    = new double [NODE_ENTRIES + 1] ;
+    public double       []  minLat    = new double [NODE_ENTRIES + 1] ;
+    public double       []  maxLon    = new double [NODE_ENTRIES + 1] ;
+    public double       []  maxLat    = new double [NODE_ENTRIES + 1] ;
+    public double       []  maxTime   = new double [NODE_ENTRIES + 1] ;
+    public int          []  positions ;
+    public Node         []  children ;
+
+    public Node (
+      boolean               is_leaf
+    )
+    {
+      leaf = is_leaf ;
+
+      if (leaf)
+      {
+        positions = new int  [NODE_ENTRIES + 1] ;
+      }
+      else
+      {
+        children  = new Node [NODE_ENTRIES + 1] ;
+      }
+    }
+
+    //  Move an entry from another node to the end of this one.
+
+    public void take (
+      Node                  from,
+      int                   entry
+    )
+    {
+      minLon  [entryCnt] = from.minLon  [entry] ;
+      minLat  [entryCnt] = from.minLat  [entry] ;
+      maxLon  [entryCnt] = from.maxLon  [entry] ;
+      maxLat  [entryCnt] = from.maxLat  [entry] ;
+      maxTime [entryCnt] = from.maxTime [entry] ;
+
+      if (leaf)
+      {
+        positions [entryCnt] = from.positions [entry] ;
+      }
+      else
+      {
+        children  [entryCnt] = from.children  [entry] ;
+      }
+
+      entryCnt ++ ;
+    }
+
+    //  Remove an entry by moving the last entry into its place.
+
+    public void drop (
+      int                   entry
+    )
+    {
+      entryCnt -- ;
+
+      minLon  [entry] = minLon  [entryCnt] ;
+      minLat  [entry] = minLat  [entryCnt] ;
+      maxLon  [entry] = maxLon  [entryCnt] ;
+      maxLat  [entry] = maxLat  [entryCnt] ;
+      maxTime [entry] = maxTime [entryCnt] ;
+
+      if (leaf)
+      {
+        positions [entry] = positions [entryCnt] ;
+      }
+      else
+      {
+        children  [entry] = children  [entryCnt] ;
+        children  [entryCnt] = null ;
+      }
+    }
+
+    //  Set the bounds of a child node's entry from its entries.
+
+    public void bound (
+      int                   entry
+    )
+    {
+      Node                  child = children [entry] ;
+
+      minLon  [entry] = Double.POSITIVE_INFINITY ;
+      minLat  [entry] = Double.POSITIVE_INFINITY ;
+      maxLon  [entry] = Double.NEGATIVE_INFINITY ;
+      maxLat  [entry] = Double.NEGATIVE_INFINITY ;
+      maxTime [entry] = Double.NEGATIVE_INFINITY ;
+
+      for (int i = 0 ; i < child.entryCnt ; i ++)
+      {
+        minLon  [entry] = Math.min (minLon  [entry], child.minLon  [i]) ;
+        minLat  [entry] = Math.min (minLat  [entry], child.minLat  [i]) ;
+        maxLon  [entry] = Math.max (maxLon  [entry], child.maxLon  [i]) ;
+        maxLat  [entry] = Math.max (maxLat  [entry], child.maxLat  [i]) ;
+        maxTime [entry] = Math.max (maxTime [entry], child.maxTime [i]) ;
+      }
+    }
+  }   //  END private static class Node
+
+  //  Inner class for the positions found by a search.
+
+  private static class Found
+  {
+    public int          []  positions = new int [64] ;
+    public int              count ;
+
+    public void add (
+      int                   position
+    )
+    {
+      if (count >= positions.length)
+      {
+        positions = Arrays.copyOf (positions, positions.length * 2) ;
+      }
+
+      positions [count ++] = position ;
+    }
+  }   //  END private static class Found
+
+  //  Root of the tree and the number of alerts in it.
+
+  private Node                root ;
+  private int                 entryCnt ;
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create an empty alert tree.
+   *
+   *************************************************************************
+   */
+
+  public AlertTree ()
+  {
+    clear () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the number of alerts in the tree.
+   *
+   *  @return                 Number of alerts indexed.
+   *
+   *************************************************************************
+   */
+
+  public int size ()
+  {
+    return (entryCnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Remove all alerts from the tree.
+   *
+   *************************************************************************
+   */
+
+  public void clear ()
+  {
+    root      = new Node (true) ;
+    entryCnt  = 0 ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add an alert.
+   *
+   *  @param    position      Position of the alert in the owner's table.
+   *  @param    lon           Longitude of the alert.
+   *  @param    lat           Latitude of the alert.
+   *  @param    time          Time the alert occured at.
+   *
+   *************************************************************************
+   */
+
+  public void add (
+    int                       position,
+    double                    lon,
+    double                    lat,
+    double                    time
+  )
+  {
+    Node                      split ;
+    Node                      old_root ;
+
+    split = insert (root, position, lon, lat, time) ;
+
+    //  Grow the tree by a level when the root splits.
+
+    if (split != null)
+    {
+      old_root  = root ;
+      root      = new Node (false) ;
+
+      root.children [0] = old_root ;
+      root.children [1] = split ;
+      root.entryCnt     = 2 ;
+
+      root.bound (0) ;
+      root.bound (1) ;
+    }
+
+    entryCnt ++ ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Remove an alert.
+   *  The alert's location must be the one it was added with.
+   *
+   *  @param    position      Position of the alert in the owner's table.
+   *  @param    lon           Longitude of the alert.
+   *  @param    lat           Latitude of the alert.
+   *  @return                 True if the alert was found and removed.
+   *
+   *************************************************************************
+   */
+
+  public boolean remove (
+    int                       position,
+    double                    lon,
+    double                    lat
+  )
+  {
+    if (! delete (root, position, lon, lat))
+    {
+      return (false) ;
+    }
+
+    //  Shrink the tree while the root has a single child.
+
+    while (! root.leaf && root.entryCnt == 1)
+    {
+      root = root.children [0] ;
+    }
+
+    if (! root.leaf && root.entryCnt == 0)
+    {
+      root = new Node (true) ;
+    }
+
+    entryCnt -- ;
+
+    return (true) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find the alerts in an area.
+   *  The area includes its edges.  Searches may be run at the same time
+   *  as each other but not while alerts are added or removed.
+   *
+   *  @param    min_lon       Western edge of the area.
+   *  @param    min_lat       Southern edge of the area.
+   *  @param    max_lon       Eastern edge of the area.
+   *  @param    max_lat       Northern edge of the area.
+   *  @param    since         Earliest alert time wanted.
+   *  @return                 Positions of the alerts found, in no
+   *                          particular order.
+   *
+   *************************************************************************
+   */
+
+  public int [] find (
+    double                    min_lon,
+    double                    min_lat,
+    double                    max_lon,
+    double                    max_lat,
+    double                    since
+  )
+  {
+    Found                     result = new Found () ;
+
+    search (root, min_lon, min_lat, max_lon, max_lat, since, result) ;
+
+    return (Arrays.copyOf (result.positions, result.count)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Insert an alert into a subtree.
+   *  The alert goes into the entry needing the least enlargement to hold
+   *  it, or the smallest of those.  A node that overflows is split.
+   *
+   *  @param    node          Root of the subtree.
+   *  @param    position      Position of the alert in the owner's table.
+   *  @param    lon           Longitude of the alert.
+   *  @param    lat           Latitude of the alert.
+   *  @param    time          Time the alert occured at.
+   *  @return                 Node split from the subtree's root, or null
+   *                          if it was not split.
+   *
+   *************************************************************************
+   */
+
+  private Node insert (
+    Node                      node,
+    int                       position,
+    double                    lon,
+    double                    lat,
+    double                    time
+  )
+  {
+    int                       best      = 0 ;
+    double                    best_grow = Double.POSITIVE_INFINITY ;
+    double                    best_area = Double.POSITIVE_INFINITY ;
+    double                    area ;
+    double                    grow ;
+    Node                      split ;
+    int                       entry ;
+
+    if (node.leaf)
+    {
+      entry = node.entryCnt ++ ;
+
+      node.minLon    [entry] = lon ;
+      node.minLat    [entry] = lat ;
+      node.maxLon    [entry] = lon ;
+      node.maxLat    [entry] = lat ;
+      node.maxTime   [entry] = time ;
+      node.positions [entry] = position ;
+    }
+    else
+    {
+      for (int i = 0 ; i < node.entryCnt ; i ++)
+      {
+        area = (node.maxLon [i] - node.minLon [i]) *
+               (node.maxLat [i] - node.minLat [i]) ;
+        grow = (Math.max (node.maxLon [i], lon) -
+                Math.min (node.minLon [i], lon)) *
+               (Math.max (node.maxLat [i], lat) -
+                Math.min (node.minLat [i], lat)) - area ;
+
+        if (grow < best_grow || (grow == best_grow && area < best_area))
+        {
+          best      = i ;
+          best_grow = grow ;
+          best_area = area ;
+        }
+      }
+
+      split = insert (node.children [best], position, lon, lat, time) ;
+
+      node.minLon  [best] = Math.min (node.minLon  [best], lon) ;
+      node.minLat  [best] = Math.min (node.minLat  [best], lat) ;
+      node.maxLon  [best] = Math.max (node.maxLon  [best], lon) ;
+      node.maxLat  [best] = Math.max (node.maxLat  [best], lat) ;
+      node.maxTime [best] = Math.max (node.maxTime [best], time) ;
+
+      if (split != null)
+      {
+        node.bound (best) ;
+
+        entry = node.entryCnt ++ ;
+
+        node.children [entry] = split ;
+        node.bound (entry) ;
+      }
+    }
+
+    return ((node.entryCnt > NODE_ENTRIES) ? split (node) : null) ;
+
+  } //  END private Node insert
+
+
+  /*************************************************************************
+   *
+   *  Split a node that has overflowed.
+   *  The entries are ordered by their centers along the node's longer
+   *  side, and the upper half are moved to a new node.
+   *
+   *  @param    node          Node to split.
+   *  @return                 New node holding half the entries.
+   *
+   *************************************************************************
+   */
+
+  private Node split (
+    Node                      node
+  )
+  {
+    double                    min_lon = Double.POSITIVE_INFINITY ;
+    double                    min_lat = Double.POSITIVE_INFINITY ;
+    double                    max_lon = Double.NEGATIVE_INFINITY ;
+    double                    max_lat = Double.NEGATIVE_INFINITY ;
+    boolean                   by_lon ;
+    int                   []  order   = new int    [node.entryCnt] ;
+    double                []  centers = new double [node.entryCnt] ;
+    int                       entry ;
+    int                       j ;
+    Node                      sorted  = new Node (node.leaf) ;
+    Node                      result  = new Node (node.leaf) ;
+    int                       half    = node.entryCnt / 2 ;
+
+    for (int i = 0 ; i < node.entryCnt ; i ++)
+    {
+      min_lon = Math.min (min_lon, node.minLon [i]) ;
+      min_lat = Math.min (min_lat, node.minLat [i]) ;
+      max_lon = Math.max (max_lon, node.maxLon [i]) ;
+      max_lat = Math.max (max_lat, node.maxLat [i]) ;
+    }
+
+    by_lon = (max_lon - min_lon >= max_lat - min_lat) ;
+
+    //  Order the entries by insertion, as there are only a few of them.
+
+    for (int i = 0 ; i < node.entryCnt ; i ++)
+    {
+      entry           = i ;
+      centers [entry] = by_lon ? node.minLon [i] + node.maxLon [i]
+                               : node.minLat [i] + node.maxLat [i] ;
+
+      for (j = i ; j > 0 && centers [order [j - 1]] > centers [entry] ; j --)
+      {
+        order [j] = order [j - 1] ;
+      }
+
+      order [j] = entry ;
+    }
+
+    for (int i = 0 ; i < order.length ; i ++)
+    {
+      sorted.take (node, order [i]) ;
+    }
+
+    //  Keep the lower half in the node and move the rest to the result.
+
+    node.entryCnt = 0 ;
+
+    for (int i = 0 ; i < sorted.entryCnt ; i ++)
+    {
+      if (i < half)
+      {
+        node.take (sorted, i) ;
+      }
+      else
+      {
+        result.take (sorted, i) ;
+      }
+    }
+
+    if (! node.leaf)
+    {
+      Arrays.fill (node.children, node.entryCnt, node.children.length,
+                   null) ;
+    }
+
+    return (result) ;
+
+  } //  END private Node split
+
+
+  /*************************************************************************
+   *
+   *  Delete an alert from a subtree.
+   *  Only entries whose bounds hold the alert's location are searched.
+   *  The bounds of the entries on the way down are tightened, and child
+   *  nodes left empty are dropped.
+   *
+   *  @param    node          Root of the subtree.
+   *  @param    position      Position of the alert in the owner's table.
+   *  @param    lon           Longitude of the alert.
+   *  @param    lat           Latitude of the alert.
+   *  @return                 True if the alert was found and deleted.
+   *
+   *************************************************************************
+   */
+
+  private boolean delete (
+    Node                      node,
+    int                       position,
+    double                    lon,
+    double                    lat
+  )
+  {
+    for (int i = 0 ; i < node.entryCnt ; i ++)
+    {
+      if (lon < node.minLon [i] || lon > node.maxLon [i] ||
+          lat < node.minLat [i] || lat > node.maxLat [i])
+      {
+        continue ;
+      }
+
+      if (node.leaf)
+      {
+        if (node.positions [i] == position)
+        {
+          node.drop (i) ;
+          return (true) ;
+        }
+      }
+      else if (delete (node.children [i], position, lon, lat))
+      {
+        if (node.children [i].entryCnt == 0)
+        {
+          node.drop (i) ;
+        }
+        else
+        {
+          node.bound (i) ;
+        }
+
+        return (true) ;
+      }
+    }
+
+    return (false) ;
+
+  } //  END private boolean delete
+
+
+  /*************************************************************************
+   *
+   *  Search a subtree for the alerts in an area.
+   *  Entries outside the area or holding only alerts from before the
+   *  earliest time wanted are skipped.
+   *
+   *  @param    node          Root of the subtree.
+   *  @param    min_lon       Western edge of the area.
+   *  @param    min_lat       Southern edge of the area.
+   *  @param    max_lon       Eastern edge of the area.
+   *  @param    max_lat       Northern edge of the area.
+   *  @param    since         Earliest alert time wanted.
+   *  @param    result        Positions of the alerts found.
+   *
+   *************************************************************************
+   */
+
+  private void search (
+    Node                      node,
+    double                    min_lon,
+    double                    min_lat,
+    double                    max_lon,
+    double                    max_lat,
+    double                    since,
+    Found                     result
+  )
+  {
+    for (int i = 0 ; i < node.entryCnt ; i ++)
+    {
+      if (node.maxTime [i] < since      ||
+          node.maxLon  [i] < min_lon    || node.minLon [i] > max_lon ||
+          node.maxLat  [i] < min_lat    || node.minLat [i] > max_lat)
+      {
+        continue ;
+      }
+
+      if (! node.leaf)
+      {
+        search (node.children [i], min_lon, min_lat, max_lon, max_lat,
+                since, result) ;
+      }
+      else
+      {
+        result.add (node.positions [i]) ;
+      }
+    }
+  } //  END private void search
+
+} //  END class AlertTree
@@ -43,6 +43,11 @@ public class Car implements RoadReportInfo
       resendTime          = resend_time ;
     }
 
+    public int footprint ()
+    {
+      return (32 + receivedMessage.footprint ()) ;
+    }
+
     public String toString ()
     {
       return String.format ("<RcvMsg %d %g %s>",
@@ -51,38 +56,89 @@ public class Car implements RoadReportInfo
     }
   } //  END private class ReceivedMessage
 
+  //  Inner class for a car location the server is known to have.
+
+  private class LoggedLocation
+  {
+    public double           time ;
+    public double           longitude ;
+    public double           latitude ;
+    public double           speed ;
+    public double           bearing ;
+
+    public LoggedLocation (
+      double                loc_time,
+      double                lon,
+      double                lat,
+      double                loc_speed,
+      double                loc_bearing
+    )
+    {
+      time                = loc_time ;
+      longitude           = lon ;
+      latitude            = lat ;
+      speed               = loc_speed ;
+      bearing             = loc_bearing ;
+    }
+  } //  END private class LoggedLocation
+
   //  Messages that have been received and not expired.
 
   private Vector<ReceivedMessage>   receivedMsgTbl =
                                         new Vector<ReceivedMessage> () ;
   int                               receivedMsgCnt = 0 ;
 
+  //  Message IDs and times of the messages evicted from the received
+  //  message table.  They are kept until the messages would have expired
+  //  so that the messages are still recognized if they are received
+  //  again.  They are expired by message time like the table itself.
+
+  private AlertIndex                evictedIdx     = new AlertIndex () ;
+  private long                  []  evictedIds     = new long   [16] ;
+  private double                []  evictedTimes   = new double [16] ;
+  private int                       evictedCnt     = 0 ;
+
   //  Simulator using this object.
 
   final RoadReport            simulation ;
 
   //  Route the car is following.
 
-  final Route                 path ;
+  Route                       path ;
+
+  //  Initial information.  Set each time the car is started on a route
+  //  since retired cars are reused.
 
-  //  Initial information.
+  double                      creationTime ;
+  public int                  carId ;
 
-  final double                creationTime ;
-  public final int            carId ;
+  //  Time the car leaves the simulation and its position in the
+  //  simulation's car table.
+
+  double                      retireTime ;
+  int                         carIndex ;
 
   //  Current information.
 
   double                      curTime ;
   MovementVector              location ;
-  int                         messageSeq ;
+  long                        messageSeq ;
 
   //	Alert management information.
 
   Vector<AlertInfo>     alertsReceivedTbl = new Vector<AlertInfo> () ;
   int                   alertsReceivedCnt = 0 ;
+  AlertIndex            alertsReceivedIdx = new AlertIndex () ;
   Vector<AlertReceived> carAlertsTbl      = new Vector<AlertReceived> () ;
   int                   carAlertsCnt      = 0 ;
 
+  //  Locations the server is known to have, by car ID, and this car's
+  //  location as last sent to other cars.  Used to send the server only
+  //  the locations that have changed.
+
+  IntMap<LoggedLocation>  loggedLocs        = new IntMap<LoggedLocation> () ;
+  LoggedLocation          sentLocation      = null ;
+
   //  Timers.
 
   double                    receivedMsgExpire   = 0.0 ;
@@ -95,11 +151,20 @@ public class Car implements RoadReportInfo
   double                    logLocationInterval = 0.5 ;
   double                    logAlertInterval    = 0.5 ;
 
+  //  Estimated memory used by each of the tables, the most used at one
+  //  time, and the number of entries evicted to stay within the budget.
+
+  int                       msgMemory           = 0 ;
+  int                       alertMemory         = 0 ;
+  int                       carAlertMemory      = 0 ;
+  int                       peakMemory          = 0 ;
+  int                       evictCnt            = 0 ;
+
 
   /*************************************************************************
    *
    *  Constructor.
-   *  Create a car object.
+   *  Create a car object and start it on its route.
    *
    *  @param    sim           Road report simulator using this object.
    *  @param    car_route     Route the car is following.
@@ -113,24 +178,137 @@ public class Car implements RoadReportInfo
   )
   {
     simulation            = sim ;
+
+    start (car_route) ;
+
+  } // END public Car
+
+
+  /*************************************************************************
+   *
+   *  Start the car on a route.
+   *  Start a new or retired car on a route as a new car with a new ID.
+   *
+   *  @param    car_route     Route the car is following.
+   *
+   *************************************************************************
+   */
+
+  public void start (
+    Route                     car_route
+  )
+  {
     path                  = car_route ;
 
     messageSeq            = 0 ;
 
-    creationTime          = sim.getCurrentTime () ;
-    carId                 = sim.cellServer.newCarId () ;
+    creationTime          = simulation.getCurrentTime () ;
+    carId                 = simulation.cellServer.newCarId () ;
+
+    //  The car is retired when its route ends.  Make sure the route is
+    //  still good at every time before the retire time despite rounding.
+
+    retireTime            = creationTime + path.duration ;
+
+    while (retireTime - creationTime > path.duration)
+    {
+      retireTime = Math.nextDown (retireTime) ;
+    }
+
+    resetTables () ;
 
     //  Log this car's location at the specified interval.  It is the
     //  only timer initialy set.
 
     locationSendTime      = creationTime ;
 
-    sim.timerUpdate (locationSendTime) ;
+    simulation.timerUpdate (locationSendTime) ;
 
     System.out.format ("CarCreated: %g %d %s\n",
                        creationTime, carId, car_route.toString ()) ;
 
-  } // END public Car
+  } // END public void start
+
+
+  /*************************************************************************
+   *
+   *  Retire the car.
+   *  Remove the car from the simulation.  Its tables are emptied so that
+   *  the car object can be reused by start.
+   *
+   *************************************************************************
+   */
+
+  public void retire ()
+  {
+    System.out.format ("CarRetired: %g %d %d %d\n",
+                       simulation.getCurrentTime (), carId,
+                       peakMemory, evictCnt) ;
+
+    resetTables () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Empty all the car's tables and stop its timers.
+   *
+   *************************************************************************
+   */
+
+  private void resetTables ()
+  {
+    receivedMsgTbl.removeAllElements () ;
+    receivedMsgCnt        = 0 ;
+
+    evictedIdx.clear () ;
+    evictedCnt            = 0 ;
+
+    alertsReceivedTbl.removeAllElements () ;
+    alertsReceivedCnt     = 0 ;
+    alertsReceivedIdx.clear () ;
+    carAlertsTbl.removeAllElements () ;
+    carAlertsCnt          = 0 ;
+
+    loggedLocs.clear () ;
+    sentLocation          = null ;
+
+    location              = null ;
+
+    receivedMsgExpire     = 0.0 ;
+    receivedMsgResend     = 0.0 ;
+    locationSendTime      = 0.0 ;
+    alertSendTime         = 0.0 ;
+    logLocationTime       = 0.0 ;
+    logAlertTime          = 0.0 ;
+
+    logLocationInterval   = 0.5 ;
+    logAlertInterval      = 0.5 ;
+
+    msgMemory             = 0 ;
+    alertMemory           = 0 ;
+    carAlertMemory        = 0 ;
+    peakMemory            = 0 ;
+    evictCnt              = 0 ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Estimate the memory used by the car's tables.
+   *  The evicted messages take an ID and time for each.
+   *
+   *  @return                 Estimated number of heap bytes used.
+   *
+   *************************************************************************
+   */
+
+  public int memoryFootprint ()
+  {
+    return (msgMemory + alertMemory + carAlertMemory +
+            alertsReceivedIdx.footprint () +
+            evictedIdx.footprint () + evictedIds.length * 16) ;
+  }
 
 
   /*************************************************************************
@@ -145,8 +323,8 @@ public class Car implements RoadReportInfo
   {
     double                  nextTimer ;
 
-    //  Update the location from the route.  This will throw a
-    //  RouteExpiredException if the end of the route has been reached.
+    //  Update the location from the route.  The simulation retires the
+    //  car before the end of the route is reached.
 
     curTime               = simulation.getCurrentTime () ;
 
@@ -238,6 +416,8 @@ public class Car implements RoadReportInfo
 
     //  System.out.format ("After MsgAlerts: %d %g\n", carId, nextTimer) ;
 
+    enforceMemoryBudget () ;
+
     //  Update the next timer for the car on the simulation timer list.
 
     simulation.timerUpdate (nextTimer) ;
@@ -278,16 +458,7 @@ public class Car implements RoadReportInfo
         System.out.format ("ExpMsg: %g %d %s\n",
                            curTime, carId, message.toString ()) ;
 
-        receivedMsgCnt -- ;
-
-        if (message_no < receivedMsgCnt)
-        {
-          receivedMsgTbl
-              .setElementAt (receivedMsgTbl.elementAt (receivedMsgCnt),
-                             message_no) ;
-        }
-
-        receivedMsgTbl.removeElementAt (receivedMsgCnt) ;
+        deleteMessage (message_no) ;
         message_no -- ;
       }
 
@@ -302,9 +473,36 @@ public class Car implements RoadReportInfo
 
     } //  WHILE (message_no < receivedMsgCnt)
 
+    //  Forget the evicted messages that have expired as well.  The last
+    //  one is moved into the place of each one forgotten.
+
+    message_no = 0 ;
+
+    while (message_no < evictedCnt)
+    {
+      cur_msg_time = evictedTimes [message_no] ;
+
+      if (cur_msg_time + MSG_EXPIRE_INTERVAL <= curTime)
+      {
+        evictedIdx.remove (evictedIds [message_no], cur_msg_time) ;
+
+        evictedCnt -- ;
+        evictedIds   [message_no] = evictedIds   [evictedCnt] ;
+        evictedTimes [message_no] = evictedTimes [evictedCnt] ;
+        continue ;
+      }
+
+      if (oldest_time > cur_msg_time)
+      {
+        oldest_time = cur_msg_time ;
+      }
+
+      message_no ++ ;
+    }
+
     //  Set the next time this function needs to be run at.
 
-    if (receivedMsgCnt > 0)
+    if (receivedMsgCnt > 0 || evictedCnt > 0)
     {
       receivedMsgExpire = oldest_time + MSG_EXPIRE_INTERVAL ;
     }
@@ -316,6 +514,86 @@ public class Car implements RoadReportInfo
   } //  END private void expireMessages ()
 
 
+  /*************************************************************************
+   *
+   *  Add a message to the received message table.
+   *
+   *  @param    message       Message to add.
+   *
+   *************************************************************************
+   */
+
+  private void addMessage (
+    ReceivedMessage message
+  )
+  {
+    receivedMsgTbl.addElement (message) ;
+    receivedMsgCnt ++ ;
+    msgMemory += message.footprint () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Remove a message from the received message table.
+   *  The last message in the table is moved into its position.
+   *
+   *  @param    message_no    Index of the message to remove.
+   *
+   *************************************************************************
+   */
+
+  private void deleteMessage (
+    int             message_no
+  )
+  {
+    ReceivedMessage message ;
+
+    message = receivedMsgTbl.elementAt (message_no) ;
+
+    msgMemory -= message.footprint () ;
+
+    receivedMsgCnt -- ;
+
+    if (message_no < receivedMsgCnt)
+    {
+      receivedMsgTbl.setElementAt (receivedMsgTbl.elementAt (receivedMsgCnt),
+                                   message_no) ;
+    }
+
+    receivedMsgTbl.removeElementAt (receivedMsgCnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Keep the ID of an evicted message.
+   *  The message is recognized as already received until it would have
+   *  expired.
+   *
+   *  @param    message       Message evicted.
+   *
+   *************************************************************************
+   */
+
+  private void addEvicted (
+    CarCommMessage  message
+  )
+  {
+    if (evictedCnt >= evictedIds.length)
+    {
+      evictedIds   = Arrays.copyOf (evictedIds,   evictedIds.length * 2) ;
+      evictedTimes = Arrays.copyOf (evictedTimes, evictedTimes.length * 2) ;
+    }
+
+    evictedIds   [evictedCnt] = message.msgId ;
+    evictedTimes [evictedCnt] = message.msgTime ;
+    evictedCnt ++ ;
+
+    evictedIdx.put (message.msgId, message.msgTime, 0) ;
+  }
+
+
   /*************************************************************************
    *
    *  Rebroadcast received messages.
@@ -383,6 +661,12 @@ public class Car implements RoadReportInfo
 
     sendCarComm (MT_LOCATION, null, null, null, null) ;
 
+    sentLocation     = new LoggedLocation (curTime,
+                                           location.longitude,
+                                           location.latitude,
+                                           location.speed,
+                                           location.bearing) ;
+
     locationSendTime = curTime + LOCATION_SEND_INTERVAL ;
 
     if (logLocationTime == 0.0 ||
@@ -397,8 +681,8 @@ public class Car implements RoadReportInfo
   /*************************************************************************
    *
    *  Update the location for the current time.
-   *  Determine the current location along a route.  If the end of the
-   *  route has been reached an ExpiredRouteException is thrown.
+   *  Determine the current location along a route.  The car is always
+   *  retired before the end of the route is reached.
    *
    *************************************************************************
    */
@@ -457,12 +741,13 @@ public class Car implements RoadReportInfo
   private void sendCarComm (
     byte                      msg_type,
     int                   []  car_id_tbl,
-    int                   []  msg_alert_tbl,
+    long                  []  msg_alert_tbl,
     double                []  time_alert_tbl,
-    boolean             [][]  car_alert_tbl
+    CarAlertMatrix            car_alert_tbl
   )
   {
     CarCommMessage            sent_message ;
+    ReceivedMessage           sent_entry ;
 
     //  Create the new message and send it.
 
@@ -474,6 +759,7 @@ public class Car implements RoadReportInfo
                                        location.longitude,
                                        location.latitude,
                                        location.speed,
+                                       location.bearing,
                                        msg_type,
                                        curTime,
                                        car_id_tbl,
@@ -485,8 +771,9 @@ public class Car implements RoadReportInfo
 
     //  Add the message to the received message table so it is not resent.
 
-    receivedMsgTbl.addElement (new ReceivedMessage (sent_message, 0, 0.0)) ;
-    receivedMsgCnt ++ ;
+    sent_entry = new ReceivedMessage (sent_message, 0, 0.0) ;
+
+    addMessage (sent_entry) ;
 
   } //  END void private sendCarComm
 
@@ -525,7 +812,7 @@ public class Car implements RoadReportInfo
     byte                    alert_number
   )
   {
-    int                     msg_id ;
+    long                    msg_id ;
 
     System.out.print ("GenAlert: ") ;
 
@@ -545,15 +832,15 @@ public class Car implements RoadReportInfo
 
     sendCarComm (alert_number, null, null, null, null) ;
 
-    msg_id = (carId << MSG_SEQ_BITS) | messageSeq ;
+    msg_id = ((long) carId << MSG_SEQ_BITS) | messageSeq ;
 
-    alertsReceivedTbl.addElement (new AlertInfo (msg_id,
-                                                 alert_number,
-                                                 location.longitude,
-                                                 location.latitude,
-                                                 curTime)) ;
+    addAlert (new AlertInfo (msg_id,
+                             alert_number,
+                             location.longitude,
+                             location.latitude,
+                             curTime)) ;
 
-    alertsReceivedCnt ++ ;
+    enforceMemoryBudget () ;
   }
 
 
@@ -567,7 +854,7 @@ public class Car implements RoadReportInfo
 
   private void sendAlerts ()
   {
-    int             []  msg_alert_tbl ;
+    long            []  msg_alert_tbl ;
     double          []  msg_time_tbl ;
     AlertInfo           cur_alert ;
 
@@ -579,7 +866,7 @@ public class Car implements RoadReportInfo
       return ;
     }
 
-    msg_alert_tbl = new int    [alertsReceivedCnt] ;
+    msg_alert_tbl = new long   [alertsReceivedCnt] ;
     msg_time_tbl  = new double [alertsReceivedCnt] ;
 
     for (int i = 0 ; i < alertsReceivedCnt ; i ++)
@@ -619,6 +906,7 @@ public class Car implements RoadReportInfo
     Vector<Double>  car_lon   = new Vector<Double> () ;
     Vector<Double>  car_lat   = new Vector<Double> () ;
     Vector<Double>  car_speed = new Vector<Double> () ;
+    Vector<Double>  car_dir   = new Vector<Double> () ;
 
     int             car_cnt ;
 
@@ -627,6 +915,7 @@ public class Car implements RoadReportInfo
     double      []  car_lon_tbl ;
     double      []  car_lat_tbl ;
     double      []  car_speed_tbl ;
+    double      []  car_dir_tbl ;
 
     CellCommMessage log_message ;
 
@@ -639,13 +928,14 @@ public class Car implements RoadReportInfo
     car_lon.addElement    (new Double (location.longitude)) ;
     car_lat.addElement    (new Double (location.latitude)) ;
     car_speed.addElement  (new Double (location.speed)) ;
+    car_dir.addElement    (Double.valueOf (location.bearing)) ;
 
     car_cnt = 1 ;
 
     for (int i = 0 ; i < receivedMsgCnt ; i ++)
     {
       cur_msg = receivedMsgTbl.elementAt (i) ;
-      car_id  = (cur_msg.receivedMessage.msgId >> MSG_SEQ_BITS) ;
+      car_id  = (int) (cur_msg.receivedMessage.msgId >> MSG_SEQ_BITS) ;
 
       if (cur_msg.receivedMessage.msgType == MT_LOCATION && car_id != carId)
       {
@@ -659,6 +949,8 @@ public class Car implements RoadReportInfo
             new Double (cur_msg.receivedMessage.latitude)) ;
         car_speed.addElement  (
             new Double (cur_msg.receivedMessage.speed)) ;
+        car_dir.addElement    (
+            Double.valueOf (cur_msg.receivedMessage.bearing)) ;
 
         car_cnt ++ ;
       }
@@ -671,6 +963,7 @@ public class Car implements RoadReportInfo
     car_lon_tbl   = new double  [car_cnt] ;
     car_lat_tbl   = new double  [car_cnt] ;
     car_speed_tbl = new double  [car_cnt] ;
+    car_dir_tbl   = new double  [car_cnt] ;
 
     for (int i = 0 ; i < car_cnt ; i ++)
     {
@@ -679,23 +972,42 @@ public class Car implements RoadReportInfo
       car_lon_tbl   [i] = car_lon.elementAt   (i).doubleValue () ;
       car_lat_tbl   [i] = car_lat.elementAt   (i).doubleValue () ;
       car_speed_tbl [i] = car_speed.elementAt (i).doubleValue () ;
+      car_dir_tbl   [i] = car_dir.elementAt   (i).doubleValue () ;
     }
 
     log_message = new CellCommMessage (MT_LOC_TBL_SENT, car_id_tbl,
                                        car_times_tbl, car_lon_tbl,
                                        car_lat_tbl, car_speed_tbl,
-                                       null, null, null) ;
+                                       car_dir_tbl, null, null, null) ;
 
-    System.out.format ("LogLocs: %g %d ", curTime, carId) ;
-    System.out.println (log_message.toString ()) ;
+    simulation.cellComm.locFullBytes.add (MT_LOC_TBL_SENT,
+                                  MessageCodec.sizeOf (log_message)) ;
 
-    simulation.cellComm.sendMessageToServer (log_message) ;
+    //  Only send the locations that have changed when sending deltas or
+    //  when the server dead reckons.  Nothing is sent if none have.
+
+    if (simulation.locationDelta || simulation.deadReckon)
+    {
+      log_message = locationDelta (log_message) ;
+    }
+
+    if (log_message == null)
+    {
+      System.out.format ("LogLocsNone: %g %d\n", curTime, carId) ;
+    }
+    else
+    {
+      System.out.format ("LogLocs: %g %d ", curTime, carId) ;
+      System.out.println (log_message.toString ()) ;
 
-    //  Send a location table sent message.
+      simulation.cellComm.sendMessageToServer (log_message) ;
 
-    System.out.print ("LogLocsSent: ") ;
+      //  Send a location table sent message.
 
-    sendCarComm (MT_LOC_TBL_SENT, car_id_tbl, null, null, null) ;
+      System.out.print ("LogLocsSent: ") ;
+
+      sendCarComm (MT_LOC_TBL_SENT, log_message.carIds, null, null, null) ;
+    }
 
     //  Log the locations after a full location logging interval.
 
@@ -708,6 +1020,238 @@ public class Car implements RoadReportInfo
   } //  END private void logLocations ()
 
 
+  /*************************************************************************
+   *
+   *  Select the changed locations from a location table.
+   *  A location is changed if the server is not known to have one for the
+   *  car, if the one it has is older than the refresh interval, or if the
+   *  car has moved or changed speed enough since.  When the server dead
+   *  reckons, the movement is measured from where the server expects the
+   *  car to be rather than from the location it has.  The locations
+   *  selected are remembered as logged, and logged locations that the
+   *  server will have evicted are forgotten.
+   *
+   *  @param    full_message  Location table of all locations known.
+   *  @return                 Location table of the changed locations or
+   *                          null if there are none.
+   *
+   *************************************************************************
+   */
+
+  private CellCommMessage locationDelta (
+    CellCommMessage           full_message
+  )
+  {
+    int                       entry_cnt = full_message.carIds.length ;
+    int                   []  entries   = new int [entry_cnt] ;
+    int                       delta_cnt = 0 ;
+    int                   []  stale_ids ;
+    int                       stale_cnt = 0 ;
+    LoggedLocation            logged ;
+    double                    elapsed ;
+    double                    lon_adjust ;
+    double                    lat_diff ;
+    double                    lon_diff ;
+
+    lon_adjust = Math.cos (location.latitude * Math.PI / 180.0) ;
+
+    //  Find the changed locations.
+
+    for (int i = 0 ; i < entry_cnt ; i ++)
+    {
+      logged = loggedLocs.get (full_message.carIds [i]) ;
+
+      if (logged != null)
+      {
+        if (logged.time >= full_message.msgTime [i])
+        {
+          continue ;
+        }
+
+        elapsed  = full_message.msgTime [i] - logged.time ;
+
+        lat_diff = full_message.latitude  [i] - logged.latitude ;
+        lon_diff = full_message.longitude [i] - logged.longitude ;
+
+        if (simulation.deadReckon)
+        {
+          lat_diff -= Route.latSpeed (logged.bearing, logged.speed) *
+                      elapsed ;
+          lon_diff -= Route.lonSpeed (logged.latitude, logged.bearing,
+                                      logged.speed) * elapsed ;
+        }
+
+        lat_diff *= LAT2KM ;
+        lon_diff *= LON2KM * lon_adjust ;
+
+        if (elapsed < LOCATION_DELTA_REFRESH &&
+            Math.abs (full_message.speed [i] - logged.speed) <
+                                                    LOCATION_DELTA_SPEED &&
+            lat_diff * lat_diff + lon_diff * lon_diff <
+                                LOCATION_DELTA_KM * LOCATION_DELTA_KM)
+        {
+          continue ;
+        }
+      }
+
+      entries [delta_cnt ++] = i ;
+    }
+
+    //  Forget logged locations the server no longer has.
+
+    stale_ids = new int [loggedLocs.size ()] ;
+
+    for (int slot = 0 ; slot < loggedLocs.slots () ; slot ++)
+    {
+      logged = loggedLocs.valueAt (slot) ;
+
+      if (logged != null && logged.time + CAR_INFO_HORIZON <= curTime)
+      {
+        stale_ids [stale_cnt ++] = loggedLocs.keyAt (slot) ;
+      }
+    }
+
+    for (int i = 0 ; i < stale_cnt ; i ++)
+    {
+      loggedLocs.remove (stale_ids [i]) ;
+    }
+
+    if (delta_cnt == 0)
+    {
+      return (null) ;
+    }
+
+    //  Build the table of changed locations and remember them.
+
+    int                   []  car_id_tbl    = new int    [delta_cnt] ;
+    double                []  car_times_tbl = new double [delta_cnt] ;
+    double                []  car_lon_tbl   = new double [delta_cnt] ;
+    double                []  car_lat_tbl   = new double [delta_cnt] ;
+    double                []  car_speed_tbl = new double [delta_cnt] ;
+    double                []  car_dir_tbl   = new double [delta_cnt] ;
+
+    for (int i = 0 ; i < delta_cnt ; i ++)
+    {
+      car_id_tbl    [i] = full_message.carIds    [entries [i]] ;
+      car_times_tbl [i] = full_message.msgTime   [entries [i]] ;
+      car_lon_tbl   [i] = full_message.longitude [entries [i]] ;
+      car_lat_tbl   [i] = full_message.latitude  [entries [i]] ;
+      car_speed_tbl [i] = full_message.speed     [entries [i]] ;
+      car_dir_tbl   [i] = full_message.bearing   [entries [i]] ;
+
+      loggedLocs.put (car_id_tbl [i],
+                      new LoggedLocation (car_times_tbl [i],
+                                          car_lon_tbl   [i],
+                                          car_lat_tbl   [i],
+                                          car_speed_tbl [i],
+                                          car_dir_tbl   [i])) ;
+    }
+
+    return (new CellCommMessage (MT_LOC_TBL_SENT, car_id_tbl,
+                                 car_times_tbl, car_lon_tbl,
+                                 car_lat_tbl, car_speed_tbl,
+                                 car_dir_tbl, null, null, null)) ;
+
+  } //  END private CellCommMessage locationDelta
+
+
+  /*************************************************************************
+   *
+   *  Record a location as logged to the server.
+   *  Only locations newer than the one already recorded for the car are
+   *  kept.
+   *
+   *  @param    car_id        ID of the car the location is for.
+   *  @param    loc_time      Time of the location.
+   *  @param    lon           Longitude of the location.
+   *  @param    lat           Latitude of the location.
+   *  @param    loc_speed     Speed at the location.
+   *  @param    loc_bearing   Bearing at the location.
+   *
+   *************************************************************************
+   */
+
+  private void recordLogged (
+    int                       car_id,
+    double                    loc_time,
+    double                    lon,
+    double                    lat,
+    double                    loc_speed,
+    double                    loc_bearing
+  )
+  {
+    LoggedLocation            logged = loggedLocs.get (car_id) ;
+
+    if (logged == null)
+    {
+      loggedLocs.put (car_id, new LoggedLocation (loc_time, lon, lat,
+                                                  loc_speed, loc_bearing)) ;
+    }
+    else if (logged.time < loc_time)
+    {
+      logged.time       = loc_time ;
+      logged.longitude  = lon ;
+      logged.latitude   = lat ;
+      logged.speed      = loc_speed ;
+      logged.bearing    = loc_bearing ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Record a location logged by another car.
+   *  The other car is assumed to have sent the latest location this car
+   *  knows for the car logged, as long as it is not newer than the table
+   *  was sent.  For this car that is the location it last sent.
+   *
+   *  @param    car_id        ID of the car whose location was logged.
+   *  @param    sent_time     Time the location table was sent.
+   *
+   *************************************************************************
+   */
+
+  private void loggedByOther (
+    int                       car_id,
+    double                    sent_time
+  )
+  {
+    CarCommMessage            known     = null ;
+    CarCommMessage            cur_msg ;
+
+    if (car_id == carId)
+    {
+      if (sentLocation != null && sentLocation.time <= sent_time)
+      {
+        recordLogged (car_id, sentLocation.time, sentLocation.longitude,
+                      sentLocation.latitude, sentLocation.speed,
+                      sentLocation.bearing) ;
+      }
+
+      return ;
+    }
+
+    for (int i = 0 ; i < receivedMsgCnt ; i ++)
+    {
+      cur_msg = receivedMsgTbl.elementAt (i).receivedMessage ;
+
+      if (cur_msg.msgType == MT_LOCATION                      &&
+          (int) (cur_msg.msgId >> MSG_SEQ_BITS) == car_id     &&
+          cur_msg.msgTime <= sent_time                        &&
+          (known == null || cur_msg.msgTime > known.msgTime))
+      {
+        known = cur_msg ;
+      }
+    }
+
+    if (known != null)
+    {
+      recordLogged (car_id, known.msgTime, known.longitude,
+                    known.latitude, known.speed, known.bearing) ;
+    }
+  }
+
+
   /*************************************************************************
    *
    *  Log all alerts received.
@@ -719,9 +1263,7 @@ public class Car implements RoadReportInfo
   private void logAlerts ()
   {
     int         []  car_tbl         = new int     [carAlertsCnt + 1] ;
-    int         []  msg_alert_tbl   = new int     [alertsReceivedCnt] ;
-    boolean   [][]  car_alert_tbl   = new boolean [carAlertsCnt + 1]
-                                                  [alertsReceivedCnt] ;
+    long        []  msg_alert_tbl   = new long    [alertsReceivedCnt] ;
     byte        []  msg_alert_tp    = new byte    [alertsReceivedCnt] ;
     double      []  time_tbl        = new double  [alertsReceivedCnt] ;
     double      []  lon_tbl         = new double  [alertsReceivedCnt] ;
@@ -731,6 +1273,9 @@ public class Car implements RoadReportInfo
     AlertReceived   car_alert ;
     AlertInfo       cur_alert ;
 
+    CarAlertMatrix.Builder  car_alert_bld ;
+    CarAlertMatrix          car_alert_tbl ;
+
     CellCommMessage log_message ;
 
     updateLocation () ;
@@ -738,6 +1283,9 @@ public class Car implements RoadReportInfo
     //  Build the car table and the car alert table from the car alerts
     //  table and the alerts table for this car.
 
+    car_alert_bld = new CarAlertMatrix.Builder (carAlertsCnt + 1,
+                                                alertsReceivedCnt) ;
+
     for (int car_no = 0 ; car_no < carAlertsCnt ; car_no ++)
     {
       car_alert = carAlertsTbl.elementAt (car_no) ;
@@ -750,17 +1298,18 @@ public class Car implements RoadReportInfo
 
       for (int alert_no = 0 ; alert_no < alert_cnt ; alert_no ++)
       {
-        car_alert_tbl [car_no] [alert_no] =
-                  car_alert.receivedTbl [alert_no] ;
+        if (car_alert.receivedTbl [alert_no])
+        {
+          car_alert_bld.set (car_no, alert_no) ;
+        }
       }
     }
 
     car_tbl [carAlertsCnt] = carId ;
 
-    for (int alert_no = 0 ; alert_no < alertsReceivedCnt ; alert_no ++)
-    {
-      car_alert_tbl [carAlertsCnt] [alert_no] = true ;
-    }
+    car_alert_bld.setRow (carAlertsCnt) ;
+
+    car_alert_tbl = car_alert_bld.build () ;
 
     //  Build the alert table.
 
@@ -778,7 +1327,7 @@ public class Car implements RoadReportInfo
     //  Send the alerts to the server.
 
     log_message = new CellCommMessage (MT_ALERT_TBL_SENT, car_tbl, time_tbl,
-                                       lon_tbl, lat_tbl, null,
+                                       lon_tbl, lat_tbl, null, null,
                                        msg_alert_tbl, msg_alert_tp,
                                        car_alert_tbl) ;
 
@@ -796,10 +1345,13 @@ public class Car implements RoadReportInfo
 
     //  All alerts have been logged.  They can be deleted.
 
-    carAlertsTbl      = new Vector<AlertReceived> () ;
+    carAlertsTbl.removeAllElements () ;
     carAlertsCnt      = 0 ;
-    alertsReceivedTbl = new Vector<AlertInfo> () ;
+    carAlertMemory    = 0 ;
+    alertsReceivedTbl.removeAllElements () ;
     alertsReceivedCnt = 0 ;
+    alertsReceivedIdx.clear () ;
+    alertMemory       = 0 ;
 
     //  Don't need to log any alerts until more are received.
 
@@ -843,11 +1395,8 @@ public class Car implements RoadReportInfo
     int                       car_index ;
     int                       alert_no ;
     int                       car_id ;
-    int                       message_id ;
-    double                    message_time ;
     ReceivedMessage           cur_msg ;
     AlertReceived             cur_alert ;
-    AlertInfo                 alert_info ;
 
     updateLocation () ;
 
@@ -901,6 +1450,17 @@ public class Car implements RoadReportInfo
       }
     }
 
+    //  Messages evicted from the table have been received as well.
+
+    if (evictedIdx.get (message.msgId, message.msgTime) >= 0)
+    {
+      System.out.format ("RcvMsgAgain: %g %d %g %g %g %g %s\n",
+                         curTime, carId, lat, lon,
+                         location.latitude, location.longitude,
+                         message.toString ()) ;
+      return ;
+    }
+
     //  Determine if the message is local based on separation distance
     //  between sender and this car and the max speed.
 
@@ -933,8 +1493,7 @@ public class Car implements RoadReportInfo
 
     cur_msg = new ReceivedMessage (message, 1, resend_time) ;
 
-    receivedMsgTbl.addElement (cur_msg) ;
-    receivedMsgCnt ++ ;
+    addMessage (cur_msg) ;
 
     if (receivedMsgResend == 0.0 || receivedMsgResend > resend_time)
     {
@@ -948,9 +1507,7 @@ public class Car implements RoadReportInfo
     {
       if (loc_index >= 0)
       {
-        receivedMsgCnt -- ;
-        receivedMsgTbl.setElementAt (cur_msg, loc_index) ;
-        receivedMsgTbl.removeElementAt (receivedMsgCnt) ;
+        deleteMessage (loc_index) ;
       }
 
       if (logLocationTime == 0.0 ||
@@ -984,12 +1541,11 @@ public class Car implements RoadReportInfo
         simulation.timerUpdate (logAlertTime) ;
       }
 
-      alertsReceivedTbl.addElement (new AlertInfo (message.msgId,
-                                                   message.msgType,
-                                                   message.longitude,
-                                                   message.latitude,
-                                                   message.msgTime)) ;
-      alertsReceivedCnt ++ ;
+      addAlert (new AlertInfo (message.msgId,
+                               message.msgType,
+                               message.longitude,
+                               message.latitude,
+                               message.msgTime)) ;
 
       System.out.format ("RcvMsgAlert: %g %d %g %g %g %g %s\n",
                          curTime, carId, lat, lon,
@@ -1008,6 +1564,11 @@ public class Car implements RoadReportInfo
 
       for (int i = 0 ; i < message.carIdTbl.length ; i ++)
       {
+        if (simulation.locationDelta || simulation.deadReckon)
+        {
+          loggedByOther (message.carIdTbl [i], message.msgTime) ;
+        }
+
         if (message.carIdTbl [i] == carId)
         {
           logLocationTime       = curTime +
@@ -1034,52 +1595,29 @@ public class Car implements RoadReportInfo
                          message.toString ()) ;
 
       for (car_index = 0 ;
-              car_index < message.carAlertTbl.length ;
+              car_index < message.carAlertTbl.rows () ;
            car_index ++)
       {
         if (message.carIdTbl [car_index] == carId)
         {
           //  Remove all alerts that have been logged to the server.
+          //  Each logged alert in the message is looked up in the alert
+          //  index rather than searching the alerts received table.
 
-          alert_no = 0 ;
-
-          while (alert_no < alertsReceivedCnt)
+          for (int msgid_no = message.carAlertTbl.nextSetBit (car_index, 0) ;
+                   msgid_no >= 0 ;
+               msgid_no = message.carAlertTbl.nextSetBit (car_index,
+                                                          msgid_no + 1))
           {
-            //  Find this alert's message in the message's alert table.
+            alert_no = alertsReceivedIdx.get (
+                              message.msgAlertTbl  [msgid_no],
+                              message.timeAlertTbl [msgid_no]) ;
 
-            message_id  = alertsReceivedTbl.elementAt (alert_no).msgId ;
-
-            for (int msgid_no = 0 ;
-                    msgid_no < message.msgAlertTbl.length ;
-                 msgid_no ++)
+            if (alert_no >= 0)
             {
-              if (message.msgAlertTbl [msgid_no] == message_id)
-              {
-                //  If the alert has been logged remove it.
-
-                if (message.carAlertTbl [car_index] [msgid_no])
-                {
-                  alertsReceivedCnt -- ;
-
-                  removeAlert (alert_no, alertsReceivedCnt) ;
-
-                  if (alert_no < alertsReceivedCnt)
-                  {
-                    alertsReceivedTbl.setElementAt (
-                        alertsReceivedTbl.elementAt (alertsReceivedCnt),
-                        alert_no) ;
-                    alert_no -- ;
-                  }
-
-                  alertsReceivedTbl.removeElement (alertsReceivedCnt) ;
-                  break ;
-                }
-              }
+              deleteAlert (alert_no) ;
             }
-
-            alert_no ++ ;
-
-          }   //  WHILE (alert_no < alertsReceivedCnt)
+          } //  FOR (int msgid_no = message.carAlertTbl.nextSetBit
 
           break ;
 
@@ -1114,7 +1652,7 @@ public class Car implements RoadReportInfo
                          location.latitude, location.longitude,
                          message.toString ()) ;
 
-      car_id      = (message.msgId >> MSG_SEQ_BITS) ;
+      car_id      = (int) (message.msgId >> MSG_SEQ_BITS) ;
 
       //  Find the car in the car alerts table.
 
@@ -1130,27 +1668,22 @@ public class Car implements RoadReportInfo
       }
 
       //  Create a new car alert entry and set the flags in it for all
-      //  known alerts it has registered.
+      //  known alerts it has registered.  The message's alerts are looked
+      //  up in the alert index.
 
       cur_alert     = new AlertReceived (car_id, alertsReceivedCnt) ;
 
-      for (alert_no = 0 ; alert_no < alertsReceivedCnt ; alert_no ++)
+      for (int msgid_no = 0 ;
+              msgid_no < message.msgAlertTbl.length ;
+           msgid_no ++)
       {
-        alert_info    = alertsReceivedTbl.elementAt (alert_no) ;
-        message_id    = alert_info.msgId ;
-        message_time  = alert_info.time ;
+        alert_no = alertsReceivedIdx.get (message.msgAlertTbl  [msgid_no],
+                                          message.timeAlertTbl [msgid_no]) ;
 
-        for (int msgid_no = 0 ;
-                msgid_no < message.msgAlertTbl.length ;
-             msgid_no ++)
+        if (alert_no >= 0 && ! cur_alert.receivedTbl [alert_no])
         {
-          if (message.msgAlertTbl  [msgid_no] == message_id &&
-              message.timeAlertTbl [msgid_no] == message_time)
-          {
-            cur_alert.receivedCnt ++ ;
-            cur_alert.receivedTbl [alert_no] = true ;
-            break ;
-          }
+          cur_alert.receivedCnt ++ ;
+          cur_alert.receivedTbl [alert_no] = true ;
         }
       }
 
@@ -1166,11 +1699,15 @@ public class Car implements RoadReportInfo
         }
         else
         {
+          carAlertMemory -= carAlertsTbl.elementAt (car_index).footprint () ;
           carAlertsTbl.setElementAt (cur_alert, car_index) ;
         }
+
+        carAlertMemory += cur_alert.footprint () ;
       }
       else if (car_index >= 0)
       {
+        carAlertMemory -= carAlertsTbl.elementAt (car_index).footprint () ;
         carAlertsCnt -- ;
 
         if (car_index < carAlertsCnt)
@@ -1192,6 +1729,9 @@ public class Car implements RoadReportInfo
                          location.latitude, location.longitude,
                          message.toString ()) ;
     }
+
+    enforceMemoryBudget () ;
+
   } //  END public void receiveCarMessage
 
 
@@ -1210,7 +1750,7 @@ public class Car implements RoadReportInfo
   )
   {
     int                     car_id ;
-    int                     msg_seq ;
+    long                    msg_seq ;
     CarCommMessage          car_message ;
 
     updateLocation () ;
@@ -1235,23 +1775,21 @@ public class Car implements RoadReportInfo
           logAlertInterval = logAlertInterval * ALERT_LOG_INTERVAL_BACKOFF ;
         }
 
-        alertsReceivedTbl.addElement (
-                      new AlertInfo (message.msgAlertTbl  [i],
-                                     message.msgAlertType [i],
-                                     message.longitude    [i],
-                                     message.latitude     [i],
-                                     message.msgTime      [i])) ;
-        alertsReceivedCnt ++ ;
+        addAlert (new AlertInfo (message.msgAlertTbl  [i],
+                                 message.msgAlertType [i],
+                                 message.longitude    [i],
+                                 message.latitude     [i],
+                                 message.msgTime      [i])) ;
 
         //  Send the alert to all cars.
 
-        car_id  = message.msgAlertTbl [i] >> MSG_SEQ_BITS ;
+        car_id  = (int) (message.msgAlertTbl [i] >> MSG_SEQ_BITS) ;
         msg_seq = message.msgAlertTbl [i] &  MSG_SEQ_MASK ;
 
         car_message = new CarCommMessage (car_id, msg_seq,
                                           message.longitude    [i],
                                           message.latitude     [i],
-                                          0.0,
+                                          0.0, 0.0,
                                           message.msgAlertType [i],
                                           message.msgTime      [i],
                                           null, null, null, null) ;
@@ -1267,9 +1805,329 @@ public class Car implements RoadReportInfo
       System.out.format ("CellMsgUnknown: %s\n", message.toString ()) ;
     }
 
+    enforceMemoryBudget () ;
+
   } //  END public void receiveCellMessage
 
 
+  /*************************************************************************
+   *
+   *  Add an alert to the alerts received table.
+   *  Add the alert to the alerts received table and its index.  Alerts
+   *  that are already in the table are not added again.
+   *
+   *  @param    alert_info    Alert to add.
+   *  @return                 True if the alert was added, false if it was
+   *                          already known.
+   *
+   *************************************************************************
+   */
+
+  private boolean addAlert (
+    AlertInfo         alert_info
+  )
+  {
+    if (alertsReceivedIdx.get (alert_info.msgId, alert_info.time) >= 0)
+    {
+      return (false) ;
+    }
+
+    alertsReceivedTbl.addElement (alert_info) ;
+    alertsReceivedIdx.put (alert_info.msgId, alert_info.time,
+                           alertsReceivedCnt) ;
+    alertsReceivedCnt ++ ;
+    alertMemory += alert_info.footprint () ;
+
+    return (true) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Delete an alert from the alerts received table.
+   *  Remove the alert from the table, its index, and the cars that have
+   *  received it.  The last alert in the table is moved into its position.
+   *
+   *  @param    alert_no      Index of the alert in the alerts received
+   *                          table.
+   *
+   *************************************************************************
+   */
+
+  private void deleteAlert (
+    int               alert_no
+  )
+  {
+    AlertInfo         alert_info ;
+
+    alert_info = alertsReceivedTbl.elementAt (alert_no) ;
+
+    alertsReceivedIdx.remove (alert_info.msgId, alert_info.time) ;
+    alertMemory -= alert_info.footprint () ;
+
+    alertsReceivedCnt -- ;
+
+    removeAlert (alert_no, alertsReceivedCnt) ;
+
+    //  Move the last alert into the removed alert's position.
+
+    if (alert_no < alertsReceivedCnt)
+    {
+      alert_info = alertsReceivedTbl.elementAt (alertsReceivedCnt) ;
+
+      alertsReceivedTbl.setElementAt (alert_info, alert_no) ;
+      alertsReceivedIdx.put (alert_info.msgId, alert_info.time, alert_no) ;
+    }
+
+    alertsReceivedTbl.removeElementAt (alertsReceivedCnt) ;
+
+  } //  END private void deleteAlert
+
+
+  /*************************************************************************
+   *
+   *  Keep the car's tables within the memory budget.
+   *  Evict the least useful entries until the estimated memory used by
+   *  the car's tables is within the simulation's car memory budget.  The
+   *  budget is a soft limit.  Alerts that have not been logged and the
+   *  IDs of evicted messages are never evicted, so a car can stay over
+   *  its budget by the memory these use.
+   *
+   *************************************************************************
+   */
+
+  private void enforceMemoryBudget ()
+  {
+    int               used ;
+
+    used = memoryFootprint () ;
+
+    while (used > simulation.carMemoryBudget && evictEntry ())
+    {
+      used = memoryFootprint () ;
+    }
+
+    if (peakMemory < used)
+    {
+      peakMemory = used ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Evict the least useful table entry.
+   *  Location messages are evicted first, from the sender farthest from
+   *  the car.  Then the other messages that are not unlogged alerts are
+   *  evicted, oldest first, then the car that has received the fewest
+   *  alerts from the car alerts table, and last the oldest messages
+   *  holding alerts that have not been logged.  The IDs of evicted
+   *  messages are kept so they are still recognized when they are
+   *  received again.  Alerts that have not been logged are kept in the
+   *  alerts received table, since they are still to be sent to the
+   *  server and are what keeps them from being added again.
+   *
+   *  @return                 True if an entry was evicted.  False if
+   *                          nothing more can be evicted.
+   *
+   *************************************************************************
+   */
+
+  private boolean evictEntry ()
+  {
+    int               victim_no ;
+
+    //  Evict the location message from the farthest sender.
+
+    victim_no = farthestLocation () ;
+
+    //  Evict the oldest message that is not an unlogged alert.
+
+    if (victim_no < 0)
+    {
+      victim_no = oldestMessage (false) ;
+    }
+
+    if (victim_no >= 0)
+    {
+      evictMessage (victim_no) ;
+      return (true) ;
+    }
+
+    //  Evict the car that has received the fewest alerts.
+
+    if (carAlertsCnt > 0)
+    {
+      victim_no = 0 ;
+
+      for (int i = 1 ; i < carAlertsCnt ; i ++)
+      {
+        if (carAlertsTbl.elementAt (i).receivedCnt <
+            carAlertsTbl.elementAt (victim_no).receivedCnt)
+        {
+          victim_no = i ;
+        }
+      }
+
+      System.out.format ("EvictCarAlert: %g %d %s\n", curTime, carId,
+                         carAlertsTbl.elementAt (victim_no).toString ()) ;
+
+      carAlertMemory -= carAlertsTbl.elementAt (victim_no).footprint () ;
+      carAlertsCnt -- ;
+
+      if (victim_no < carAlertsCnt)
+      {
+        carAlertsTbl.setElementAt (carAlertsTbl.elementAt (carAlertsCnt),
+                                   victim_no) ;
+      }
+
+      carAlertsTbl.removeElementAt (carAlertsCnt) ;
+      evictCnt ++ ;
+      return (true) ;
+    }
+
+    //  Evict the oldest message holding an alert that has not been
+    //  logged.
+
+    victim_no = oldestMessage (true) ;
+
+    if (victim_no >= 0)
+    {
+      evictMessage (victim_no) ;
+      return (true) ;
+    }
+
+    return (false) ;
+
+  } //  END private boolean evictEntry ()
+
+
+  /*************************************************************************
+   *
+   *  Find the location message from the farthest sender.
+   *
+   *  @return                 Index of the message in the received message
+   *                          table, -1 if there are no location messages.
+   *
+   *************************************************************************
+   */
+
+  private int farthestLocation ()
+  {
+    int               victim_no = -1 ;
+    double            victim_dist = -1.0 ;
+    double            lon_adjust ;
+    double            lat_diff ;
+    double            lon_diff ;
+    double            dist_sqr ;
+    CarCommMessage    message ;
+
+    lon_adjust = (location == null)
+                 ? 1.0
+                 : Math.cos (location.latitude * Math.PI / 180.0) ;
+
+    for (int message_no = 0 ; message_no < receivedMsgCnt ; message_no ++)
+    {
+      message = receivedMsgTbl.elementAt (message_no).receivedMessage ;
+
+      if (message.msgType != MT_LOCATION)
+      {
+        continue ;
+      }
+
+      dist_sqr = 0.0 ;
+
+      if (location != null)
+      {
+        lat_diff = (location.latitude  - message.latitude)  * LAT2KM ;
+        lon_diff = (location.longitude - message.longitude) * LON2KM *
+                                                              lon_adjust ;
+        dist_sqr = lat_diff * lat_diff + lon_diff * lon_diff ;
+      }
+
+      if (victim_dist < dist_sqr)
+      {
+        victim_no   = message_no ;
+        victim_dist = dist_sqr ;
+      }
+    }
+
+    return (victim_no) ;
+
+  } //  END private int farthestLocation ()
+
+
+  /*************************************************************************
+   *
+   *  Find the oldest message that is not a location message.
+   *  An alert is unlogged while it is in the alerts received table.
+   *
+   *  @param    unlogged      True to find the oldest message holding an
+   *                          unlogged alert, false to find the oldest of
+   *                          the other messages.
+   *  @return                 Index of the message in the received message
+   *                          table, -1 if there is none.
+   *
+   *************************************************************************
+   */
+
+  private int oldestMessage (
+    boolean           unlogged
+  )
+  {
+    int               victim_no = -1 ;
+    CarCommMessage    message ;
+
+    for (int message_no = 0 ; message_no < receivedMsgCnt ; message_no ++)
+    {
+      message = receivedMsgTbl.elementAt (message_no).receivedMessage ;
+
+      if (message.msgType == MT_LOCATION ||
+          unlogged != (message.msgType >= MT_ALERTS &&
+                       alertsReceivedIdx.get (message.msgId,
+                                              message.msgTime) >= 0))
+      {
+        continue ;
+      }
+
+      if (victim_no < 0 ||
+          message.msgTime < receivedMsgTbl.elementAt (victim_no).
+                                                receivedMessage.msgTime)
+      {
+        victim_no = message_no ;
+      }
+    }
+
+    return (victim_no) ;
+
+  } //  END private int oldestMessage ()
+
+
+  /*************************************************************************
+   *
+   *  Evict a message from the received message table.
+   *  Its ID is kept so it is still recognized if it is received again.
+   *
+   *  @param    message_no    Index of the message to evict.
+   *
+   *************************************************************************
+   */
+
+  private void evictMessage (
+    int               message_no
+  )
+  {
+    ReceivedMessage   victim = receivedMsgTbl.elementAt (message_no) ;
+
+    System.out.format ("EvictMsg: %g %d %s\n", curTime, carId,
+                       victim.toString ()) ;
+
+    addEvicted (victim.receivedMessage) ;
+    deleteMessage (message_no) ;
+    evictCnt ++ ;
+  }
+
+
   /*************************************************************************
    *
    *  Remove an alert from all cars.
@@ -1331,6 +2189,7 @@ public class Car implements RoadReportInfo
 
         if (cur_car.receivedCnt <= 0)
         {
+          carAlertMemory -= cur_car.footprint () ;
           carAlertsCnt -- ;
           cur_car = carAlertsTbl.elementAt (carAlertsCnt) ;
           carAlertsTbl.removeElementAt (carAlertsCnt) ;
@@ -0,0 +1,426 @@
+/***************************************************************************
+ *
+ *  Car alert matrix.
+ *  Packed table of which alerts each car has received.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.nio.* ;
+
+
+/***************************************************************************
+ *
+ *  Car alert matrix.
+ *  Immutable table of flags indicating which alerts each car has
+ *  received.  Each row is a car and each column an alert.  The flags are
+ *  packed 64 to a word with every row starting on a word boundary, so a
+ *  row's set flags can be found a word at a time.  Matrices are built
+ *  with a CarAlertMatrix.Builder.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CarAlertMatrix
+{
+  //  Flags are packed into 64 bit words.
+
+  private static final int    WORD_SHIFT      = 6 ;
+  private static final int    WORD_MASK       = 63 ;
+
+  private final int           rowCnt ;
+  private final int           columnCnt ;
+  private final int           rowWords ;
+  private final long      []  flags ;
+
+
+  /*************************************************************************
+   *
+   *  Builder for car alert matrices.
+   *  Flags are set in the builder and then frozen into a matrix.  The
+   *  builder can not be used after the matrix has been built.
+   *
+   *************************************************************************
+   */
+
+  public static class Builder
+  {
+    private final int         rowCnt ;
+    private final int         columnCnt ;
+    private final int         rowWords ;
+    private long          []  flags ;
+
+    public Builder (
+      int                     row_cnt,
+      int                     column_cnt
+    )
+    {
+      rowCnt    = row_cnt ;
+      columnCnt = column_cnt ;
+      rowWords  = (column_cnt + WORD_MASK) >>> WORD_SHIFT ;
+      flags     = new long [row_cnt * rowWords] ;
+    }
+
+    //  Set the flag for the given car and alert.
+
+    public Builder set (
+      int                     row,
+      int                     column
+    )
+    {
+      checkIndex (row, column, rowCnt, columnCnt) ;
+
+      flags [row * rowWords + (column >>> WORD_SHIFT)] |=
+                                        (1L << (column & WORD_MASK)) ;
+      return (this) ;
+    }
+
+    //  Set all the flags for the given car.
+
+    public Builder setRow (
+      int                     row
+    )
+    {
+      int                     start = row * rowWords ;
+
+      checkIndex (row, 0, rowCnt, columnCnt + 1) ;
+
+      for (int i = 0 ; i < rowWords ; i ++)
+      {
+        flags [start + i] = -1L ;
+      }
+
+      if ((columnCnt & WORD_MASK) != 0)
+      {
+        flags [start + rowWords - 1] = (1L << (columnCnt & WORD_MASK)) - 1 ;
+      }
+
+      return (this) ;
+    }
+
+    //  Produce the matrix.
+
+    public CarAlertMatrix build ()
+    {
+      CarAlertMatrix          result ;
+
+      result = new CarAlertMatrix (rowCnt, columnCnt, flags) ;
+      flags  = null ;
+
+      return (result) ;
+    }
+  }   //  END public static class Builder
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create a matrix from packed flag words.  The words are not copied.
+   *
+   *  @param    row_cnt       Number of cars in the matrix.
+   *  @param    column_cnt    Number of alerts in the matrix.
+   *  @param    flag_words    Packed flags.  Each row starts a new word.
+   *
+   *************************************************************************
+   */
+
+  private CarAlertMatrix (
+    int                       row_cnt,
+    int                       column_cnt,
+    long                  []  flag_words
+  )
+  {
+    rowCnt      = row_cnt ;
+    columnCnt   = column_cnt ;
+    rowWords    = (column_cnt + WORD_MASK) >>> WORD_SHIFT ;
+    flags       = flag_words ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the number of cars (rows) in the matrix.
+   *
+   *  @return                 Number of rows.
+   *
+   *************************************************************************
+   */
+
+  public int rows ()
+  {
+    return (rowCnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the number of alerts (columns) in the matrix.
+   *
+   *  @return                 Number of columns.
+   *
+   *************************************************************************
+   */
+
+  public int columns ()
+  {
+    return (columnCnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Determine if a car has received an alert.
+   *
+   *  @param    row           Index of the car.
+   *  @param    column        Index of the alert.
+   *  @return                 True if the flag is set.
+   *
+   *************************************************************************
+   */
+
+  public boolean get (
+    int                       row,
+    int                       column
+  )
+  {
+    checkIndex (row, column, rowCnt, columnCnt) ;
+
+    return ((flags [row * rowWords + (column >>> WORD_SHIFT)] &
+             (1L << (column & WORD_MASK))) != 0) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Count the alerts a car has received.
+   *
+   *  @param    row           Index of the car.
+   *  @return                 Number of flags set in the row.
+   *
+   *************************************************************************
+   */
+
+  public int rowCount (
+    int                       row
+  )
+  {
+    int                       start = row * rowWords ;
+    int                       count = 0 ;
+
+    checkIndex (row, 0, rowCnt, columnCnt + 1) ;
+
+    for (int i = 0 ; i < rowWords ; i ++)
+    {
+      count += Long.bitCount (flags [start + i]) ;
+    }
+
+    return (count) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find the next alert a car has received.
+   *  Used to iterate over the set flags of a row:
+   *    for (i = m.nextSetBit (r, 0) ; i >= 0 ; i = m.nextSetBit (r, i + 1))
+   *
+   *  @param    row           Index of the car.
+   *  @param    from          First alert index to check.
+   *  @return                 Index of the first set flag at or after the
+   *                          given one, or -1 if there are no more.
+   *
+   *************************************************************************
+   */
+
+  public int nextSetBit (
+    int                       row,
+    int                       from
+  )
+  {
+    int                       start = row * rowWords ;
+    int                       word_no ;
+    long                      word ;
+
+    checkIndex (row, 0, rowCnt, columnCnt + 1) ;
+
+    if (from >= columnCnt)
+    {
+      return (-1) ;
+    }
+
+    word_no = from >>> WORD_SHIFT ;
+    word    = flags [start + word_no] & (-1L << (from & WORD_MASK)) ;
+
+    while (true)
+    {
+      if (word != 0)
+      {
+        return ((word_no << WORD_SHIFT) + Long.numberOfTrailingZeros (word)) ;
+      }
+
+      if (++ word_no >= rowWords)
+      {
+        return (-1) ;
+      }
+
+      word = flags [start + word_no] ;
+    }
+  } //  END public int nextSetBit
+
+
+  /*************************************************************************
+   *
+   *  Estimate the memory used by the matrix.
+   *
+   *  @return                 Estimated number of heap bytes used.
+   *
+   *************************************************************************
+   */
+
+  public int footprint ()
+  {
+    return (32 + 16 + flags.length * 8) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the serialized size of the matrix.
+   *
+   *  @return                 Number of bytes written by writeTo.
+   *
+   *************************************************************************
+   */
+
+  public int serializedSize ()
+  {
+    return (8 + flags.length * 8) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Serialize the matrix.
+   *  Write the row and column counts followed by the packed flag words.
+   *
+   *  @param    buffer        Buffer to write the matrix into.
+   *
+   *************************************************************************
+   */
+
+  public void writeTo (
+    ByteBuffer                buffer
+  )
+  {
+    buffer.putInt (rowCnt) ;
+    buffer.putInt (columnCnt) ;
+
+    for (int i = 0 ; i < flags.length ; i ++)
+    {
+      buffer.putLong (flags [i]) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Deserialize a matrix.
+   *  Read a matrix written by writeTo.
+   *
+   *  @param    buffer        Buffer to read the matrix from.
+   *  @return                 Matrix read.
+   *
+   *************************************************************************
+   */
+
+  public static CarAlertMatrix readFrom (
+    ByteBuffer                buffer
+  )
+  {
+    int                       row_cnt ;
+    int                       column_cnt ;
+    long                  []  flag_words ;
+
+    row_cnt     = buffer.getInt () ;
+    column_cnt  = buffer.getInt () ;
+
+    if (row_cnt < 0 || column_cnt < 0)
+    {
+      throw new IllegalArgumentException ("Bad car alert matrix size") ;
+    }
+
+    flag_words  = new long [row_cnt *
+                            ((column_cnt + WORD_MASK) >>> WORD_SHIFT)] ;
+
+    for (int i = 0 ; i < flag_words.length ; i ++)
+    {
+      flag_words [i] = buffer.getLong () ;
+    }
+
+    return (new CarAlertMatrix (row_cnt, column_cnt, flag_words)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Format the data as a string.
+   *  Each row is a run of "+" (received) and "-" (not received) flags.
+   *  Rows are separated by spaces.
+   *
+   *  @return           Matrix contents formatted as a text string.
+   *
+   *************************************************************************
+   */
+
+  public String toString ()
+  {
+    StringBuilder     result = new StringBuilder () ;
+
+    for (int row = 0 ; row < rowCnt ; row ++)
+    {
+      if (row > 0)
+      {
+        result.append (" ") ;
+      }
+
+      for (int column = 0 ; column < columnCnt ; column ++)
+      {
+        result.append ((get (row, column)) ? "+" : "-") ;
+      }
+    }
+
+    return (result.toString ()) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Check that a flag index is inside the matrix.
+   *
+   *  @param    row           Row index to check.
+   *  @param    column        Column index to check.
+   *  @param    row_cnt       Number of rows.
+   *  @param    column_cnt    Number of columns.
+   *
+   *************************************************************************
+   */
+
+  private static void checkIndex (
+    int                       row,
+    int                       column,
+    int                       row_cnt,
+    int                       column_cnt
+  )
+  {
+    if (row < 0 || row >= row_cnt || column < 0 || column >= column_cnt)
+    {
+      throw new IndexOutOfBoundsException (
+                      String.format ("Car alert %d,%d", row, column)) ;
+    }
+  }
+
+} //  END public class CarAlertMatrix
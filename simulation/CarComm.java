@@ -40,6 +40,12 @@ public class CarComm
   final double                rx_clarity_range ;
   final double                rx_clarity_offset ;
 
+  //  Encoded bytes of the messages sent, by message type.  A message
+  //  counts once however many cars receive it.
+
+  public final MessageCodec.Counts
+                              sentBytes = new MessageCodec.Counts () ;
+
 
   /*************************************************************************
    *
@@ -121,6 +127,8 @@ public class CarComm
     tx_clarity = tx_clarity_range * simulation.randomGen.nextDouble () +
                  tx_clarity_offset ;
 
+    sentBytes.add (message.msgType, MessageCodec.sizeOf (message)) ;
+
     //  Get all the cars from the simulator's car list and send them the
     //  message.
 
@@ -140,17 +148,11 @@ public class CarComm
       rx_clarity = rx_clarity_range * simulation.randomGen.nextDouble () +
                    rx_clarity_offset ;
 
-      //  Send the message to the car.
+      //  Send the message to the car.  Cars whose routes have ended
+      //  have already been removed from the car list.
 
-      try
-      {
-        cur_car.receiveCarMessage (lat, lon, tx_clarity, rx_clarity,
-                                   message) ;
-
-      } catch (RouteExpiredException e)
-      {
-        //  Car has timed out.  This is handled elsewhere.
-      }
+      cur_car.receiveCarMessage (lat, lon, tx_clarity, rx_clarity,
+                                 message) ;
     }
   } //  END public void sendMessage
 
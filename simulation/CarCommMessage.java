@@ -23,16 +23,16 @@ public class CarCommMessage implements RoadReportInfo
 {
 
   //  Message Contents.
-  //  A Message ID is made up of the car sending the message shifted by
-  //  6 bits left bitwise or'ed with that car's 6 bit message sequence
-  //  number.  Each car maintains its own message sequence number which
-  //  is incremented with each message sent and reset to zero when it
-  //  reaches 64.
+  //  A Message ID is a 64 bit value made up of the car sending the
+  //  message shifted by 32 bits left bitwise or'ed with that car's 32 bit
+  //  message sequence number.  Each car maintains its own message
+  //  sequence number which is incremented with each message sent.
 
-  public final int            msgId  ;    //  ID of the message by car.
+  public final long           msgId  ;    //  ID of the message by car.
   public final double         longitude ; //  Longitude of the car.
   public final double         latitude ;  //  Latitude of the car.
   public final double         speed ;     //  Speed of the car.
+  public final double         bearing ;   //  Direction of the car.
 
   public final byte           msgType ;   //  Type of message this is.
   public final double         msgTime ;   //  Time (sec) message created.
@@ -40,9 +40,9 @@ public class CarCommMessage implements RoadReportInfo
 
   //  Alerts that are being reported as received or table sent.
 
-  public final int        []  msgAlertTbl ;   //  Table of message IDs.
+  public final long       []  msgAlertTbl ;   //  Table of message IDs.
   public final double     []  timeAlertTbl ;  //  Table of message times.
-  public final boolean  [][]  carAlertTbl ;   //  Table of flags indicating
+  public final CarAlertMatrix carAlertTbl ;   //  Table of flags indicating
                                               //  which alerts each car has
                                               //  seen.
 
@@ -57,6 +57,8 @@ public class CarCommMessage implements RoadReportInfo
    *  @param    lon           Longitude of the car in degrees east.
    *  @param    lat           Latitude of the car in degrees north.
    *  @param    spd           Speed of the object in kph.
+   *  @param    brg           Compass direction of the car's movement in
+   *                          degrees clockwise of north.
    *  @param    msg_type      Type of message this is.
    *  @param    time          Time in seconds message was created at.
    *  @param    car_tbl       Table of car IDs for some messages, null
@@ -67,8 +69,8 @@ public class CarCommMessage implements RoadReportInfo
    *                            alerts being ack'ed, null otherwise.
    *  @param    car_alert_tbl Table of flags of which alerts in the message
    *                          alert table have been seen by each car.
-   *                          First index is the index of the car in the car
-   *                          table.  Second is the index of the alert in
+   *                          Rows are the index of the car in the car
+   *                          table.  Columns are the index of the alert in
    *                          the alert table.
    *
    *************************************************************************
@@ -76,22 +78,25 @@ public class CarCommMessage implements RoadReportInfo
 
   public CarCommMessage (
     int                       car_id,
-    int                       msg_seq,
+    long                      msg_seq,
     double                    lon,
     double                    lat,
     double                    spd,
+    double                    brg,
     byte                      msg_type,
     double                    time,
     int                   []  car_tbl,
-    int                   []  msg_alert_tbl,
+    long                  []  msg_alert_tbl,
     double                []  time_alert_tbl,
-    boolean             [][]  car_alert_tbl
+    CarAlertMatrix            car_alert_tbl
   )
   {
-    msgId         = (car_id << MSG_SEQ_BITS) | (msg_seq & MSG_SEQ_MASK) ;
+    msgId         = ((long) car_id << MSG_SEQ_BITS) |
+                    (msg_seq & MSG_SEQ_MASK) ;
     longitude     = lon ;
     latitude      = lat ;
     speed         = spd ;
+    bearing       = brg ;
 
     msgType       = msg_type ;
     msgTime       = time ;
@@ -102,6 +107,45 @@ public class CarCommMessage implements RoadReportInfo
   }
 
 
+  /*************************************************************************
+   *
+   *  Estimate the memory used by the message.
+   *  Estimate the heap bytes used by the message and its tables.
+   *
+   *  @return           Estimated number of bytes used.
+   *
+   *************************************************************************
+   */
+
+  public int footprint ()
+  {
+    int               result = 80 ;
+
+    if (carIdTbl != null)
+    {
+      result += 16 + 4 * carIdTbl.length ;
+    }
+
+    if (msgAlertTbl != null)
+    {
+      result += 16 + 8 * msgAlertTbl.length ;
+    }
+
+    if (timeAlertTbl != null)
+    {
+      result += 16 + 8 * timeAlertTbl.length ;
+    }
+
+    if (carAlertTbl != null)
+    {
+      result += carAlertTbl.footprint () ;
+    }
+
+    return (result) ;
+
+  } //  END public int footprint ()
+
+
   /*************************************************************************
    *
    *  Format the data as a string.
@@ -116,8 +160,6 @@ public class CarCommMessage implements RoadReportInfo
   {
     int               i ;
     StringBuilder     result = new StringBuilder () ;
-    boolean       []  car_alerts ;
-    int               alert_no ;
 
     //  Add the basic message information.
 
@@ -192,20 +234,7 @@ public class CarCommMessage implements RoadReportInfo
 
     if (carAlertTbl != null)
     {
-      for (i = 0 ; i < carAlertTbl.length ; i ++)
-      {
-        if (i > 0)
-        {
-          result.append (" ") ;
-        }
-
-        car_alerts = carAlertTbl [i] ;
-
-        for (alert_no = 0 ; alert_no < car_alerts.length ; alert_no ++)
-        {
-          result.append ((car_alerts [alert_no]) ? "+" : "-") ;
-        }
-      }
+      result.append (carAlertTbl.toString ()) ;
     }
 
     result.append ("]>") ;
@@ -0,0 +1,192 @@
+/***************************************************************************
+ *
+ *  Car lookup load generator.
+ *  Measures finding cars by ID as the number of cars grows.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.io.* ;
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Car Lookup Load Generator.
+ *  Fills a simulation's car table and car ID map with cars, then finds
+ *  random cars by ID in the map, and by scanning the car table as
+ *  CellComm.sendMessageToCar did before the map was kept.  It also sends
+ *  messages to retired car IDs through CellComm.sendMessageToCar, which
+ *  fails after the map lookup.  The time per lookup or send of each is
+ *  printed for each number of cars.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CarLookupLoad implements RoadReportInfo
+{
+  //  Lookups made in the map and sends to retired cars, and the table
+  //  entries scanned in all, for each number of cars.
+
+  private static final int    MAP_LOOKUPS     = 1000000 ;
+  private static final long   SCAN_ENTRIES    = 200000000L ;
+
+  //  Seed of the random numbers the car IDs are chosen with.
+
+  private static final long   RANDOM_SEED     = 0xABCDEF987653L ;
+
+
+  /*************************************************************************
+   *
+   *  Start the car lookup load generator program.
+   *
+   *  @param      args    Optional numbers of cars.  1000, 10000 and
+   *                      100000 cars by default.
+   *
+   *************************************************************************
+   */
+
+  public static void main (
+    String              []  args
+  )
+  {
+    int                 []  car_counts = { 1000, 10000, 100000 } ;
+
+    if (args.length > 0)
+    {
+      car_counts = new int [args.length] ;
+
+      for (int i = 0 ; i < args.length ; i ++)
+      {
+        car_counts [i] = Integer.parseInt (args [i]) ;
+      }
+    }
+
+    //  Run once untimed so the code is compiled before it is measured.
+
+    runCars (car_counts [0], false) ;
+
+    for (int i = 0 ; i < car_counts.length ; i ++)
+    {
+      runCars (car_counts [i], true) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Look cars up in a simulation with the given number of cars.
+   *
+   *  @param    car_cnt       Number of cars.
+   *  @param    print         True to print the times taken.
+   *
+   *************************************************************************
+   */
+
+  private static void runCars (
+    int                       car_cnt,
+    boolean                   print
+  )
+  {
+    RoadReport                sim       = RoadReport.create () ;
+    Random                    random    = new Random (RANDOM_SEED) ;
+    PrintStream               out       = System.out ;
+    Route                     route ;
+    Car                       new_car ;
+    CellCommMessage           message ;
+    int                       scan_cnt ;
+    int                       car_id ;
+    long                      start ;
+    long                      map_nanos ;
+    long                      scan_nanos ;
+    long                      send_nanos ;
+    long                      found     = 0 ;
+
+    //  Add the cars.  Cars report their creation, which is not wanted.
+
+    route = new Route (-100.0, 40.0, 90.0, ROUTE_SPEED_MAX, 3600.0) ;
+
+    System.setOut (new PrintStream (OutputStream.nullOutputStream ())) ;
+
+    for (int car_no = 0 ; car_no < car_cnt ; car_no ++)
+    {
+      new_car = new Car (sim, route) ;
+
+      sim.carTbl.addElement (new_car) ;
+      sim.carCnt ++ ;
+      sim.carIdMap.put (new_car.carId, new_car) ;
+    }
+
+    System.setOut (out) ;
+
+    //  Find cars in the map.
+
+    start = System.nanoTime () ;
+
+    for (int i = 0 ; i < MAP_LOOKUPS ; i ++)
+    {
+      if (sim.carIdMap.get (1 + random.nextInt (car_cnt)) != null)
+      {
+        found ++ ;
+      }
+    }
+
+    map_nanos = System.nanoTime () - start ;
+
+    //  Find cars by scanning the table.  Enough are found to scan about
+    //  the same number of entries whatever the number of cars.
+
+    scan_cnt = (int) Math.max (100, SCAN_ENTRIES * 2 / car_cnt / car_cnt) ;
+    start    = System.nanoTime () ;
+
+    for (int i = 0 ; i < scan_cnt ; i ++)
+    {
+      car_id = 1 + random.nextInt (car_cnt) ;
+
+      for (int car_no = 0 ; car_no < sim.carCnt ; car_no ++)
+      {
+        if (sim.carTbl.elementAt (car_no).carId == car_id)
+        {
+          found ++ ;
+          break ;
+        }
+      }
+    }
+
+    scan_nanos = System.nanoTime () - start ;
+
+    //  Send to retired cars.
+
+    message = new CellCommMessage (MT_ALERT_TBL_SENT, null, new double [0],
+                                   new double [0], new double [0],
+                                   null, null, new long [0], new byte [0],
+                                   null) ;
+    start   = System.nanoTime () ;
+
+    for (int i = 0 ; i < MAP_LOOKUPS ; i ++)
+    {
+      if (sim.cellComm.sendMessageToCar (car_cnt + 1 + i, message))
+      {
+        found ++ ;
+      }
+    }
+
+    send_nanos = System.nanoTime () - start ;
+
+    //  Nanoseconds per lookup or send.
+
+    if (print)
+    {
+      System.out.format ("CarLookupLoad: %d %d %.1f %.1f %.1f\n",
+                         car_cnt, found,
+                         (double) map_nanos  / MAP_LOOKUPS,
+                         (double) scan_nanos / scan_cnt,
+                         (double) send_nanos / MAP_LOOKUPS) ;
+    }
+  } //  END private static void runCars
+
+} // END public class CarLookupLoad
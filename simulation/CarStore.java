@@ -0,0 +1,397 @@
+/***************************************************************************
+ *
+ *  Server car store.
+ *  Column oriented table of the car locations known to the server.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Server car store.
+ *  Keeps each car's last reported location, the grid it is in and the
+ *  bounds of its local area in primitive arrays, one array per field and
+ *  one row per car.  Rows of removed cars are reused.  Locations are
+ *  stored a table at a time so the geometry for a whole location table
+ *  is done in one pass over the arrays.  A car's location can be moved
+ *  ahead of its last report along the reported bearing and speed.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+class CarStore implements RoadReportInfo
+{
+  //  Initial number of rows in the store.
+
+  private static final int    INITIAL_ROWS    = 64 ;
+
+  //  Car location columns.  The location is the last one reported
+  //  unless it has been dead reckoned ahead of it.
+
+  public int              []  carId ;
+  public double           []  longitude ;
+  public double           []  latitude ;
+  public double           []  speed ;
+  public double           []  bearing ;
+  public double           []  time ;
+
+  //  Dead reckoning columns.  The location last reported and the rates
+  //  it changes at.  (In degrees per second.)
+
+  public double           []  reportLon ;
+  public double           []  reportLat ;
+  public double           []  lonSpeed ;
+  public double           []  latSpeed ;
+
+  //  Grid columns.  The grid the car is in and the bounds of its local
+  //  area.  The bounds include one extra grid in each direction.
+
+  public int              []  gridX ;
+  public int              []  gridY ;
+  public int              []  gridId ;
+  public int              []  gridMinX ;
+  public int              []  gridMaxX ;
+  public int              []  gridMinY ;
+  public int              []  gridMaxY ;
+
+  //  Rows used so far and the rows that have been freed for reuse.
+
+  private int                 rowCnt ;
+  private int             []  freeRows ;
+  private int                 freeCnt ;
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create an empty car store.
+   *
+   *************************************************************************
+   */
+
+  public CarStore ()
+  {
+    allocate (INITIAL_ROWS) ;
+
+    freeRows  = new int [INITIAL_ROWS] ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the number of cars in the store.
+   *
+   *  @return                 Number of rows in use.
+   *
+   *************************************************************************
+   */
+
+  public int size ()
+  {
+    return (rowCnt - freeCnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add a car.
+   *  The car starts with no location and a report time of zero.
+   *
+   *  @param    car_id        ID of the car.
+   *  @return                 Row the car is stored in.
+   *
+   *************************************************************************
+   */
+
+  public int add (
+    int                       car_id
+  )
+  {
+    int                       row ;
+
+    if (freeCnt > 0)
+    {
+      row = freeRows [-- freeCnt] ;
+    }
+    else
+    {
+      if (rowCnt >= carId.length)
+      {
+        allocate (carId.length * 2) ;
+      }
+
+      row = rowCnt ++ ;
+    }
+
+    carId     [row] = car_id ;
+    longitude [row] = 0.0 ;
+    latitude  [row] = 0.0 ;
+    speed     [row] = 0.0 ;
+    bearing   [row] = 0.0 ;
+    time      [row] = 0.0 ;
+    reportLon [row] = 0.0 ;
+    reportLat [row] = 0.0 ;
+    lonSpeed  [row] = 0.0 ;
+    latSpeed  [row] = 0.0 ;
+    gridX     [row] = 0 ;
+    gridY     [row] = 0 ;
+    gridId    [row] = 0 ;
+    gridMinX  [row] = 0 ;
+    gridMaxX  [row] = 0 ;
+    gridMinY  [row] = 0 ;
+    gridMaxY  [row] = 0 ;
+
+    return (row) ;
+
+  } //  END public int add
+
+
+  /*************************************************************************
+   *
+   *  Remove a car.
+   *  The car's row is kept for reuse.
+   *
+   *  @param    row           Row the car is stored in.
+   *
+   *************************************************************************
+   */
+
+  public void remove (
+    int                       row
+  )
+  {
+    if (freeCnt >= freeRows.length)
+    {
+      freeRows = Arrays.copyOf (freeRows, freeRows.length * 2) ;
+    }
+
+    freeRows [freeCnt ++] = row ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Store a table of locations.
+   *  The location entries listed are stored in the rows listed.  An entry
+   *  older than the location already in its row is skipped.  The grid
+   *  and local area bounds are determined for each location stored.  A
+   *  location without a bearing does not move when dead reckoned.
+   *
+   *  @param    rows          Row to store each listed entry in.
+   *  @param    entries       Entries of the location table to store.
+   *  @param    entry_cnt     Number of entries listed.
+   *  @param    lon           Longitude column of the location table.
+   *  @param    lat           Latitude column of the location table.
+   *  @param    spd           Speed column of the location table.
+   *  @param    brg           Bearing column of the location table or
+   *                          null if it has none.
+   *  @param    tm            Time column of the location table.
+   *
+   *************************************************************************
+   */
+
+  public void setLocations (
+    int                   []  rows,
+    int                   []  entries,
+    int                       entry_cnt,
+    double                []  lon,
+    double                []  lat,
+    double                []  spd,
+    double                []  brg,
+    double                []  tm
+  )
+  {
+    int                       row ;
+    int                       entry ;
+
+    for (int i = 0 ; i < entry_cnt ; i ++)
+    {
+      row   = rows    [i] ;
+      entry = entries [i] ;
+
+      //  A car can be in a table more than once.  Only keep the latest.
+
+      if (time [row] > tm [entry])
+      {
+        continue ;
+      }
+
+      longitude [row] = lon [entry] ;
+      latitude  [row] = lat [entry] ;
+      speed     [row] = spd [entry] ;
+      time      [row] = tm  [entry] ;
+
+      reportLon [row] = longitude [row] ;
+      reportLat [row] = latitude  [row] ;
+
+      if (brg == null)
+      {
+        bearing   [row] = 0.0 ;
+        lonSpeed  [row] = 0.0 ;
+        latSpeed  [row] = 0.0 ;
+      }
+      else
+      {
+        bearing   [row] = brg [entry] ;
+        lonSpeed  [row] = Route.lonSpeed (latitude [row], bearing [row],
+                                          speed [row]) ;
+        latSpeed  [row] = Route.latSpeed (bearing [row], speed [row]) ;
+      }
+
+      setGrid (row) ;
+    }
+  } //  END public void setLocations
+
+
+  /*************************************************************************
+   *
+   *  Dead reckon a car's location.
+   *  The car is moved from its last reported location along its reported
+   *  bearing at its reported speed until the given time.
+   *
+   *  @param    row           Row the car is stored in.
+   *  @param    now           Time to move the car to.
+   *  @return                 True if the car's location changed.
+   *
+   *************************************************************************
+   */
+
+  public boolean deadReckon (
+    int                       row,
+    double                    now
+  )
+  {
+    double                    lon ;
+    double                    lat ;
+
+    if (now <= time [row] ||
+        (lonSpeed [row] == 0.0 && latSpeed [row] == 0.0))
+    {
+      return (false) ;
+    }
+
+    lon = reportLon [row] + lonSpeed [row] * (now - time [row]) ;
+    lat = reportLat [row] + latSpeed [row] * (now - time [row]) ;
+
+    if (lon == longitude [row] && lat == latitude [row])
+    {
+      return (false) ;
+    }
+
+    longitude [row] = lon ;
+    latitude  [row] = lat ;
+
+    setGrid (row) ;
+
+    return (true) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Determine the grid a car is in and its local area bounds.
+   *
+   *  @param    row           Row the car is stored in.
+   *
+   *************************************************************************
+   */
+
+  private void setGrid (
+    int                       row
+  )
+  {
+    double                    lon_adjust ;
+    double                    local_km ;
+    double                    x ;
+    double                    y ;
+
+    //  Determine the grid the car is in.
+
+    lon_adjust      = Math.cos (latitude [row] * Math.PI / 180.0) ;
+
+    x               = longitude [row] * LON2KM * lon_adjust ;
+    y               = latitude  [row] * LAT2KM ;
+
+    gridX     [row] = (int) (x / GRID_KM) ;
+    gridY     [row] = (int) (y / GRID_KM) ;
+    gridId    [row] = gridX [row] * GRID_ID_XMULT + gridY [row] ;
+
+    //  Determine the bounds of the local area for the car.  It includes
+    //  one extra grid in each direction to handle the cases where the
+    //  car is on one edge of a grid and an alert is just across the
+    //  line in another grid.
+
+    local_km        = SEPARATION_BASE + SEPARATION_TIME * speed [row] ;
+
+    gridMinX  [row] = (int) ((x - local_km) / GRID_KM) - 1 ;
+    gridMaxX  [row] = (int) ((x + local_km) / GRID_KM) + 1 ;
+    gridMinY  [row] = (int) ((y - local_km) / GRID_KM) - 1 ;
+    gridMaxY  [row] = (int) ((y + local_km) / GRID_KM) + 1 ;
+  } //  END private void setGrid
+
+
+  /*************************************************************************
+   *
+   *  Grow the store.
+   *  Allocate the columns with the given number of rows keeping the rows
+   *  already stored.
+   *
+   *  @param    row_max       Number of rows to allocate.
+   *
+   *************************************************************************
+   */
+
+  private void allocate (
+    int                       row_max
+  )
+  {
+    if (carId == null)
+    {
+      carId     = new int    [row_max] ;
+      longitude = new double [row_max] ;
+      latitude  = new double [row_max] ;
+      speed     = new double [row_max] ;
+      bearing   = new double [row_max] ;
+      time      = new double [row_max] ;
+      reportLon = new double [row_max] ;
+      reportLat = new double [row_max] ;
+      lonSpeed  = new double [row_max] ;
+      latSpeed  = new double [row_max] ;
+      gridX     = new int    [row_max] ;
+      gridY     = new int    [row_max] ;
+      gridId    = new int    [row_max] ;
+      gridMinX  = new int    [row_max] ;
+      gridMaxX  = new int    [row_max] ;
+      gridMinY  = new int    [row_max] ;
+      gridMaxY  = new int    [row_max] ;
+      return ;
+    }
+
+    carId     = Arrays.copyOf (carId,     row_max) ;
+    longitude = Arrays.copyOf (longitude, row_max) ;
+    latitude  = Arrays.copyOf (latitude,  row_max) ;
+    speed     = Arrays.copyOf (speed,     row_max) ;
+    bearing   = Arrays.copyOf (bearing,   row_max) ;
+    time      = Arrays.copyOf (time,      row_max) ;
+    reportLon = Arrays.copyOf (reportLon, row_max) ;
+    reportLat = Arrays.copyOf (reportLat, row_max) ;
+    lonSpeed  = Arrays.copyOf (lonSpeed,  row_max) ;
+    latSpeed  = Arrays.copyOf (latSpeed,  row_max) ;
+    gridX     = Arrays.copyOf (gridX,     row_max) ;
+    gridY     = Arrays.copyOf (gridY,     row_max) ;
+    gridId    = Arrays.copyOf (gridId,    row_max) ;
+    gridMinX  = Arrays.copyOf (gridMinX,  row_max) ;
+    gridMaxX  = Arrays.copyOf (gridMaxX,  row_max) ;
+    gridMinY  = Arrays.copyOf (gridMinY,  row_max) ;
+    gridMaxY  = Arrays.copyOf (gridMaxY,  row_max) ;
+
+  } //  END private void allocate
+
+} //  END class CarStore
@@ -8,6 +8,9 @@
  ***************************************************************************
  */
 
+import java.util.* ;
+import java.util.concurrent.* ;
+
 
 /***************************************************************************
  *
@@ -20,13 +23,71 @@
  ***************************************************************************
  */
 
-public class CellComm
+public class CellComm implements RoadReportInfo
 {
 
   //  Simulator using this object.
 
   final RoadReport            simulation ;
 
+  //  Number of messages sent to single cars and broadcast to grids.
+  //  A broadcast counts as one message however many cars receive it.
+
+  public int                  unicastCnt    = 0 ;
+  public int                  broadcastCnt  = 0 ;
+
+  //  Encoded bytes of the messages sent to the server and to cars, by
+  //  message type.  A broadcast counts once.
+
+  public final MessageCodec.Counts
+                              uplinkBytes   = new MessageCodec.Counts () ;
+  public final MessageCodec.Counts
+                              downlinkBytes = new MessageCodec.Counts () ;
+
+  //  Encoded bytes the location tables sent to the server would have
+  //  taken had each held every location its car knew.
+
+  public final MessageCodec.Counts
+                              locFullBytes  = new MessageCodec.Counts () ;
+
+  //  Cars by the grid they are in and the time the table was built at.
+
+  private IntMap<Vector<Car>> gridCars      = new IntMap<Vector<Car>> () ;
+  private double              gridCarsTime  = -1.0 ;
+
+  //  Messages to cars held for the simulation thread to deliver, used
+  //  when the server sends messages from other threads.  A held message
+  //  has either a car ID or a set of grid IDs.  Messages are passed on
+  //  immediately when there is no queue.
+
+  private class Downlink
+  {
+    public final int          carId ;
+    public final int      []  gridIds ;
+    public final CellCommMessage
+                              message ;
+
+    public Downlink (
+      int                   car_id,
+      int               []  grid_ids,
+      CellCommMessage       msg
+    )
+    {
+      carId   = car_id ;
+      gridIds = grid_ids ;
+      message = msg ;
+    }
+  }   //  END private class Downlink
+
+  private ConcurrentLinkedQueue<Downlink>
+                              downlink      = null ;
+
+  //  Network service messages to cars are sent through when the server
+  //  is run as one.  Messages are passed to the simulation's cars when
+  //  there is none.
+
+  private CellService         service       = null ;
+
 
   /*************************************************************************
    *
@@ -49,7 +110,7 @@ public class CellComm
   /*************************************************************************
    *
    *  Pass a message from a car to the server.
-   *  The message is passed directly to the server as if through a
+   *  The message is passed to the server's pipeline as if through a
    *  cellular network.
    *
    *  @param    message       Message being sent.
@@ -61,10 +122,119 @@ public class CellComm
     CellCommMessage           message
   )
   {
-    simulation.cellServer.receiveMessage (message) ;
+    uplinkBytes.add (message.msgType, MessageCodec.sizeOf (message)) ;
+
+    simulation.cellPipeline.receiveMessage (message) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Set the network service messages to cars are sent through.
+   *
+   *  @param    cell_service  Service to send messages through, null to
+   *                          pass them to the simulation's cars.
+   *
+   *************************************************************************
+   */
+
+  public void setService (
+    CellService               cell_service
+  )
+  {
+    service = cell_service ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Set whether messages to cars are held for the simulation thread.
+   *
+   *  @param    deferred      True if messages to cars are held until
+   *                          deliverMessages is called.  False to pass
+   *                          them on immediately.
+   *
+   *************************************************************************
+   */
+
+  public void setDeferred (
+    boolean                   deferred
+  )
+  {
+    if (! deferred)
+    {
+      deliverMessages () ;
+      downlink = null ;
+    }
+    else if (downlink == null)
+    {
+      downlink = new ConcurrentLinkedQueue<Downlink> () ;
+    }
   }
 
 
+  /*************************************************************************
+   *
+   *  Deliver the messages held for cars.
+   *  Called by the simulation thread only.
+   *
+   *************************************************************************
+   */
+
+  public void deliverMessages ()
+  {
+    Downlink                  cur_msg ;
+    Car                       cur_car ;
+
+    if (downlink == null)
+    {
+      return ;
+    }
+
+    while ((cur_msg = downlink.poll ()) != null)
+    {
+      if (cur_msg.gridIds != null)
+      {
+        if (service != null)
+        {
+          service.sendToGrids (cur_msg.gridIds, cur_msg.message) ;
+        }
+        else
+        {
+          broadcast (cur_msg.gridIds, cur_msg.message) ;
+        }
+
+        continue ;
+      }
+
+      if (service != null)
+      {
+        cur_car = null ;
+
+        if (service.sendToCar (cur_msg.carId, cur_msg.message))
+        {
+          continue ;
+        }
+      }
+      else
+      {
+        cur_car = simulation.carIdMap.get (cur_msg.carId) ;
+      }
+
+      //  Car has been retired or is not connected.
+
+      if (cur_car == null)
+      {
+        System.out.format ("CellToCarFail: %d %s\n",
+                           cur_msg.carId, cur_msg.message.toString ()) ;
+        continue ;
+      }
+
+      cur_car.receiveCellMessage (cur_msg.message) ;
+    }
+  } //  END public void deliverMessages
+
+
   /*************************************************************************
    *
    *  Pass a message to the given car.
@@ -72,8 +242,8 @@ public class CellComm
    *
    *  @param    car_id        ID of the car to send the message to.
    *  @param    message       Message being sent.
-   *  @return                 True if the message was delivered.  False
-   *                          otherwise (car no longer exists).
+   *  @return                 True if the message was delivered or held.
+   *                          False otherwise (car has been retired).
    *
    *************************************************************************
    */
@@ -85,32 +255,176 @@ public class CellComm
   {
     Car                       cur_car ;
 
-    //  Get all the cars from the simulator's car list and find the
-    //  desired car.
+    unicastCnt ++ ;
 
-    for (int i = 0 ; i < simulation.carCnt ; i ++)
+    downlinkBytes.add (message.msgType, MessageCodec.sizeOf (message)) ;
+
+    if (downlink != null)
     {
-      cur_car = simulation.carTbl.elementAt (i) ;
+      downlink.add (new Downlink (car_id, null, message)) ;
+      return (true) ;
+    }
+
+    if (service != null)
+    {
+      return (service.sendToCar (car_id, message)) ;
+    }
+
+    //  Find the desired car in the simulator's car ID map.
+
+    cur_car = simulation.carIdMap.get (car_id) ;
+
+    //  Car has been retired.
+
+    if (cur_car == null)
+    {
+      return (false) ;
+    }
+
+    cur_car.receiveCellMessage (message) ;
+
+    return (true) ;
+
+  } //  END public void sendMessageToCar
+
+
+  /*************************************************************************
+   *
+   *  Broadcast a message to all the cars in a set of grids.
+   *  The message is passed to every car currently in any of the grids as
+   *  a single cell broadcast.
+   *
+   *  @param    grid_ids      IDs of the grids to broadcast the message to.
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
+
+  public void sendMessageToGrids (
+    int                   []  grid_ids,
+    CellCommMessage           message
+  )
+  {
+    broadcastCnt ++ ;
+
+    downlinkBytes.add (message.msgType, MessageCodec.sizeOf (message)) ;
+
+    if (downlink != null)
+    {
+      downlink.add (new Downlink (0, grid_ids, message)) ;
+      return ;
+    }
+
+    if (service != null)
+    {
+      service.sendToGrids (grid_ids, message) ;
+      return ;
+    }
+
+    broadcast (grid_ids, message) ;
+
+  } //  END public void sendMessageToGrids
+
+
+  /*************************************************************************
+   *
+   *  Pass a message to all the cars in a set of grids.
+   *
+   *  @param    grid_ids      IDs of the grids to pass the message to.
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
 
-      if (cur_car.carId == car_id)
+  private void broadcast (
+    int                   []  grid_ids,
+    CellCommMessage           message
+  )
+  {
+    Car                       cur_car ;
+    Vector<Car>               grid_cars ;
+
+    findGridCars () ;
+
+    for (int i = 0 ; i < grid_ids.length ; i ++)
+    {
+      grid_cars = gridCars.get (grid_ids [i]) ;
+
+      if (grid_cars == null)
       {
-        try
-        {
-          cur_car.receiveCellMessage (message) ;
+        continue ;
+      }
+
+      for (int car_no = 0 ; car_no < grid_cars.size () ; car_no ++)
+      {
+        cur_car = grid_cars.elementAt (car_no) ;
 
-          return (true) ;
+        //  Skip cars retired since the table was built.
 
-        } catch (RouteExpiredException e)
+        if (simulation.carIdMap.get (cur_car.carId) != cur_car)
         {
-          //  Car has timed out.  This is handled elsewhere.
+          continue ;
         }
 
-        break ;
+        cur_car.receiveCellMessage (message) ;
       }
     }
+  } //  END private void broadcast
 
-    return (false) ;
 
-  } //  END public void sendMessageToCar
+  /*************************************************************************
+   *
+   *  Find the grid each car is in.
+   *  The table is only built again once the simulation time has changed,
+   *  since cars only move when the time does.
+   *
+   *************************************************************************
+   */
+
+  private void findGridCars ()
+  {
+    Car                       cur_car ;
+    Vector<Car>               grid_cars ;
+    double                    lon_adjust ;
+    int                       grid_x ;
+    int                       grid_y ;
+    int                       grid_id ;
+
+    if (gridCarsTime == simulation.getCurrentTime ())
+    {
+      return ;
+    }
+
+    gridCars.clear () ;
+    gridCarsTime = simulation.getCurrentTime () ;
+
+    for (int i = 0 ; i < simulation.carCnt ; i ++)
+    {
+      cur_car = simulation.carTbl.elementAt (i) ;
+
+      if (cur_car.location == null)
+      {
+        continue ;
+      }
+
+      lon_adjust  = Math.cos (cur_car.location.latitude * Math.PI / 180.0) ;
+
+      grid_x      = (int) (cur_car.location.longitude * LON2KM *
+                           lon_adjust / GRID_KM) ;
+      grid_y      = (int) (cur_car.location.latitude  * LAT2KM / GRID_KM) ;
+      grid_id     = grid_x * GRID_ID_XMULT + grid_y ;
+
+      grid_cars   = gridCars.get (grid_id) ;
+
+      if (grid_cars == null)
+      {
+        grid_cars = new Vector<Car> () ;
+
+        gridCars.put (grid_id, grid_cars) ;
+      }
+
+      grid_cars.addElement (cur_car) ;
+    }
+  } //  END private void findGridCars
 
 } //  END public class CellComm
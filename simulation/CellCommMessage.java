@@ -23,11 +23,10 @@ public class CellCommMessage implements RoadReportInfo
 {
 
   //  Message Contents.
-  //  A Message ID is made up of the car sending the message shifted by
-  //  6 bits left bitwise or'ed with that car's 6 bit message sequence
-  //  number.  Each car maintains its own message sequence number which
-  //  is incremented with each message sent and reset to zero when it
-  //  reaches 64.
+  //  A Message ID is a 64 bit value made up of the car sending the
+  //  message shifted by 32 bits left bitwise or'ed with that car's 32 bit
+  //  message sequence number.  Each car maintains its own message
+  //  sequence number which is incremented with each message sent.
 
   public final byte           msgType ;   //  Type of message that this is.
 
@@ -37,12 +36,13 @@ public class CellCommMessage implements RoadReportInfo
   public final double     []  longitude ; //  Longitude of the car.
   public final double     []  latitude ;  //  Latitude of the car.
   public final double     []  speed ;     //  Speed of the car.
+  public final double     []  bearing ;   //  Direction of the car.
 
   //  Alerts that are being reported as received or table sent.
 
-  public final int        []  msgAlertTbl ;   //  Table of message IDs.
+  public final long       []  msgAlertTbl ;   //  Table of message IDs.
   public final byte       []  msgAlertType ;  //  Table of alert types.
-  public final boolean  [][]  carAlertTbl ;   //  Table of flags indicating
+  public final CarAlertMatrix carAlertTbl ;   //  Table of flags indicating
                                               //  which alerts each car has
                                               //  seen.
 
@@ -58,15 +58,17 @@ public class CellCommMessage implements RoadReportInfo
    *  @param    lon           Longitude of the car in degrees east.
    *  @param    lat           Latitude of the car in degrees north.
    *  @param    spd           Speed of the object in kph.
+   *  @param    brg           Compass direction of the car's movement in
+   *                          degrees clockwise of north.
    *  @param    msg_alert_tbl Table of message IDs that carried the alerts
    *                          being reported, null otherwise.
    *  @param    msg_alert_tp  Table of alert types being reported, null
    *                          if not used.
    *  @param    car_alert_tbl Table of flags of which alerts in the message
    *                          alert table have been seen by each car.
-   *                          First index is the index of the car in the car
-   *                          id table.  Second is the index of the alert in
-   *                          the alert table.
+   *                          Rows are the index of the car in the car
+   *                          id table.  Columns are the index of the alert
+   *                          in the alert table.
    *
    *************************************************************************
    */
@@ -78,9 +80,10 @@ public class CellCommMessage implements RoadReportInfo
     double                []  lon,
     double                []  lat,
     double                []  spd,
-    int                   []  msg_alert_tbl,
+    double                []  brg,
+    long                  []  msg_alert_tbl,
     byte                  []  msg_alert_tp,
-    boolean             [][]  car_alert_tbl
+    CarAlertMatrix            car_alert_tbl
   )
   {
     msgType       = msg_type ;
@@ -89,6 +92,7 @@ public class CellCommMessage implements RoadReportInfo
     longitude     = lon ;
     latitude      = lat ;
     speed         = spd ;
+    bearing       = brg ;
 
     msgAlertTbl   = msg_alert_tbl ;
     msgAlertType  = msg_alert_tp ;
@@ -110,8 +114,6 @@ public class CellCommMessage implements RoadReportInfo
   {
     int               i ;
     StringBuilder     result = new StringBuilder () ;
-    boolean       []  car_alerts ;
-    int               alert_no ;
 
     //  Add the basic message information.
 
@@ -260,20 +262,7 @@ public class CellCommMessage implements RoadReportInfo
 
     if (carAlertTbl != null)
     {
-      for (i = 0 ; i < carAlertTbl.length ; i ++)
-      {
-        if (i > 0)
-        {
-          result.append (" ") ;
-        }
-
-        car_alerts = carAlertTbl [i] ;
-
-        for (alert_no = 0 ; alert_no < car_alerts.length ; alert_no ++)
-        {
-          result.append ((car_alerts [alert_no]) ? "+" : "-") ;
-        }
-      }
+      result.append (carAlertTbl.toString ()) ;
     }
 
     result.append ("]>") ;
@@ -0,0 +1,302 @@
+/***************************************************************************
+ *
+ *  Cellular server ingest load generator.
+ *  Measures the cell server's message ingest rate from several threads.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+import java.util.concurrent.atomic.* ;
+
+
+/***************************************************************************
+ *
+ *  Cellular Server Ingest Load Generator.
+ *  Passes the same set of location table and alert table messages to a
+ *  new cell server from one thread, then from more threads at a time, and
+ *  prints the number of messages received per second for each thread
+ *  count.  The threads take the messages in turn from the shared set, so
+ *  they contend for the server's locks as the cell service's connections
+ *  would.  Location tables report random cars at random places on the
+ *  map.  Alert tables report a few alerts from a fixed set as received
+ *  by a few random cars.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CellIngestLoad implements RoadReportInfo
+{
+  //  Simulation time the messages are received at and the oldest time in
+  //  them.
+
+  private static final double START_TIME      = 1000.0 ;
+  private static final double MESSAGE_AGE     = 60.0 ;
+
+  //  One message in this many is an alert table, with this many alerts
+  //  from the alert set and this many cars that have received them.
+
+  private static final int    ALERT_EVERY     = 10 ;
+  private static final int    ALERT_SET       = 200 ;
+  private static final int    ALERTS_PER_TBL  = 4 ;
+  private static final int    CARS_PER_ALERT  = 8 ;
+
+  //  Seed of the random numbers the messages are made from.
+
+  private static final long   RANDOM_SEED     = 0xABCDEF987653L ;
+
+
+  /*************************************************************************
+   *
+   *  Start the ingest load generator program.
+   *
+   *  @param      args    Optional number of cars, cars in each location
+   *                      table, number of messages and the largest thread
+   *                      count.  Thread counts double from one up to the
+   *                      largest.
+   *
+   *************************************************************************
+   */
+
+  public static void main (
+    String              []  args
+  )
+    throws InterruptedException
+  {
+    int                     car_cnt     = 10000 ;
+    int                     table_size  = 50 ;
+    int                     message_cnt = 20000 ;
+    int                     thread_max  = 8 ;
+    CellCommMessage     []  messages ;
+    double                  rate ;
+
+    if (args.length > 0)
+    {
+      car_cnt = Integer.parseInt (args [0]) ;
+    }
+
+    if (args.length > 1)
+    {
+      table_size = Integer.parseInt (args [1]) ;
+    }
+
+    if (args.length > 2)
+    {
+      message_cnt = Integer.parseInt (args [2]) ;
+    }
+
+    if (args.length > 3)
+    {
+      thread_max = Integer.parseInt (args [3]) ;
+    }
+
+    messages = createMessages (car_cnt, table_size, message_cnt) ;
+
+    //  Run once untimed so the code is compiled before it is measured.
+
+    runMessages (car_cnt, messages, 1) ;
+
+    for (int thread_cnt = 1 ; thread_cnt <= thread_max ; thread_cnt *= 2)
+    {
+      rate = runMessages (car_cnt, messages, thread_cnt) ;
+
+      System.out.format ("CellIngestLoad: %d %d %d %.0f\n",
+                         thread_cnt, car_cnt, messages.length, rate) ;
+    }
+
+    System.exit (0) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Create the messages passed to the server.
+   *  Message times increase through the set so that later locations of a
+   *  car replace earlier ones.
+   *
+   *  @param    car_cnt       Number of cars reported on.
+   *  @param    table_size    Cars in each location table.
+   *  @param    message_cnt   Number of messages.
+   *  @return                 Messages created.
+   *
+   *************************************************************************
+   */
+
+  private static CellCommMessage [] createMessages (
+    int                       car_cnt,
+    int                       table_size,
+    int                       message_cnt
+  )
+  {
+    Random                    random    = new Random (RANDOM_SEED) ;
+    CellCommMessage       []  messages  = new CellCommMessage [message_cnt] ;
+    double                    time_step = MESSAGE_AGE / message_cnt ;
+    double                    msg_time ;
+    int                   []  car_ids ;
+    double                []  times ;
+    double                []  lons ;
+    double                []  lats ;
+    double                []  speeds ;
+    double                []  bearings ;
+    long                  []  alert_ids ;
+    byte                  []  alert_types ;
+    CarAlertMatrix.Builder    car_alert_bld ;
+    int                       alert_no ;
+
+    for (int msg_no = 0 ; msg_no < message_cnt ; msg_no ++)
+    {
+      msg_time = START_TIME - MESSAGE_AGE + msg_no * time_step ;
+
+      if (msg_no % ALERT_EVERY == ALERT_EVERY - 1)
+      {
+        car_ids       = new int    [CARS_PER_ALERT] ;
+        times         = new double [ALERTS_PER_TBL] ;
+        lons          = new double [ALERTS_PER_TBL] ;
+        lats          = new double [ALERTS_PER_TBL] ;
+        alert_ids     = new long   [ALERTS_PER_TBL] ;
+        alert_types   = new byte   [ALERTS_PER_TBL] ;
+        car_alert_bld = new CarAlertMatrix.Builder (CARS_PER_ALERT,
+                                                    ALERTS_PER_TBL) ;
+
+        for (int car_no = 0 ; car_no < CARS_PER_ALERT ; car_no ++)
+        {
+          car_ids [car_no] = 1 + random.nextInt (car_cnt) ;
+        }
+
+        for (int i = 0 ; i < ALERTS_PER_TBL ; i ++)
+        {
+          alert_no        = random.nextInt (ALERT_SET) ;
+          alert_ids   [i] = ((long) (alert_no + 1) << MSG_SEQ_BITS) | 1 ;
+          alert_types [i] = (byte) (MT_ALERTS + alert_no % MT_ALERT_COUNT) ;
+          times       [i] = START_TIME - MESSAGE_AGE ;
+          lons        [i] = -100.0 + 0.11 * (alert_no % 20) / 20.0 ;
+          lats        [i] =   40.0 + 0.09 * (alert_no / 20) / 10.0 ;
+
+          for (int car_no = 0 ; car_no < CARS_PER_ALERT ; car_no ++)
+          {
+            car_alert_bld.set (car_no, i) ;
+          }
+        }
+
+        messages [msg_no] = new CellCommMessage (MT_ALERT_TBL_SENT, car_ids,
+                                                 times, lons, lats,
+                                                 null, null,
+                                                 alert_ids, alert_types,
+                                                 car_alert_bld.build ()) ;
+      }
+      else
+      {
+        car_ids  = new int    [table_size] ;
+        times    = new double [table_size] ;
+        lons     = new double [table_size] ;
+        lats     = new double [table_size] ;
+        speeds   = new double [table_size] ;
+        bearings = new double [table_size] ;
+
+        for (int car_no = 0 ; car_no < table_size ; car_no ++)
+        {
+          car_ids  [car_no] = 1 + random.nextInt (car_cnt) ;
+          times    [car_no] = msg_time ;
+          lons     [car_no] = -100.0 + 0.11 * random.nextDouble () ;
+          lats     [car_no] =   40.0 + 0.09 * random.nextDouble () ;
+          speeds   [car_no] = ROUTE_SPEED_MAX * random.nextDouble () ;
+          bearings [car_no] = 360.0 * random.nextDouble () ;
+        }
+
+        messages [msg_no] = new CellCommMessage (MT_LOC_TBL_SENT, car_ids,
+                                                 times, lons, lats,
+                                                 speeds, bearings,
+                                                 null, null, null) ;
+      }
+    }
+
+    return (messages) ;
+
+  } //  END private static CellCommMessage [] createMessages
+
+
+  /*************************************************************************
+   *
+   *  Pass the messages to a new cell server.
+   *  The server is first told of all the cars so that the messages only
+   *  update cars it knows.
+   *
+   *  @param    car_cnt       Number of cars reported on.
+   *  @param    messages      Messages to pass.
+   *  @param    thread_cnt    Number of threads passing them.
+   *  @return                 Messages received per second.
+   *
+   *************************************************************************
+   */
+
+  private static double runMessages (
+    int                       car_cnt,
+    final CellCommMessage []  messages,
+    int                       thread_cnt
+  )
+    throws InterruptedException
+  {
+    RoadReport                sim       = RoadReport.create () ;
+    final CellServer          server    = new CellServer (sim) ;
+    final AtomicInteger       next_msg  = new AtomicInteger () ;
+    Thread                []  threads   = new Thread [thread_cnt] ;
+    int                   []  car_ids   = new int    [car_cnt] ;
+    double                []  times     = new double [car_cnt] ;
+    double                []  lons      = new double [car_cnt] ;
+    double                []  lats      = new double [car_cnt] ;
+    double                []  zeros     = new double [car_cnt] ;
+    long                      start ;
+
+    sim.setCurrentTime (START_TIME) ;
+
+    for (int car_no = 0 ; car_no < car_cnt ; car_no ++)
+    {
+      car_ids [car_no] = car_no + 1 ;
+      times   [car_no] = START_TIME - MESSAGE_AGE - 1.0 ;
+      lons    [car_no] = -100.0 ;
+      lats    [car_no] =   40.0 ;
+    }
+
+    server.receiveMessage (new CellCommMessage (MT_LOC_TBL_SENT, car_ids,
+                                                times, lons, lats,
+                                                zeros, zeros,
+                                                null, null, null)) ;
+
+    for (int i = 0 ; i < thread_cnt ; i ++)
+    {
+      threads [i] = new Thread (new Runnable ()
+                    {
+                      public void run ()
+                      {
+                        int     msg_no ;
+
+                        while ((msg_no = next_msg.getAndIncrement ()) <
+                               messages.length)
+                        {
+                          server.receiveMessage (messages [msg_no]) ;
+                        }
+                      }
+                    }, "CellIngestLoad" + i) ;
+    }
+
+    start = System.nanoTime () ;
+
+    for (int i = 0 ; i < thread_cnt ; i ++)
+    {
+      threads [i].start () ;
+    }
+
+    for (int i = 0 ; i < thread_cnt ; i ++)
+    {
+      threads [i].join () ;
+    }
+
+    return (messages.length * 1.0e9 / (System.nanoTime () - start)) ;
+
+  } //  END private static double runMessages
+
+} // END public class CellIngestLoad
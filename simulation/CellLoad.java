@@ -0,0 +1,430 @@
+/***************************************************************************
+ *
+ *  Cellular service load generator.
+ *  Runs the simulation's cars against a network cell service.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.io.* ;
+import java.net.* ;
+import java.nio.* ;
+import java.nio.channels.* ;
+import java.util.* ;
+import java.util.concurrent.* ;
+
+
+/***************************************************************************
+ *
+ *  Cellular Load Generator.
+ *  Runs the road report simulation with its cell server replaced by a
+ *  connection to a CellService.  Messages from cars are sent to the
+ *  service, and each timer step sends the simulation time so the service
+ *  can resend alerts.  Messages the service sends to cars are held until
+ *  the simulation thread delivers them.  The time from sending a message
+ *  until the service acknowledges it is the ingest latency, and the time
+ *  from sending the simulation time until the service has resent the
+ *  alerts for it is the push latency.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CellLoad implements RoadReportInfo
+{
+  //  Inner class for a set of latency samples.  (In nanoseconds.)
+
+  public static class Latencies
+  {
+    private long          []  samples = new long [1024] ;
+    private int               count   = 0 ;
+
+    public synchronized void add (
+      long                  latency
+    )
+    {
+      if (count >= samples.length)
+      {
+        samples = Arrays.copyOf (samples, samples.length * 2) ;
+      }
+
+      samples [count ++] = latency ;
+    }
+
+    //  Sample count followed by the median, 99th percentile and maximum
+    //  in microseconds.
+
+    public synchronized String toString ()
+    {
+      long                []  sorted = Arrays.copyOf (samples, count) ;
+
+      if (count == 0)
+      {
+        return ("0") ;
+      }
+
+      Arrays.sort (sorted) ;
+
+      return (String.format ("%d %.1f %.1f %.1f", count,
+                             sorted [(count - 1) / 2]          / 1000.0,
+                             sorted [(int) ((count - 1) * 0.99)] / 1000.0,
+                             sorted [count - 1]                / 1000.0)) ;
+    }
+  }   //  END public static class Latencies
+
+  //  Longest time to wait for the service to answer outstanding frames
+  //  when the simulation ends.  (In milliseconds.)
+
+  private static final long   CLOSE_WAIT      = 10000 ;
+
+  //  Simulator using this object.
+
+  final RoadReport            simulation ;
+
+  //  Connection to the service and the thread reading from it.
+
+  private final SocketChannel channel ;
+  private final Thread        reader ;
+
+  //  Sequence number of the next frame sent and the time each frame
+  //  waiting for an answer was sent at.
+
+  private long                nextSeq         = 0 ;
+  private ConcurrentHashMap<Long,Long>
+                              pending         =
+                                  new ConcurrentHashMap<Long,Long> () ;
+
+  //  Latencies measured.
+
+  public final Latencies      ingestLatency   = new Latencies () ;
+  public final Latencies      pushLatency     = new Latencies () ;
+
+
+  /*************************************************************************
+   *
+   *  Start the load generator program.
+   *  Run the simulation's cars against a cell service.
+   *
+   *  @param      args    Optional host, port, time between new cars,
+   *                      time between new alerts (in simulated seconds)
+   *                      and time scale (simulated seconds per second,
+   *                      zero to run as fast as possible).
+   *
+   *************************************************************************
+   */
+
+  public static void main (
+    String              []  args
+  )
+    throws IOException
+  {
+    RoadReport              sim ;
+    CellLoad                load ;
+    String                  host = "localhost" ;
+    int                     port = CELL_SERVICE_PORT ;
+
+    sim = RoadReport.create () ;
+
+    if (args.length > 0)
+    {
+      host = args [0] ;
+    }
+
+    if (args.length > 1)
+    {
+      port = Integer.parseInt (args [1]) ;
+    }
+
+    if (args.length > 2)
+    {
+      sim.carInterval = Double.parseDouble (args [2]) ;
+    }
+
+    if (args.length > 3)
+    {
+      sim.alertInterval = Double.parseDouble (args [3]) ;
+    }
+
+    if (args.length > 4)
+    {
+      sim.timeScale = Double.parseDouble (args [4]) ;
+    }
+
+    load = new CellLoad (sim, host, port) ;
+
+    sim.cellPipeline = new CellPipeline (sim, load) ;
+
+    sim.run () ;
+
+    load.close () ;
+
+    System.out.format ("CellLoadIngest: %s\n", load.ingestLatency) ;
+    System.out.format ("CellLoadPush: %s\n",   load.pushLatency) ;
+    System.out.format ("CellDownlink: %d %d\n",
+                       sim.cellComm.unicastCnt,
+                       sim.cellComm.broadcastCnt) ;
+    System.out.format ("LinkBytesCar: %s\n",
+                       sim.carComm.sentBytes) ;
+    System.out.format ("LinkBytesUp: %s\n",
+                       sim.cellComm.uplinkBytes) ;
+    System.out.format ("LinkBytesDown: %s\n",
+                       sim.cellComm.downlinkBytes) ;
+    System.out.format ("LinkBytesLocFull: %s\n",
+                       sim.cellComm.locFullBytes) ;
+
+    System.exit (0) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Connect to the cell service and start reading from it.
+   *
+   *  @param    sim           Road report simulator whose cars are run.
+   *  @param    host          Host of the cell service.
+   *  @param    port          Port of the cell service.
+   *
+   *************************************************************************
+   */
+
+  public CellLoad (
+    RoadReport                sim,
+    String                    host,
+    int                       port
+  )
+    throws IOException
+  {
+    simulation  = sim ;
+    channel     = SocketChannel.open (new InetSocketAddress (host, port)) ;
+
+    channel.setOption (StandardSocketOptions.TCP_NODELAY, true) ;
+
+    simulation.cellComm.setDeferred (true) ;
+
+    reader = new Thread (new Runnable ()
+                         {
+                           public void run () { readFrames () ; }
+                         }, "CellLoadReader") ;
+
+    reader.setDaemon (true) ;
+    reader.start () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send a message to the cell service.
+   *
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
+
+  public void sendMessage (
+    CellCommMessage           message
+  )
+  {
+    ByteBuffer                frame ;
+
+    frame = CellService.newFrame (CellService.FRAME_MESSAGE,
+                                  8 + MessageCodec.sizeOf (message)) ;
+
+    frame.putLong (nextSeq) ;
+    MessageCodec.encode (message, frame) ;
+
+    send (frame) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send the simulation time to the cell service.
+   *  The service resends the alerts needed at that time.
+   *
+   *  @param    time          Current simulation time.
+   *
+   *************************************************************************
+   */
+
+  public void sendTick (
+    double                    time
+  )
+  {
+    ByteBuffer                frame ;
+
+    frame = CellService.newFrame (CellService.FRAME_TICK, 8 + 8) ;
+
+    frame.putLong   (nextSeq) ;
+    frame.putDouble (time) ;
+
+    send (frame) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Close the connection.
+   *  Wait for the service to answer all the frames sent first.
+   *
+   *************************************************************************
+   */
+
+  public void close ()
+  {
+    long                      give_up = System.currentTimeMillis () +
+                                        CLOSE_WAIT ;
+
+    try
+    {
+      while (! pending.isEmpty () && reader.isAlive () &&
+             System.currentTimeMillis () < give_up)
+      {
+        Thread.sleep (10) ;
+      }
+
+      channel.close () ;
+      reader.join () ;
+    }
+    catch (IOException | InterruptedException e)
+    {
+      System.out.format ("CellLoadError: %s\n", e.toString ()) ;
+    }
+
+    simulation.cellComm.deliverMessages () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send a frame to the service.
+   *  The frame's sequence number is the next one, and the time it is
+   *  sent is kept until it is answered.
+   *
+   *  @param    frame         Frame to send, positioned at its end.
+   *
+   *************************************************************************
+   */
+
+  private void send (
+    ByteBuffer                frame
+  )
+  {
+    frame.flip () ;
+
+    pending.put (nextSeq ++, System.nanoTime ()) ;
+
+    try
+    {
+      while (frame.hasRemaining ())
+      {
+        channel.write (frame) ;
+      }
+    }
+    catch (IOException e)
+    {
+      throw new UncheckedIOException (e) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Read frames from the service until the connection is closed.
+   *  Answers are timed and messages to cars are held for the simulation
+   *  thread.
+   *
+   *************************************************************************
+   */
+
+  private void readFrames ()
+  {
+    ByteBuffer                length = ByteBuffer.allocate (4) ;
+    ByteBuffer                frame ;
+    byte                      kind ;
+    Long                      sent ;
+    int                       car_id ;
+    int                   []  grid_ids ;
+
+    try
+    {
+      while (true)
+      {
+        length.clear () ;
+        readFully (length) ;
+
+        frame = ByteBuffer.allocate (length.getInt (0)) ;
+        readFully (frame) ;
+        frame.flip () ;
+
+        kind = frame.get () ;
+
+        if (kind == CellService.FRAME_ACK ||
+            kind == CellService.FRAME_TICK_DONE)
+        {
+          sent = pending.remove (frame.getLong ()) ;
+
+          if (sent != null)
+          {
+            ((kind == CellService.FRAME_ACK) ? ingestLatency : pushLatency).
+                                    add (System.nanoTime () - sent) ;
+          }
+        }
+        else if (kind == CellService.FRAME_PUSH_CAR)
+        {
+          car_id = frame.getInt () ;
+
+          simulation.cellComm.sendMessageToCar (car_id,
+                                  MessageCodec.decodeCell (frame)) ;
+        }
+        else if (kind == CellService.FRAME_PUSH_GRIDS)
+        {
+          grid_ids = new int [frame.getInt ()] ;
+
+          for (int i = 0 ; i < grid_ids.length ; i ++)
+          {
+            grid_ids [i] = frame.getInt () ;
+          }
+
+          simulation.cellComm.sendMessageToGrids (grid_ids,
+                                  MessageCodec.decodeCell (frame)) ;
+        }
+      } //  WHILE (true)
+    }
+    catch (IOException | RuntimeException e)
+    {
+      if (channel.isOpen ())
+      {
+        System.out.format ("CellLoadError: %s\n", e.toString ()) ;
+      }
+    }
+  }   //  END private void readFrames
+
+
+  /*************************************************************************
+   *
+   *  Fill a buffer from the connection.
+   *
+   *  @param    buffer        Buffer to fill.
+   *
+   *************************************************************************
+   */
+
+  private void readFully (
+    ByteBuffer                buffer
+  )
+    throws IOException
+  {
+    while (buffer.hasRemaining ())
+    {
+      if (channel.read (buffer) < 0)
+      {
+        throw new EOFException () ;
+      }
+    }
+  }
+
+} //  END public class CellLoad
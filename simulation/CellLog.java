@@ -0,0 +1,994 @@
+/***************************************************************************
+ *
+ *  Cell server log.
+ *  Write ahead log of the messages received by the cell server.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.io.* ;
+import java.nio.* ;
+import java.nio.channels.* ;
+import java.nio.file.* ;
+import java.util.* ;
+import java.util.concurrent.* ;
+import java.util.zip.* ;
+
+
+/***************************************************************************
+ *
+ *  Cell Server Log.
+ *  Keeps the messages received by the cell server, and the times it
+ *  resent alerts at, in a directory so the server's tables can be
+ *  rebuilt after a restart.  Records are queued by the server's threads
+ *  and written by the log's own thread in batches to memory mapped
+ *  segment files.  Each batch is forced to disk once, however many
+ *  records it holds.  Snapshots of the server's tables are written to
+ *  their own files from time to time, after which the segments written
+ *  before them are deleted.  Recovery loads the latest complete snapshot
+ *  and replays the segments written after it.
+ *
+ *  Every record is its length and CRC-32, neither counting themselves,
+ *  followed by its kind, time and contents.  A zero length ends a
+ *  segment.  A record that is cut short or fails its CRC ends the log.
+ *  A snapshot is a file of records ending with one that gives the first
+ *  segment written after it.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CellLog implements RoadReportInfo
+{
+  //  Record kinds.  Messages and alert resends are logged.  The rest
+  //  are only found in snapshots.
+
+  static final byte           REC_MESSAGE       = 1 ;
+  static final byte           REC_TICK          = 2 ;
+  static final byte           REC_SHARD         = 3 ;
+  static final byte           REC_SHARD_MESSAGE = 4 ;
+  static final byte           REC_SHARD_CAR     = 5 ;
+  static final byte           REC_SNAPSHOT_END  = 6 ;
+
+  //  Bytes of a record before its kind and before its contents.
+
+  private static final int    RECORD_HEADER     = 8 ;
+  private static final int    RECORD_START      = RECORD_HEADER + 1 + 8 ;
+
+  //  Inner class for a record waiting to be written.  A record is a
+  //  message, an alert resend or a snapshot.
+
+  private static class Entry
+  {
+    public final byte             kind ;
+    public final double           time ;
+    public final CellCommMessage  message ;
+    public final Snapshot         snapshot ;
+
+    public Entry (
+      byte                  entry_kind,
+      double                entry_time,
+      CellCommMessage       msg,
+      Snapshot              snap
+    )
+    {
+      kind      = entry_kind ;
+      time      = entry_time ;
+      message   = msg ;
+      snapshot  = snap ;
+    }
+  }   //  END private static class Entry
+
+  //  Entry that stops the writer.
+
+  private static final Entry  END_ENTRY   = new Entry ((byte) 0, 0.0,
+                                                       null, null) ;
+
+  //  Inner class for a snapshot of the server's tables.  The tables of
+  //  each shard are added as records, which are written to the snapshot
+  //  file as they are.
+
+  public static class Snapshot
+  {
+    private final double      time ;
+    private ByteBuffer        buffer  = ByteBuffer.allocate (65536) ;
+
+    public Snapshot (
+      double                snap_time
+    )
+    {
+      time    = snap_time ;
+    }
+
+    //  Add a shard's counters.  The shard's tables follow.
+
+    public void addShard (
+      int                   shard_no,
+      int                   next_car_id,
+      double                resend_timer
+    )
+    {
+      int                   start = begin (REC_SHARD, 4 + 4 + 8) ;
+
+      buffer.putInt     (shard_no) ;
+      buffer.putInt     (next_car_id) ;
+      buffer.putDouble  (resend_timer) ;
+
+      endRecord (buffer, start) ;
+    }
+
+    //  Add a message that rebuilds part of a shard's tables.
+
+    public void addMessage (
+      int                   shard_no,
+      CellCommMessage       message
+    )
+    {
+      int                   start = begin (REC_SHARD_MESSAGE,
+                                           4 + MessageCodec.sizeOf (message)) ;
+
+      buffer.putInt (shard_no) ;
+      MessageCodec.encode (message, buffer) ;
+
+      endRecord (buffer, start) ;
+    }
+
+    //  Add a car's missed alerts.
+
+    public void addCar (
+      int                   shard_no,
+      CellServer.CarHandoff handoff
+    )
+    {
+      int                   start = begin (REC_SHARD_CAR,
+                                           4 + handoffSize (handoff)) ;
+
+      buffer.putInt (shard_no) ;
+      putHandoff (buffer, handoff) ;
+
+      endRecord (buffer, start) ;
+    }
+
+    //  Make room for a record and start it.
+
+    private int begin (
+      byte                  kind,
+      int                   size
+    )
+    {
+      ByteBuffer            grown ;
+
+      if (buffer.remaining () < RECORD_START + size)
+      {
+        grown = ByteBuffer.allocate (Math.max (buffer.capacity () * 2,
+                                               buffer.position () +
+                                               RECORD_START + size)) ;
+
+        buffer.flip () ;
+        grown.put (buffer) ;
+        buffer = grown ;
+      }
+
+      return (beginRecord (buffer, kind, time)) ;
+    }
+  }   //  END public static class Snapshot
+
+  //  Simulator using this object.
+
+  final RoadReport            simulation ;
+
+  //  Directory the log is kept in.
+
+  private final Path          directory ;
+
+  //  Segment being written and its number.
+
+  private int                 segmentNo   = 0 ;
+  private FileChannel         channel ;
+  private MappedByteBuffer    segment ;
+
+  //  Records waiting to be written and the thread writing them.
+
+  private final ArrayBlockingQueue<Entry>
+                              queue       =
+                                  new ArrayBlockingQueue<Entry> (
+                                                        CELL_LOG_QUEUE) ;
+  private Thread              writer ;
+
+  //  Set once the writer has failed.  Records are dropped from then on
+  //  rather than holding up the server.
+
+  private volatile boolean    failed      = false ;
+
+  //  Records, batches and bytes written and snapshots taken.  Only
+  //  changed by the writer.
+
+  public long                 recordCnt   = 0 ;
+  public long                 batchCnt    = 0 ;
+  public long                 byteCnt     = 0 ;
+  public long                 snapshotCnt = 0 ;
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Open a log directory, creating it if needed.  Nothing is written
+   *  until the log is started.
+   *
+   *  @param    sim           Road report simulator using this object.
+   *  @param    dir           Directory the log is kept in.
+   *  @throws   IOException   Thrown when the directory cannot be created.
+   *
+   *************************************************************************
+   */
+
+  public CellLog (
+    RoadReport                sim,
+    String                    dir
+  )
+    throws IOException
+  {
+    simulation  = sim ;
+    directory   = Paths.get (dir) ;
+
+    Files.createDirectories (directory) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Rebuild the server's tables from the log.
+   *  The latest complete snapshot is loaded, then the records of the
+   *  segments written after it are replayed.
+   *
+   *  @param    shards        Cell server shards to rebuild.
+   *  @throws   IOException   Thrown when the log cannot be read.
+   *
+   *************************************************************************
+   */
+
+  public void recover (
+    CellShards                shards
+  )
+    throws IOException
+  {
+    long                      start_nanos = System.nanoTime () ;
+    Vector<Integer>           snapshot_nos = listFiles ("snapshot-", ".snap") ;
+    Vector<Integer>           segment_nos  = listFiles ("segment-",  ".log") ;
+    ByteBuffer                snap ;
+    int                       snap_no      = -1 ;
+    int                       first_no     = 0 ;
+    long                      snap_cnt     = 0 ;
+    long                      replay_cnt   = 0 ;
+    ByteBuffer                buffer ;
+    ByteBuffer                body ;
+    byte                      kind ;
+    double                    time ;
+
+    //  Load the latest snapshot that was written completely.
+
+    for (int i = snapshot_nos.size () - 1 ; i >= 0 && snap_no < 0 ; i --)
+    {
+      snap = ByteBuffer.wrap (Files.readAllBytes (
+                      directory.resolve (snapshotName (snapshot_nos.get (i))))) ;
+
+      first_no = snapshotEnd (snap.duplicate ()) ;
+
+      if (first_no < 0)
+      {
+        continue ;
+      }
+
+      snap_no = snapshot_nos.get (i) ;
+
+      while ((body = readRecord (snap)) != null)
+      {
+        kind = body.get () ;
+        time = body.getDouble () ;
+
+        if (kind == REC_SHARD)
+        {
+          shards.restoreShard (body.getInt (), time, body.getInt (),
+                               body.getDouble ()) ;
+        }
+        else if (kind == REC_SHARD_MESSAGE)
+        {
+          shards.restoreMessage (body.getInt (), time,
+                                 MessageCodec.decodeCell (body)) ;
+        }
+        else if (kind == REC_SHARD_CAR)
+        {
+          shards.restoreCar (body.getInt (), time, getHandoff (body)) ;
+        }
+
+        snap_cnt ++ ;
+      }
+    }
+
+    //  Replay the segments written after it, stopping at the first
+    //  record that was not written completely.  That record is made the
+    //  end of its segment and later segments are dropped, so the records
+    //  written after the restart are replayed by the next recovery.
+
+    segmentNo = first_no - 1 ;
+
+    for (int i = 0 ; i < segment_nos.size () ; i ++)
+    {
+      segmentNo = Math.max (segmentNo, segment_nos.get (i)) ;
+    }
+
+    for (int i = 0 ; i < segment_nos.size () ; i ++)
+    {
+      if (segment_nos.get (i) < first_no)
+      {
+        continue ;
+      }
+
+      try (FileChannel read_channel =
+                FileChannel.open (directory.resolve (
+                                      segmentName (segment_nos.get (i))),
+                                  StandardOpenOption.READ))
+      {
+        buffer = read_channel.map (FileChannel.MapMode.READ_ONLY, 0,
+                                   read_channel.size ()) ;
+      }
+
+      while ((body = readRecord (buffer)) != null)
+      {
+        kind = body.get () ;
+        time = body.getDouble () ;
+
+        if (kind == REC_MESSAGE)
+        {
+          shards.replayMessage (time, MessageCodec.decodeCell (body)) ;
+        }
+        else if (kind == REC_TICK)
+        {
+          shards.replayTick (time) ;
+        }
+
+        replay_cnt ++ ;
+      }
+
+      if (buffer.remaining () >= RECORD_HEADER &&
+          buffer.getInt (buffer.position ()) != 0)
+      {
+        System.out.format ("CellLogTorn: %d %d\n",
+                           segment_nos.get (i), buffer.position ()) ;
+
+        truncate (segment_nos.get (i), buffer.position ()) ;
+
+        for (int j = i + 1 ; j < segment_nos.size () ; j ++)
+        {
+          Files.deleteIfExists (directory.resolve (
+                                      segmentName (segment_nos.get (j)))) ;
+        }
+
+        break ;
+      }
+    }
+
+    System.out.format ("CellLogRecovered: %d %d %d %.1f\n",
+                       snap_no, snap_cnt, replay_cnt,
+                       (System.nanoTime () - start_nanos) / 1.0e6) ;
+
+  } //  END public void recover
+
+
+  /*************************************************************************
+   *
+   *  End a segment at a record.
+   *
+   *  @param    seg_no        Segment to end.
+   *  @param    position      Position of the record to end it at.
+   *  @throws   IOException   Thrown when the segment cannot be written.
+   *
+   *************************************************************************
+   */
+
+  private void truncate (
+    int                       seg_no,
+    int                       position
+  )
+    throws IOException
+  {
+    ByteBuffer                end = ByteBuffer.allocate (4) ;
+
+    try (FileChannel write_channel =
+                FileChannel.open (directory.resolve (segmentName (seg_no)),
+                                  StandardOpenOption.WRITE))
+    {
+      while (end.hasRemaining ())
+      {
+        write_channel.write (end, position + end.position ()) ;
+      }
+
+      write_channel.force (true) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Start writing the log.
+   *  Records are written to a new segment after any already in the log.
+   *
+   *  @throws   IOException   Thrown when the segment cannot be created.
+   *
+   *************************************************************************
+   */
+
+  public void start ()
+    throws IOException
+  {
+    roll (0) ;
+
+    writer = new Thread (new Runnable ()
+                         {
+                           public void run () { runWriter () ; }
+                         }, "CellLogWriter") ;
+
+    writer.setDaemon (true) ;
+    writer.start () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Queue a record to be written.
+   *  Waits while the queue is full.
+   *
+   *  @param    kind          Kind of record.
+   *  @param    time          Time of the record.
+   *  @param    message       Message received.  Null for an alert resend.
+   *
+   *************************************************************************
+   */
+
+  public void append (
+    byte                      kind,
+    double                    time,
+    CellCommMessage           message
+  )
+  {
+    put (new Entry (kind, time, message, null)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Queue a snapshot to be written.
+   *  It is written after every record queued before it.
+   *
+   *  @param    snapshot      Snapshot of the server's tables.
+   *
+   *************************************************************************
+   */
+
+  public void appendSnapshot (
+    Snapshot                  snapshot
+  )
+  {
+    put (new Entry (REC_SNAPSHOT_END, snapshot.time, null, snapshot)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Close the log.
+   *  Wait for the queued records to be written.
+   *
+   *************************************************************************
+   */
+
+  public void close ()
+  {
+    if (writer == null)
+    {
+      return ;
+    }
+
+    put (END_ENTRY) ;
+
+    try
+    {
+      writer.join () ;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt () ;
+    }
+
+    writer = null ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Format the log's counts as a string.
+   *
+   *  @return                 Records, batches, bytes and snapshots
+   *                          written.
+   *
+   *************************************************************************
+   */
+
+  public String toString ()
+  {
+    return (String.format ("%d %d %d %d",
+                           recordCnt, batchCnt, byteCnt, snapshotCnt)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Write records until the log is closed.
+   *  All the records waiting, up to a batch, are written together and
+   *  forced to disk once.
+   *
+   *************************************************************************
+   */
+
+  private void runWriter ()
+  {
+    Vector<Entry>             batch = new Vector<Entry> () ;
+    Entry                     entry ;
+
+    try
+    {
+      while (true)
+      {
+        batch.removeAllElements () ;
+        batch.addElement (queue.take ()) ;
+        queue.drainTo (batch, CELL_LOG_BATCH - 1) ;
+
+        for (int i = 0 ; i < batch.size () ; i ++)
+        {
+          entry = batch.elementAt (i) ;
+
+          if (entry == END_ENTRY)
+          {
+            segment.force () ;
+            channel.close () ;
+            return ;
+          }
+          else if (entry.snapshot != null)
+          {
+            writeSnapshot (entry.snapshot) ;
+          }
+          else
+          {
+            writeRecord (entry) ;
+          }
+        }
+
+        segment.force () ;
+        batchCnt ++ ;
+      }
+    }
+    catch (IOException | InterruptedException e)
+    {
+      System.out.format ("CellLogError: %s\n", e.toString ()) ;
+
+      failed = true ;
+      queue.clear () ;
+    }
+  }   //  END private void runWriter
+
+
+  /*************************************************************************
+   *
+   *  Write a record to the segment.
+   *  A new segment is started when the record does not fit.
+   *
+   *  @param    entry         Record to write.
+   *  @throws   IOException   Thrown when a new segment cannot be created.
+   *
+   *************************************************************************
+   */
+
+  private void writeRecord (
+    Entry                     entry
+  )
+    throws IOException
+  {
+    int                       size  = RECORD_START ;
+    int                       start ;
+
+    if (entry.message != null)
+    {
+      size += MessageCodec.sizeOf (entry.message) ;
+    }
+
+    if (segment.remaining () < size)
+    {
+      roll (size) ;
+    }
+
+    start = beginRecord (segment, entry.kind, entry.time) ;
+
+    if (entry.message != null)
+    {
+      MessageCodec.encode (entry.message, segment) ;
+    }
+
+    endRecord (segment, start) ;
+
+    recordCnt ++ ;
+    byteCnt += size ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Write a snapshot.
+   *  A new segment is started, and the snapshot is written ending with
+   *  its number.  Once the snapshot is on disk the segments and
+   *  snapshots before it are deleted.
+   *
+   *  @param    snapshot      Snapshot to write.
+   *  @throws   IOException   Thrown when the snapshot cannot be written.
+   *
+   *************************************************************************
+   */
+
+  private void writeSnapshot (
+    Snapshot                  snapshot
+  )
+    throws IOException
+  {
+    Path                      temp = directory.resolve ("snapshot.tmp") ;
+    ByteBuffer                buffer ;
+    int                       start ;
+
+    roll (0) ;
+
+    start = snapshot.begin (REC_SNAPSHOT_END, 4) ;
+    snapshot.buffer.putInt (segmentNo) ;
+    endRecord (snapshot.buffer, start) ;
+
+    buffer = snapshot.buffer.duplicate () ;
+    buffer.flip () ;
+
+    try (FileChannel snap_channel =
+                FileChannel.open (temp, StandardOpenOption.CREATE,
+                                  StandardOpenOption.TRUNCATE_EXISTING,
+                                  StandardOpenOption.WRITE))
+    {
+      while (buffer.hasRemaining ())
+      {
+        snap_channel.write (buffer) ;
+      }
+
+      snap_channel.force (true) ;
+    }
+
+    Files.move (temp, directory.resolve (snapshotName (segmentNo)),
+                StandardCopyOption.ATOMIC_MOVE) ;
+
+    //  Drop what the snapshot replaces.
+
+    for (int seg_no : listFiles ("segment-", ".log"))
+    {
+      if (seg_no < segmentNo)
+      {
+        Files.deleteIfExists (directory.resolve (segmentName (seg_no))) ;
+      }
+    }
+
+    for (int snap_no : listFiles ("snapshot-", ".snap"))
+    {
+      if (snap_no < segmentNo)
+      {
+        Files.deleteIfExists (directory.resolve (snapshotName (snap_no))) ;
+      }
+    }
+
+    snapshotCnt ++ ;
+    byteCnt += snapshot.buffer.position () ;
+
+  } //  END private void writeSnapshot
+
+
+  /*************************************************************************
+   *
+   *  Start a new segment.
+   *
+   *  @param    min_size      Fewest bytes the segment must hold.
+   *  @throws   IOException   Thrown when the segment cannot be created.
+   *
+   *************************************************************************
+   */
+
+  private void roll (
+    int                       min_size
+  )
+    throws IOException
+  {
+    if (channel != null)
+    {
+      segment.force () ;
+      channel.close () ;
+    }
+
+    segmentNo ++ ;
+
+    channel = FileChannel.open (directory.resolve (segmentName (segmentNo)),
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.READ,
+                                StandardOpenOption.WRITE) ;
+    segment = channel.map (FileChannel.MapMode.READ_WRITE, 0,
+                           Math.max (CELL_LOG_SEGMENT, min_size)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Queue an entry for the writer.
+   *  Nothing is queued once the writer has failed.
+   *
+   *  @param    entry         Entry to queue.
+   *
+   *************************************************************************
+   */
+
+  private void put (
+    Entry                     entry
+  )
+  {
+    if (failed)
+    {
+      return ;
+    }
+
+    try
+    {
+      queue.put (entry) ;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  List the numbers of the log's files of one kind in increasing order.
+   *
+   *  @param    prefix        Start of the file names.
+   *  @param    suffix        End of the file names.
+   *  @return                 Numbers of the files.
+   *  @throws   IOException   Thrown when the directory cannot be read.
+   *
+   *************************************************************************
+   */
+
+  private Vector<Integer> listFiles (
+    String                    prefix,
+    String                    suffix
+  )
+    throws IOException
+  {
+    Vector<Integer>           result = new Vector<Integer> () ;
+    String                    name ;
+
+    try (DirectoryStream<Path> files = Files.newDirectoryStream (directory))
+    {
+      for (Path file : files)
+      {
+        name = file.getFileName ().toString () ;
+
+        if (name.startsWith (prefix) && name.endsWith (suffix))
+        {
+          try
+          {
+            result.addElement (Integer.valueOf (
+                        name.substring (prefix.length (),
+                                        name.length () - suffix.length ()))) ;
+          }
+          catch (NumberFormatException e)
+          {
+            //  Not one of the log's files.
+          }
+        }
+      }
+    }
+
+    Collections.sort (result) ;
+
+    return (result) ;
+  }
+
+
+  private static String segmentName (
+    int                       seg_no
+  )
+  {
+    return (String.format ("segment-%08d.log", seg_no)) ;
+  }
+
+  private static String snapshotName (
+    int                       snap_no
+  )
+  {
+    return (String.format ("snapshot-%08d.snap", snap_no)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find the end of a snapshot.
+   *  The snapshot is complete if all its records are good and the last
+   *  of them ends it.
+   *
+   *  @param    buffer        Snapshot file contents.
+   *  @return                 First segment written after the snapshot, or
+   *                          -1 if it is not complete.
+   *
+   *************************************************************************
+   */
+
+  private static int snapshotEnd (
+    ByteBuffer                buffer
+  )
+  {
+    ByteBuffer                body ;
+    int                       result = -1 ;
+
+    while ((body = readRecord (buffer)) != null)
+    {
+      result = (body.get () == REC_SNAPSHOT_END)
+                    ? body.getInt (RECORD_START - RECORD_HEADER)
+                    : -1 ;
+    }
+
+    return (buffer.hasRemaining () ? -1 : result) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Records.
+   *  A record is started by leaving room for its length and CRC and
+   *  putting its kind and time, and ended once its contents have been
+   *  put by filling in its length and CRC.
+   *
+   *************************************************************************
+   */
+
+  private static int beginRecord (
+    ByteBuffer                buffer,
+    byte                      kind,
+    double                    time
+  )
+  {
+    int                       start = buffer.position () ;
+
+    buffer.position (start + RECORD_HEADER) ;
+    buffer.put       (kind) ;
+    buffer.putDouble (time) ;
+
+    return (start) ;
+  }
+
+  private static void endRecord (
+    ByteBuffer                buffer,
+    int                       start
+  )
+  {
+    int                       length = buffer.position () - start -
+                                       RECORD_HEADER ;
+    CRC32                     crc    = new CRC32 () ;
+
+    crc.update (buffer.duplicate ().position (start + RECORD_HEADER).
+                                    limit    (buffer.position ())) ;
+
+    buffer.putInt (start,     length) ;
+    buffer.putInt (start + 4, (int) crc.getValue ()) ;
+  }
+
+  //  Read the next record.  Returns its kind, time and contents, or null
+  //  at the end of the records.
+
+  private static ByteBuffer readRecord (
+    ByteBuffer                buffer
+  )
+  {
+    int                       length ;
+    int                       crc_value ;
+    ByteBuffer                body ;
+    CRC32                     crc = new CRC32 () ;
+
+    if (buffer.remaining () < RECORD_HEADER)
+    {
+      return (null) ;
+    }
+
+    length    = buffer.getInt (buffer.position ()) ;
+    crc_value = buffer.getInt (buffer.position () + 4) ;
+
+    if (length < RECORD_START - RECORD_HEADER ||
+        length > buffer.remaining () - RECORD_HEADER)
+    {
+      return (null) ;
+    }
+
+    body = buffer.slice (buffer.position () + RECORD_HEADER, length) ;
+
+    crc.update (body.duplicate ()) ;
+
+    if ((int) crc.getValue () != crc_value)
+    {
+      return (null) ;
+    }
+
+    buffer.position (buffer.position () + RECORD_HEADER + length) ;
+
+    return (body) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Car handoffs.
+   *  The car ID, whether it is tracked and the count of alerts, followed
+   *  by each alert's message ID, time and missed count.
+   *
+   *************************************************************************
+   */
+
+  private static int handoffSize (
+    CellServer.CarHandoff     handoff
+  )
+  {
+    return (4 + 1 + 4 + handoff.missedCnts.length * (8 + 8 + 1)) ;
+  }
+
+  private static void putHandoff (
+    ByteBuffer                buffer,
+    CellServer.CarHandoff     handoff
+  )
+  {
+    buffer.putInt (handoff.carId) ;
+    buffer.put    ((byte) (handoff.tracked ? 1 : 0)) ;
+    buffer.putInt (handoff.missedCnts.length) ;
+
+    for (int i = 0 ; i < handoff.missedCnts.length ; i ++)
+    {
+      buffer.putLong    (handoff.alertMsgIds [i]) ;
+      buffer.putDouble  (handoff.alertTimes  [i]) ;
+      buffer.put        (handoff.missedCnts  [i]) ;
+    }
+  }
+
+  private static CellServer.CarHandoff getHandoff (
+    ByteBuffer                buffer
+  )
+  {
+    int                       car_id  = buffer.getInt () ;
+    boolean                   tracked = (buffer.get () != 0) ;
+    int                       length  = buffer.getInt () ;
+    CellServer.CarHandoff     result ;
+
+    if (length < 0 || length > buffer.remaining () / (8 + 8 + 1))
+    {
+      throw new IllegalArgumentException ("Bad car handoff length") ;
+    }
+
+    result = new CellServer.CarHandoff (car_id, tracked, length) ;
+
+    for (int i = 0 ; i < length ; i ++)
+    {
+      result.alertMsgIds [i] = buffer.getLong () ;
+      result.alertTimes  [i] = buffer.getDouble () ;
+      result.missedCnts  [i] = buffer.get () ;
+    }
+
+    return (result) ;
+  }
+
+} //  END public class CellLog
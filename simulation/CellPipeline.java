@@ -0,0 +1,624 @@
+/***************************************************************************
+ *
+ *  Staged cellular server pipeline.
+ *  Runs the cell server's work on its own threads.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+import java.util.concurrent.* ;
+
+
+/***************************************************************************
+ *
+ *  Cellular Server Pipeline.
+ *  Receives messages from cars through the cellular network and passes
+ *  them through a series of stages to the cell server shards.  The
+ *  ingest stage takes the messages as cars send them and drops location
+ *  reports that newer reports of the same cars have made stale, the
+ *  index stage applies the location and alert updates to the server,
+ *  and the push stage resends the alerts cars are missing.  Each stage
+ *  runs on its own thread and is fed by a bounded queue.  A car sending
+ *  a message waits while the ingest queue is full, and the ingest stage
+ *  waits while the index queue is full.  A resend is skipped when one is
+ *  already waiting.  Messages the server sends to cars are held until
+ *  the simulation thread delivers them.  When the pipeline is not staged
+ *  all calls are passed straight through on the caller's thread.  When
+ *  the server runs as a network service, a load generator's pipeline
+ *  passes all calls to its connection to the service instead.  Only one
+ *  such object is used in the simulation.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CellPipeline implements RoadReportInfo
+{
+  //  Inner class for work passed between the stages.  Resend requests
+  //  have no message.
+
+  private static class Job
+  {
+    public final CellCommMessage  message ;
+    public final long             queuedNanos ;
+
+    public Job (
+      CellCommMessage       msg,
+      long                  queued_nanos
+    )
+    {
+      message     = msg ;
+      queuedNanos = queued_nanos ;
+    }
+  }   //  END private static class Job
+
+  //  Job passed through the stages when the pipeline is closed.
+
+  private static final Job    END_JOB = new Job (null, 0) ;
+
+  //  Inner class for a stage's queue and its counts.  Latency is the
+  //  time from a job being queued for the stage until the stage has
+  //  finished with it.
+
+  public static class Stage
+  {
+    public final String       name ;
+    final ArrayBlockingQueue<Job>
+                              queue ;
+
+    //  Jobs handled, location reports or resends dropped, times a job
+    //  had to wait for room in the queue, and the deepest the queue has
+    //  been.
+
+    public long               handledCnt    = 0 ;
+    public long               shedCnt       = 0 ;
+    public long               waitCnt       = 0 ;
+    public int                depthMax      = 0 ;
+
+    //  Total and longest latencies.  (In nanoseconds.)
+
+    public long               latencyNanos  = 0 ;
+    public long               latencyMax    = 0 ;
+
+    public Stage (
+      String                stage_name,
+      int                   queue_size
+    )
+    {
+      name  = stage_name ;
+      queue = new ArrayBlockingQueue<Job> (Math.max (queue_size, 1)) ;
+    }
+
+    //  Number of jobs waiting for the stage.
+
+    public int depth ()
+    {
+      return (queue.size ()) ;
+    }
+
+    //  Queue a job, waiting for room if the queue is full.
+
+    void put (
+      Job                   job
+    )
+      throws InterruptedException
+    {
+      if (! queue.offer (job))
+      {
+        synchronized (this)
+        {
+          waitCnt ++ ;
+        }
+
+        queue.put (job) ;
+      }
+
+      synchronized (this)
+      {
+        depthMax = Math.max (depthMax, queue.size ()) ;
+      }
+    }
+
+    //  Record a job the stage has finished with.
+
+    synchronized void handled (
+      Job                   job
+    )
+    {
+      long                  latency = System.nanoTime () - job.queuedNanos ;
+
+      handledCnt ++ ;
+      latencyNanos += latency ;
+      latencyMax    = Math.max (latencyMax, latency) ;
+    }
+
+    public synchronized String toString ()
+    {
+      return (String.format ("%s %d %d %d %d %d %.1f %.1f",
+                             name, handledCnt, shedCnt, waitCnt,
+                             depth (), depthMax,
+                             (handledCnt == 0)
+                                ? 0.0
+                                : latencyNanos / 1000.0 / handledCnt,
+                             latencyMax / 1000.0)) ;
+    }
+  }   //  END public static class Stage
+
+  //  Simulator using this object.
+
+  final RoadReport            simulation ;
+
+  //  Cell server shards the messages are passed to.
+
+  private final CellShards    shards ;
+
+  //  Network service connection calls are passed to instead of the
+  //  shards.
+
+  private final CellLoad      remote ;
+
+  //  Stages and the threads running them.  There are none when the
+  //  pipeline is not staged.
+
+  public final Stage          ingestStage ;
+  public final Stage          indexStage ;
+  public final Stage          pushStage ;
+
+  private Thread          []  threads ;
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create the pipeline and start its stages.
+   *
+   *  @param    sim           Road report simulator using this object.
+   *  @param    cell_shards   Cell server shards to pass messages to.
+   *  @param    staged        True if the stages are run on their own
+   *                          threads.  False to pass all calls straight
+   *                          through.
+   *
+   *************************************************************************
+   */
+
+  public CellPipeline (
+    RoadReport                sim,
+    CellShards                cell_shards,
+    boolean                   staged
+  )
+  {
+    simulation  = sim ;
+    shards      = cell_shards ;
+    remote      = null ;
+
+    if (! staged)
+    {
+      ingestStage = null ;
+      indexStage  = null ;
+      pushStage   = null ;
+      return ;
+    }
+
+    ingestStage = new Stage ("ingest", CELL_INGEST_QUEUE) ;
+    indexStage  = new Stage ("index",  CELL_INDEX_QUEUE) ;
+    pushStage   = new Stage ("push",   CELL_PUSH_QUEUE) ;
+
+    simulation.cellComm.setDeferred (true) ;
+
+    threads = new Thread []
+    {
+      new Thread (new Runnable ()
+                  {
+                    public void run () { runIngest () ; }
+                  }, "CellIngest"),
+      new Thread (new Runnable ()
+                  {
+                    public void run () { runIndex () ; }
+                  }, "CellIndex"),
+      new Thread (new Runnable ()
+                  {
+                    public void run () { runPush () ; }
+                  }, "CellPush")
+    } ;
+
+    for (int i = 0 ; i < threads.length ; i ++)
+    {
+      threads [i].setDaemon (true) ;
+      threads [i].start () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create a pipeline that passes all calls to a cell service.
+   *
+   *  @param    sim           Road report simulator using this object.
+   *  @param    load          Load generator connection to the service.
+   *
+   *************************************************************************
+   */
+
+  public CellPipeline (
+    RoadReport                sim,
+    CellLoad                  load
+  )
+  {
+    simulation  = sim ;
+    shards      = null ;
+    remote      = load ;
+    ingestStage = null ;
+    indexStage  = null ;
+    pushStage   = null ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Receive a message from cellular communications.
+   *  Queue the message for the ingest stage, waiting while the queue is
+   *  full.
+   *
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
+
+  public void receiveMessage (
+    CellCommMessage           message
+  )
+  {
+    if (remote != null)
+    {
+      remote.sendMessage (message) ;
+      return ;
+    }
+
+    if (threads == null)
+    {
+      shards.receiveMessage (message) ;
+      return ;
+    }
+
+    try
+    {
+      ingestStage.put (new Job (message, System.nanoTime ())) ;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send Alerts
+   *  Deliver the messages the server has sent to cars since the last
+   *  call, then queue an alert resend for the push stage unless one is
+   *  already waiting.
+   *
+   *************************************************************************
+   */
+
+  public void sendAlerts ()
+  {
+    if (remote != null)
+    {
+      simulation.cellComm.deliverMessages () ;
+      remote.sendTick (simulation.getCurrentTime ()) ;
+      return ;
+    }
+
+    if (threads == null)
+    {
+      shards.sendAlerts () ;
+      return ;
+    }
+
+    simulation.cellComm.deliverMessages () ;
+
+    if (! pushStage.queue.offer (new Job (null, System.nanoTime ())))
+    {
+      synchronized (pushStage)
+      {
+        pushStage.shedCnt ++ ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Close the pipeline.
+   *  Wait for all the queued work to pass through the stages, then
+   *  deliver the last of the messages sent to cars.
+   *
+   *************************************************************************
+   */
+
+  public void close ()
+  {
+    if (threads == null)
+    {
+      return ;
+    }
+
+    try
+    {
+      ingestStage.queue.put (END_JOB) ;
+
+      for (int i = 0 ; i < threads.length ; i ++)
+      {
+        threads [i].join () ;
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt () ;
+    }
+
+    threads = null ;
+
+    simulation.cellComm.deliverMessages () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Print the counts of each stage.
+   *
+   *************************************************************************
+   */
+
+  public void printStages ()
+  {
+    if (ingestStage == null)
+    {
+      return ;
+    }
+
+    System.out.format ("CellStage: %s\n", ingestStage.toString ()) ;
+    System.out.format ("CellStage: %s\n", indexStage.toString ()) ;
+    System.out.format ("CellStage: %s\n", pushStage.toString ()) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Run the ingest stage.
+   *  Take all the messages waiting in the ingest queue at once and pass
+   *  them on to the index stage in the order they arrived.  Each run of
+   *  location tables with no other message between them is combined
+   *  into one table holding only the latest location of each car.
+   *
+   *************************************************************************
+   */
+
+  private void runIngest ()
+  {
+    Vector<Job>               batch = new Vector<Job> () ;
+    Job                       cur_job ;
+    int                       run_end ;
+    boolean                   ended = false ;
+
+    try
+    {
+      while (! ended)
+      {
+        batch.clear () ;
+        batch.addElement (ingestStage.queue.take ()) ;
+        ingestStage.queue.drainTo (batch) ;
+
+        for (int job_no = 0 ; job_no < batch.size () ; job_no = run_end)
+        {
+          cur_job = batch.elementAt (job_no) ;
+          run_end = job_no + 1 ;
+
+          if (cur_job == END_JOB)
+          {
+            ended = true ;
+            continue ;
+          }
+
+          if (cur_job.message.msgType != MT_LOC_TBL_SENT)
+          {
+            indexStage.put (cur_job) ;
+            ingestStage.handled (cur_job) ;
+            continue ;
+          }
+
+          //  Find the end of the run of location tables and pass them on
+          //  as one.
+
+          while (run_end < batch.size () &&
+                 batch.elementAt (run_end) != END_JOB &&
+                 batch.elementAt (run_end).message.msgType ==
+                                                      MT_LOC_TBL_SENT)
+          {
+            run_end ++ ;
+          }
+
+          indexStage.put (mergeLocations (batch, job_no, run_end)) ;
+
+          for (int run_no = job_no ; run_no < run_end ; run_no ++)
+          {
+            ingestStage.handled (batch.elementAt (run_no)) ;
+          }
+        }
+      }
+
+      indexStage.queue.put (END_JOB) ;
+    }
+    catch (InterruptedException e)
+    {
+      return ;
+    }
+  } //  END private void runIngest
+
+
+  /*************************************************************************
+   *
+   *  Merge a run of location tables.
+   *  Only the latest location of each car is kept.  A single table is
+   *  passed on unchanged.
+   *
+   *  @param    batch         Jobs taken from the ingest queue.
+   *  @param    first_no      First job of the run.
+   *  @param    end_no        Job after the last one of the run.  All jobs
+   *                          of the run are location tables.
+   *  @return                 Job with the merged location table.
+   *
+   *************************************************************************
+   */
+
+  private Job mergeLocations (
+    Vector<Job>               batch,
+    int                       first_no,
+    int                       end_no
+  )
+  {
+    Job                       first_job = batch.elementAt (first_no) ;
+    int                       entry_max = 0 ;
+    CellCommMessage           message ;
+    IntMap<Integer>           car_entry = new IntMap<Integer> () ;
+    Integer                   entry ;
+    int                       entry_cnt = 0 ;
+    int                   []  car_ids ;
+    double                []  times ;
+    double                []  lons ;
+    double                []  lats ;
+    double                []  speeds ;
+    double                []  bearings ;
+    int                       entry_no ;
+
+    if (end_no - first_no <= 1)
+    {
+      return (first_job) ;
+    }
+
+    for (int job_no = first_no ; job_no < end_no ; job_no ++)
+    {
+      entry_max += batch.elementAt (job_no).message.carIds.length ;
+    }
+
+    car_ids  = new int    [entry_max] ;
+    times    = new double [entry_max] ;
+    lons     = new double [entry_max] ;
+    lats     = new double [entry_max] ;
+    speeds   = new double [entry_max] ;
+    bearings = new double [entry_max] ;
+
+    for (int job_no = first_no ; job_no < end_no ; job_no ++)
+    {
+      message = batch.elementAt (job_no).message ;
+
+      for (int car_no = 0 ; car_no < message.carIds.length ; car_no ++)
+      {
+        entry = car_entry.get (message.carIds [car_no]) ;
+
+        if (entry == null)
+        {
+          entry_no = entry_cnt ++ ;
+
+          car_entry.put (message.carIds [car_no], entry_no) ;
+        }
+        else if (times [entry.intValue ()] < message.msgTime [car_no])
+        {
+          entry_no = entry.intValue () ;
+        }
+        else
+        {
+          continue ;
+        }
+
+        car_ids  [entry_no] = message.carIds    [car_no] ;
+        times    [entry_no] = message.msgTime   [car_no] ;
+        lons     [entry_no] = message.longitude [car_no] ;
+        lats     [entry_no] = message.latitude  [car_no] ;
+        speeds   [entry_no] = message.speed     [car_no] ;
+        bearings [entry_no] = message.bearing   [car_no] ;
+      }
+    }
+
+    synchronized (ingestStage)
+    {
+      ingestStage.shedCnt += entry_max - entry_cnt ;
+    }
+
+    return (new Job (new CellCommMessage (MT_LOC_TBL_SENT,
+                                          Arrays.copyOf (car_ids, entry_cnt),
+                                          Arrays.copyOf (times,   entry_cnt),
+                                          Arrays.copyOf (lons,    entry_cnt),
+                                          Arrays.copyOf (lats,    entry_cnt),
+                                          Arrays.copyOf (speeds,  entry_cnt),
+                                          Arrays.copyOf (bearings,
+                                                         entry_cnt),
+                                          null, null, null),
+                     first_job.queuedNanos)) ;
+  } //  END private Job mergeLocations
+
+
+  /*************************************************************************
+   *
+   *  Run the index stage.
+   *  Pass each message on to the cell server shards.
+   *
+   *************************************************************************
+   */
+
+  private void runIndex ()
+  {
+    Job                       cur_job ;
+
+    try
+    {
+      while ((cur_job = indexStage.queue.take ()) != END_JOB)
+      {
+        shards.receiveMessage (cur_job.message) ;
+
+        indexStage.handled (cur_job) ;
+      }
+
+      pushStage.queue.put (END_JOB) ;
+    }
+    catch (InterruptedException e)
+    {
+      return ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Run the push stage.
+   *  Resend the alerts for each resend request.
+   *
+   *************************************************************************
+   */
+
+  private void runPush ()
+  {
+    Job                       cur_job ;
+
+    try
+    {
+      while ((cur_job = pushStage.queue.take ()) != END_JOB)
+      {
+        shards.sendAlerts () ;
+
+        pushStage.handled (cur_job) ;
+      }
+    }
+    catch (InterruptedException e)
+    {
+      return ;
+    }
+  }
+
+} //  END public class CellPipeline
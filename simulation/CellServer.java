@@ -9,7 +9,11 @@
  */
 
 import java.lang.* ;
+import java.lang.management.* ;
 import java.util.* ;
+import java.util.concurrent.* ;
+import java.util.concurrent.atomic.* ;
+import java.util.concurrent.locks.* ;
 
 
 /***************************************************************************
@@ -17,7 +21,7 @@ import java.util.* ;
  *  Cellular Communications Server.
  *  Receives messages originating from cars to the server through the
  *  cellular network and send other messages back.
- *  Only one such object is used in the simulation.
+ *  One such object is used for each shard of the map.
  *
  *  @author     Emery Newlon
  *
@@ -32,87 +36,130 @@ public class CellServer implements RoadReportInfo
   {
     public int              carId ;
     public Integer          carKey ;
-    public double           longitude ;
-    public double           latitude ;
-    public double           speed ;
-    public double           time ;
 
-    public int              gridX ;
-    public int              gridY ;
-    public Integer          gridId ;
+    //  Row of the car's location, grid and local area in the car store.
 
-    public int              gridMinX ;
-    public int              gridMaxX ;
-    public int              gridMinY ;
-    public int              gridMaxY ;
+    public int              row ;
 
     //  Number of times the alert has been missed being sent to this car.
     //  -1 = alert received, 0 = alert not wanted,
     //  >0 = times alert not sent.
-
-    public byte         []  missedAlertCnt ;
+    //  Only alerts with a count other than zero are kept.  Their alert
+    //  numbers are kept in increasing order along with their counts.
+    //  The car is tracked once it has reported the alerts it received.
+
+    public boolean          tracked ;
+    public int          []  missedAlertNos  = new int  [4] ;
+    public byte         []  missedAlertCnt  = new byte [4] ;
+    public int              missedEntryCnt ;
     public byte             missedMaxCnt ;
 
+    //  Number of alerts with a missed count above zero.
+
+    public int              missedPosCnt ;
+
+    //  Alerts the car needs to be sent (in increasing order) as of the
+    //  last check, the number of alerts in the alert table at that check,
+    //  and whether the car has moved since then.  Active cars are those
+    //  that need checking at the next alert resend.
+
+    public int          []  neededAlerts  = new int [4] ;
+    public int              neededCnt ;
+    public int              checkedCnt ;
+    public boolean          moved ;
+    public boolean          active ;
+
+    //  Number of alerts that had expired when expired alerts were last
+    //  dropped from the car's tables.
+
+    public int              prunedCnt ;
+
+    //  Report time the car was last queued for eviction with and whether
+    //  it has been evicted from the car table.
+
+    public double           queuedTime ;
+    public boolean          evicted ;
+
     public CarInfo (
       int                   car_id
     )
     {
       carId           = car_id ;
       carKey          = new Integer (carId) ;
+      row             = carStore.add (car_id) ;
     }
 
-    //  Update Location.
+    //  Return the missed count of an alert.
 
-    public void updateLocation (
-      double                lon,
-      double                lat,
-      double                spd,
-      double                tm
+    public byte getMissed (
+      int                   alert_no
     )
     {
-      double                lon_adjust ;
-      double                local_km ;
-      double                x ;
-      double                y ;
+      int                   entry_no ;
+
+      entry_no = Arrays.binarySearch (missedAlertNos, 0, missedEntryCnt,
+                                      alert_no) ;
+
+      return ((entry_no < 0) ? 0 : missedAlertCnt [entry_no]) ;
+    }
+
 
-      //  Make sure that the information is not older than the last
-      //  information collected.
+    //  Set the missed count of an alert.  Counts are never set back to
+    //  zero.
 
-      if (time > tm)
+    public void setMissed (
+      int                   alert_no,
+      byte                  count
+    )
+    {
+      int                   entry_no ;
+
+      entry_no = Arrays.binarySearch (missedAlertNos, 0, missedEntryCnt,
+                                      alert_no) ;
+
+      if (entry_no >= 0)
       {
+        missedAlertCnt [entry_no] = count ;
         return ;
       }
 
-      longitude     = lon ;
-      latitude      = lat ;
-      speed         = spd ;
-      time          = tm ;
+      entry_no = -(entry_no + 1) ;
 
-      //  Determine the grid the car is in.
-
-      lon_adjust    = Math.cos (latitude * Math.PI / 180.0) ;
+      if (missedEntryCnt >= missedAlertNos.length)
+      {
+        missedAlertNos = Arrays.copyOf (missedAlertNos,
+                                        missedAlertNos.length * 2) ;
+        missedAlertCnt = Arrays.copyOf (missedAlertCnt,
+                                        missedAlertCnt.length * 2) ;
+      }
 
-      x             = longitude * LON2KM * lon_adjust ;
-      y             = latitude  * LAT2KM ;
+      System.arraycopy (missedAlertNos, entry_no,
+                        missedAlertNos, entry_no + 1,
+                        missedEntryCnt - entry_no) ;
+      System.arraycopy (missedAlertCnt, entry_no,
+                        missedAlertCnt, entry_no + 1,
+                        missedEntryCnt - entry_no) ;
 
-      gridX         = (int) (x / GRID_KM) ;
-      gridY         = (int) (y / GRID_KM) ;
+      missedAlertNos [entry_no] = alert_no ;
+      missedAlertCnt [entry_no] = count ;
+      missedEntryCnt ++ ;
 
-      gridId        = new Integer (gridX * GRID_ID_XMULT + gridY) ;
+    } //  END public void setMissed (
 
-      //  Determine the bounds of the local area for the car.  It includes
-      //  one extra grid in each direction to handle the cases where the
-      //  car is on one edge of a grid and an alert is just across the
-      //  line in another grid.
 
-      local_km      = SEPARATION_BASE + SEPARATION_TIME * speed ;
+    //  Add an alert to the alerts needed.
 
-      gridMinX      = (int) ((x - local_km) / GRID_KM) - 1 ;
-      gridMaxX      = (int) ((x + local_km) / GRID_KM) + 1 ;
-      gridMinY      = (int) ((y - local_km) / GRID_KM) - 1 ;
-      gridMaxY      = (int) ((y + local_km) / GRID_KM) + 1 ;
+    public void addNeeded (
+      int                   alert_no
+    )
+    {
+      if (neededCnt >= neededAlerts.length)
+      {
+        neededAlerts = Arrays.copyOf (neededAlerts, neededAlerts.length * 2) ;
+      }
 
-    } //  END public void updateLocation (
+      neededAlerts [neededCnt ++] = alert_no ;
+    }
 
 
     //  Produce a readable string.
@@ -120,25 +167,36 @@ public class CellServer implements RoadReportInfo
     public String toString ()
     {
       int               i ;
+      byte              count ;
       StringBuilder     result = new StringBuilder () ;
 
       //  Add the basic message information.
 
       result.append (
             String.format ("<CarInfo %d %g %g %g %d<%d<%d %d<%d<%d %g ",
-                           carId, latitude, longitude, speed,
-                           gridMinY, gridY, gridMaxY,
-                           gridMinX, gridX, gridMaxX, time)) ;
+                           carId,
+                           carStore.latitude  [row],
+                           carStore.longitude [row],
+                           carStore.speed     [row],
+                           carStore.gridMinY  [row],
+                           carStore.gridY     [row],
+                           carStore.gridMaxY  [row],
+                           carStore.gridMinX  [row],
+                           carStore.gridX     [row],
+                           carStore.gridMaxX  [row],
+                           carStore.time      [row])) ;
 
       //  Append the alerts seen.
 
-      for (i = 0 ; i < missedAlertCnt.length ; i ++)
+      for (i = 0 ; i < alertCnt ; i ++)
       {
-        result.append ((missedAlertCnt [i] < 0)
+        count = getMissed (i) ;
+
+        result.append ((count < 0)
                        ? "+"
-                       : ((missedAlertCnt [i] == 0)
+                       : ((count == 0)
                           ? "-"
-                          : String.format ("%d", missedAlertCnt [i]))) ;
+                          : String.format ("%d", count))) ;
       }
 
       result.append (">") ;
@@ -148,23 +206,56 @@ public class CellServer implements RoadReportInfo
     } //  END public String toString ()
   }   //  END private class CarInfo
 
+  //  Car information handed from one server to another.  The alerts the
+  //  car has missed are identified by message ID and time rather than by
+  //  alert number, since each server numbers its alerts itself.
+
+  static class CarHandoff
+  {
+    public final int          carId ;
+    public final boolean      tracked ;
+    public final long     []  alertMsgIds ;
+    public final double   []  alertTimes ;
+    public final byte     []  missedCnts ;
+
+    public CarHandoff (
+      int                     car_id,
+      boolean                 car_tracked,
+      int                     alert_cnt
+    )
+    {
+      carId       = car_id ;
+      tracked     = car_tracked ;
+      alertMsgIds = new long   [alert_cnt] ;
+      alertTimes  = new double [alert_cnt] ;
+      missedCnts  = new byte   [alert_cnt] ;
+    }
+  }   //  END static class CarHandoff
+
   //  Inner class for alerts.
 
   private class Alert
   {
     public AlertInfo              alertInfo ;
     public AlertId                alertId ;
+    public int                    alertNo ;
+    public double                 expireTime ;
     public int                    gridX ;
     public int                    gridY ;
+    public int                    gridId ;
 
     public Alert (
-      AlertInfo             alert_info
+      AlertInfo             alert_info,
+      int                   alert_no
     )
     {
       double                lon_adjust ;
 
       alertInfo           = alert_info ;
       alertId             = new AlertId (alertInfo.msgId, alertInfo.time) ;
+      alertNo             = alert_no ;
+      expireTime          = alertInfo.time +
+                            alertLifetime (alertInfo.msgType) ;
 
        //  Determine the grid the alert is in.
 
@@ -173,6 +264,7 @@ public class CellServer implements RoadReportInfo
       gridX         = (int) (alertInfo.longitude * LON2KM *
                              lon_adjust / GRID_KM) ;
       gridY         = (int) (alertInfo.latitude  * LAT2KM / GRID_KM) ;
+      gridId        = gridX * GRID_ID_XMULT + gridY ;
     }
 
     //  Produce a readable string.
@@ -193,13 +285,97 @@ public class CellServer implements RoadReportInfo
     }
   }   //  END private class Alerts
 
+  //  Inner class for the alerts in a grid.
+
+  private class GridAlerts
+  {
+    public int              gridX ;
+    public int              gridY ;
+    public int          []  alertNos  = new int [4] ;
+    public int              alertNoCnt = 0 ;
+
+    public GridAlerts (
+      int                   grid_x,
+      int                   grid_y
+    )
+    {
+      gridX         = grid_x ;
+      gridY         = grid_y ;
+    }
+
+    public void add (
+      int                   alert_no
+    )
+    {
+      if (alertNoCnt >= alertNos.length)
+      {
+        alertNos = Arrays.copyOf (alertNos, alertNos.length * 2) ;
+      }
+
+      alertNos [alertNoCnt ++] = alert_no ;
+    }
+
+    public void remove (
+      int                   alert_no
+    )
+    {
+      for (int i = 0 ; i < alertNoCnt ; i ++)
+      {
+        if (alertNos [i] == alert_no)
+        {
+          System.arraycopy (alertNos, i + 1, alertNos, i,
+                            alertNoCnt - i - 1) ;
+          alertNoCnt -- ;
+          break ;
+        }
+      }
+    }
+  }   //  END private class GridAlerts
+
+  //  Inner class for the active cars in a grid, along with the longitude
+  //  distance adjustment at each car.
+
+  private class GridCars
+  {
+    public int              gridX ;
+    public int              gridY ;
+    public CarInfo      []  cars        = new CarInfo [4] ;
+    public double       []  lonAdjusts  = new double  [4] ;
+    public int              carCnt      = 0 ;
+
+    public GridCars (
+      int                   grid_x,
+      int                   grid_y
+    )
+    {
+      gridX         = grid_x ;
+      gridY         = grid_y ;
+    }
+
+    public void add (
+      CarInfo               car,
+      double                lon_adjust
+    )
+    {
+      if (carCnt >= cars.length)
+      {
+        cars       = Arrays.copyOf (cars,       cars.length * 2) ;
+        lonAdjusts = Arrays.copyOf (lonAdjusts, lonAdjusts.length * 2) ;
+      }
+
+      cars       [carCnt] = car ;
+      lonAdjusts [carCnt] = lon_adjust ;
+      carCnt ++ ;
+    }
+  }   //  END private class GridCars
+
   //  Inner class for grids missing alerts.
 
   private class MissingAlerts
   {
     public CarInfo          sendToCar ;
     public byte             maxMissedCnt ;
-    public boolean      []  gridAlertNos ;
+    public int              firstCarNo ;
     public HashMap<AlertId,Alert>
                             missedAlerts = new HashMap<AlertId,Alert> () ;
     public HashMap<Integer,CarInfo>
@@ -207,23 +383,182 @@ public class CellServer implements RoadReportInfo
 
     public MissingAlerts (
       CarInfo               car,
-      byte                  max_missed
+      byte                  max_missed,
+      int                   car_no
     )
     {
       sendToCar     = car ;
       maxMissedCnt  = max_missed ;
-      gridAlertNos  = new boolean [alertCnt] ;
+      firstCarNo    = car_no ;
     }
   }
 
   //  Alerts and Car Information tables.
+  //  Alerts are numbered in the order they are added and keep their
+  //  number until they expire.  Numbers are not reused, so a car's
+  //  tables never need renumbering.  The alert count is the number of
+  //  alert numbers used so far.  The alert index finds an alert's number.
+  //  The alert tree finds the numbers of the alerts in an area.
 
-  private Vector<Alert>       alertTbl  = new Vector<Alert> () ;
+  private IntMap<Alert>       alertTbl  = new IntMap<Alert> () ;
   private int                 alertCnt  = 0 ;
+  private AlertIndex          alertIdx  = new AlertIndex () ;
+  private AlertTree           alertTree = new AlertTree () ;
+
+  //  Alerts in the order they expire and the number that have expired.
+
+  private PriorityQueue<Alert>
+                              alertExpiry =
+                                  new PriorityQueue<Alert> (64, expireOrder) ;
+  private int                 expiredCnt  = 0 ;
+
+  //  Alerts by the grid they are in.  Grids without alerts are not in
+  //  the tables.
+
+  private IntMap<GridAlerts>  alertGridMap = new IntMap<GridAlerts> () ;
+  private Vector<GridAlerts>  alertGridTbl = new Vector<GridAlerts> () ;
+
+  //  Locks that allow messages to be received from several threads.
+  //  The table lock is held shared while cars are updated, from the time
+  //  the alerts they received are found, and held exclusively while cars
+  //  are added and during the alert resend.  A car is only updated while
+  //  holding the lock of its stripe, chosen by car ID.  Stripes are
+  //  always locked in increasing order.  The alert lock is held shared
+  //  while alerts are looked up and exclusively while they are added.
+  //  The table lock is always taken before the alert lock, and the alert
+  //  lock before any stripe.
+
+  private static final int    CAR_STRIPES   = 64 ;
+
+  private final ReentrantReadWriteLock
+                              tableLock     = new ReentrantReadWriteLock () ;
+  private final ReentrantReadWriteLock
+                              alertLock     = new ReentrantReadWriteLock () ;
+  private final ReentrantLock []
+                              carLocks      = new ReentrantLock [CAR_STRIPES] ;
+
+  //  Pool used to check the active cars in parallel during the alert
+  //  resend.  The resend is done by the calling thread alone if there
+  //  is no pool.
+
+  private ForkJoinPool        sweepPool ;
+
+  //  Cars that have reported recently, and the cars in the order their
+  //  information becomes stale.  Cars that have not reported for the
+  //  horizon (in seconds) are evicted.
+
+  private IntMap<CarInfo>     carTbl    = new IntMap<CarInfo> () ;
+  private CarStore            carStore  = new CarStore () ;
+  private PriorityQueue<CarInfo>
+                              carExpiry =
+                                  new PriorityQueue<CarInfo> (64, staleOrder) ;
+
+  public double               carInfoHorizon = CAR_INFO_HORIZON ;
+
+  //  Set while the server's messages are being replayed from its log.
+  //  Nothing is sent to cars, and broadcasts are taken to reach every
+  //  car in their grid as they do when held for delivery.
+
+  public boolean              replaying      = false ;
+
+  //  Location tables and entries ingested and the CPU time spent on
+  //  them.  (In nanoseconds, on whichever threads ingested them.)
+
+  private static final ThreadMXBean
+                              cpuClock      = ManagementFactory.
+                                                  getThreadMXBean () ;
+
+  public final AtomicLong     locTableCnt   = new AtomicLong () ;
+  public final AtomicLong     locEntryCnt   = new AtomicLong () ;
+  public final AtomicLong     locIngestCpu  = new AtomicLong () ;
+
+  //  Cars that have missed alert information and those that need their
+  //  alerts checked at the next resend.  The number of alerts in the
+  //  alert table at the last resend.
+
+  private Vector<CarInfo>     trackedCars   = new Vector<CarInfo> () ;
+  private Vector<CarInfo>     activeCars    = new Vector<CarInfo> () ;
+  private int                 sweptAlertCnt = 0 ;
+
+  //  Active cars by the grid they are in, rebuilt by each alert sweep.
+  //  Grids without active cars are not in the tables.
 
-  private HashMap<Integer,CarInfo>
-                              carTbl =
-                                  new HashMap<Integer,CarInfo> () ;
+  private IntMap<GridCars>    carGridMap    = new IntMap<GridCars> () ;
+  private Vector<GridCars>    carGridTbl    = new Vector<GridCars> () ;
+
+  //  Alert resends that checked the active cars car by car, and those
+  //  that checked them alert by alert.
+
+  public long                 carSweepCnt   = 0 ;
+  public long                 alertSweepCnt = 0 ;
+
+  //  Order of alerts in the alert expiry queue.  Alerts that expire at
+  //  the same time are expired in the order they were added.
+
+  private static final Comparator<Alert>
+                              expireOrder = new Comparator<Alert> ()
+  {
+    public int compare (
+      Alert                     alert_a,
+      Alert                     alert_b
+    )
+    {
+      if (alert_a.expireTime != alert_b.expireTime)
+      {
+        return (Double.compare (alert_a.expireTime, alert_b.expireTime)) ;
+      }
+
+      return (Integer.compare (alert_a.alertNo, alert_b.alertNo)) ;
+    }
+  } ;
+
+  //  Order of cars in the car expiry queue.
+
+  private static final Comparator<CarInfo>
+                              staleOrder = new Comparator<CarInfo> ()
+  {
+    public int compare (
+      CarInfo                   car_a,
+      CarInfo                   car_b
+    )
+    {
+      if (car_a.queuedTime != car_b.queuedTime)
+      {
+        return (Double.compare (car_a.queuedTime, car_b.queuedTime)) ;
+      }
+
+      return (Integer.compare (car_a.carId, car_b.carId)) ;
+    }
+  } ;
+
+  //  Order grids with missing alerts were first found in.
+
+  private static final Comparator<MissingAlerts>
+                              firstCarOrder =
+                                  new Comparator<MissingAlerts> ()
+  {
+    public int compare (
+      MissingAlerts             grid_a,
+      MissingAlerts             grid_b
+    )
+    {
+      return (Integer.compare (grid_a.firstCarNo, grid_b.firstCarNo)) ;
+    }
+  } ;
+
+  //  Order of cars in the active cars table.
+
+  private static final Comparator<CarInfo>
+                              carIdOrder = new Comparator<CarInfo> ()
+  {
+    public int compare (
+      CarInfo                   car_a,
+      CarInfo                   car_b
+    )
+    {
+      return (Integer.compare (car_a.carId, car_b.carId)) ;
+    }
+  } ;
 
   //  Simulator using this object.
 
@@ -253,6 +588,11 @@ public class CellServer implements RoadReportInfo
   )
   {
     simulation            = sim ;
+
+    for (int i = 0 ; i < CAR_STRIPES ; i ++)
+    {
+      carLocks [i] = new ReentrantLock () ;
+    }
   }
 
 
@@ -273,6 +613,35 @@ public class CellServer implements RoadReportInfo
   }
 
 
+  /*************************************************************************
+   *
+   *  Set the number of threads used for the alert resend.
+   *  The cars needing alerts are found and grouped by grid in parallel
+   *  when more than one thread is used.  The alerts are always sent by
+   *  the simulation thread in the same order as a single threaded resend.
+   *
+   *  @param    thread_cnt    Number of threads.  One or less for none.
+   *
+   *************************************************************************
+   */
+
+  public void setSweepThreads (
+    int                       thread_cnt
+  )
+  {
+    if (sweepPool != null)
+    {
+      sweepPool.shutdown () ;
+      sweepPool = null ;
+    }
+
+    if (thread_cnt > 1)
+    {
+      sweepPool = new ForkJoinPool (thread_cnt) ;
+    }
+  }
+
+
   /*************************************************************************
    *
    *  Receive a message from cellular communications.
@@ -290,15 +659,12 @@ public class CellServer implements RoadReportInfo
     double                    cur_time ;
     int                       car_no ;
     int                       alert_no ;
-    int                       alert_dst ;
+    int                       max_dst ;
     int                       car_id ;
-    int                       alert_msgid ;
-    double                    alert_time ;
-    Integer                   key ;
     CarInfo                   car_info ;
-    Alert                     alert_info = null ;
+    ReentrantLock             car_lock ;
+    int                       alert_dst ;
     int                   []  alert_indecies ;
-    byte                  []  new_missed ;
 
     cur_time = simulation.getCurrentTime () ;
 
@@ -306,24 +672,13 @@ public class CellServer implements RoadReportInfo
 
     if (message.msgType == MT_LOC_TBL_SENT)
     {
-      for (car_no = 0 ; car_no < message.carIds.length ; car_no ++)
-      {
-        car_id  = message.carIds [car_no] ;
-        key     = new Integer (car_id) ;
-
-        car_info = carTbl.get (key) ;
+      long                    cpu_start = cpuTime () ;
 
-        if (car_info == null)
-        {
-          car_info = new CarInfo (car_id) ;
-          carTbl.put (key, car_info) ;
-        }
+      ingestLocations (message, cur_time) ;
 
-        car_info.updateLocation (message.longitude [car_no],
-                                 message.latitude  [car_no],
-                                 message.speed     [car_no],
-                                 message.msgTime   [car_no]) ;
-      }
+      locIngestCpu.addAndGet (cpuTime () - cpu_start) ;
+      locTableCnt.incrementAndGet () ;
+      locEntryCnt.addAndGet (message.carIds.length) ;
     }
 
     //  Update the alerts and the cars that have received them.
@@ -334,96 +689,104 @@ public class CellServer implements RoadReportInfo
       //  in the master table.
 
       alert_indecies = new int [message.msgAlertTbl.length] ;
+      max_dst        = -1 ;
 
-      //  Process all the alerts.
+      //  The table lock is held from when the alerts are found until the
+      //  cars have been updated, so the alerts cannot expire in between
+      //  and leave the cars with alerts no longer in the alert table.
 
-      for (alert_no = 0 ;
-              alert_no < message.msgAlertTbl.length ;
-           alert_no ++)
-      {
-        alert_msgid = message.msgAlertTbl [alert_no] ;
-        alert_time  = message.msgTime     [alert_no] ;
+      tableLock.readLock ().lock () ;
 
-        //  Find the alert in the table if it is there.  Add it if not.
+      try
+      {
+        //  Process all the alerts.
 
-        for (int i = 0 ; i < alertCnt ; i ++)
+        for (alert_no = 0 ;
+                alert_no < message.msgAlertTbl.length ;
+             alert_no ++)
         {
-          alert_info = alertTbl.elementAt (i) ;
+          alert_dst = findAlert (message, alert_no, cur_time) ;
 
-          if (alert_info.alertInfo.msgId == alert_msgid &&
-              alert_info.alertInfo.time  == alert_time)
+          alert_indecies [alert_no] = alert_dst ;
+
+          if (max_dst < alert_dst)
           {
-            alert_indecies [alert_no] = i ;
-            break ;
+            max_dst = alert_dst ;
           }
         }
 
-        if (alertCnt <= 0 ||
-            (alert_info.alertInfo.msgId != alert_msgid ||
-             alert_info.alertInfo.time  != alert_time))
+        //  Update the alerts delivered in each car entry.
+
+        for (car_no = 0 ; car_no < message.carIds.length ; car_no ++)
         {
-          alert_info = new Alert (
-                          new AlertInfo (alert_msgid,
-                                         message.msgAlertType [alert_no],
-                                         message.longitude    [alert_no],
-                                         message.latitude     [alert_no],
-                                         alert_time)) ;
-          alertTbl.add (alert_info) ;
-          alert_indecies [alert_no] = alertCnt ++ ;
-        }
-      }
+          car_id  = message.carIds [car_no] ;
 
-      //  Update the alerts delivered in each car entry.
+          car_info = carTbl.get (car_id) ;
 
-      for (car_no = 0 ; car_no < message.carIds.length ; car_no ++)
-      {
-        car_id  = message.carIds [car_no] ;
-        key     = new Integer (car_id) ;
+          if (car_info == null || max_dst < 0)
+          {
+            continue ;
+          }
 
-        car_info = carTbl.get (key) ;
+          car_lock = carLocks [car_id & (CAR_STRIPES - 1)] ;
 
-        if (car_info != null)
-        {
-          for (alert_no = 0 ;
-                  alert_no < message.msgAlertTbl.length ;
-               alert_no ++)
-          {
-            alert_dst = alert_indecies [alert_no] ;
+          car_lock.lock () ;
 
-            //  Create a new missed array if the data won't fit in the
-            //  current one.
+          try
+          {
+            //  Start tracking the car's missed alerts.
 
-            if (car_info.missedAlertCnt == null)
-            {
-              car_info.missedAlertCnt = new byte [alertCnt] ;
-            }
-            else if (alert_dst >= car_info.missedAlertCnt.length)
+            if (! car_info.tracked)
             {
-              new_missed = new byte [alertCnt] ;
-              System.arraycopy (car_info.missedAlertCnt, 0,
-                                new_missed, 0,
-                                car_info.missedAlertCnt.length) ;
-              car_info.missedAlertCnt = new_missed ;
+              car_info.tracked = true ;
+              car_info.moved   = true ;
+
+              trackedCars.addElement (car_info) ;
+              activateCar (car_info) ;
             }
 
-            //  Set the alert received state if it was received by the car.
+            //  Set the alert received state for each alert received by
+            //  the car.
 
-            if (message.carAlertTbl [car_no] [alert_no])
+            for (alert_no = message.carAlertTbl.nextSetBit (car_no, 0) ;
+                    alert_no >= 0 ;
+                 alert_no = message.carAlertTbl.nextSetBit (car_no,
+                                                            alert_no + 1))
             {
-              car_info.missedAlertCnt [alert_dst] = -1 ;
+              if (alert_indecies [alert_no] >= 0)
+              {
+                setAlertReceived (car_info, alert_indecies [alert_no]) ;
+              }
             }
           }
-        } //  IF (car_info != null)
-      }   //  FOR (car_no = 0 ; car_no < message.carIds.length ; car_no ++)
+          finally
+          {
+            car_lock.unlock () ;
+          }
+        } //  FOR (car_no = 0 ; car_no < message.carIds.length ; car_no ++)
+      }
+      finally
+      {
+        tableLock.readLock ().unlock () ;
+      }
 
       //  Update the alert resend time if needed.
 
-      if (alertResendTimer == 0.0 && alertCnt > 0)
+      alertLock.writeLock ().lock () ;
+
+      try
       {
-        alertResendTimer = simulation.getCurrentTime () +
-                           ALERT_RESEND_INTERVAL ;
+        if (alertResendTimer == 0.0 && alertTbl.size () > 0)
+        {
+          alertResendTimer = simulation.getCurrentTime () +
+                             ALERT_RESEND_INTERVAL ;
 
-        simulation.timerUpdate (alertResendTimer) ;
+          simulation.timerUpdate (alertResendTimer) ;
+        }
+      }
+      finally
+      {
+        alertLock.writeLock ().unlock () ;
       }
     } //  ELSE IF (message.msgType == MT_ALERT_TBL_SENT)
 
@@ -439,301 +802,2271 @@ public class CellServer implements RoadReportInfo
 
   /*************************************************************************
    *
-   *  Send a message to the given car.
-   *  The message is send to the car with the given ID.
+   *  Find an alert from an alert table message.
+   *  The alert is added to the alert tables if it is not already there.
+   *  Alerts that have already expired are ignored.  The caller holds the
+   *  table lock shared so the alert is not expired until the caller is
+   *  done with its number.
    *
-   *  @param    car_id        ID of the car to send the message to.
-   *  @param    message       Message being sent.
+   *  @param    message       Alert table message.
+   *  @param    alert_no      Entry of the alert in the message.
+   *  @param    cur_time      Current time.
+   *  @return                 Number of the alert or -1 if it has expired.
    *
    *************************************************************************
    */
 
-  public void sendMessage (
-    int                       car_id,
-    CellCommMessage           message
+  private int findAlert (
+    CellCommMessage           message,
+    int                       alert_no,
+    double                    cur_time
   )
   {
-    if (! simulation.cellComm.sendMessageToCar (car_id, message))
+    long                      alert_msgid = message.msgAlertTbl [alert_no] ;
+    double                    alert_time  = message.msgTime     [alert_no] ;
+    byte                      alert_type  = message.msgAlertType [alert_no] ;
+    int                       alert_dst ;
+    Alert                     alert_info ;
+
+    alertLock.readLock ().lock () ;
+
+    try
     {
-      System.out.format ("CellToCarFail: %d %s\n",
-                         car_id, message.toString ()) ;
+      alert_dst = alertIdx.get (alert_msgid, alert_time) ;
     }
-  }
+    finally
+    {
+      alertLock.readLock ().unlock () ;
+    }
+
+    if (alert_dst >= 0)
+    {
+      return (alert_dst) ;
+    }
+
+    if (alert_time + alertLifetime (alert_type) <= cur_time)
+    {
+      return (-1) ;
+    }
+
+    //  Add the alert unless another thread has added it in the meantime.
+
+    alertLock.writeLock ().lock () ;
+
+    try
+    {
+      alert_dst = alertIdx.get (alert_msgid, alert_time) ;
+
+      if (alert_dst < 0)
+      {
+        alert_dst  = alertCnt ++ ;
+        alert_info = new Alert (
+                        new AlertInfo (alert_msgid,
+                                       alert_type,
+                                       message.longitude [alert_no],
+                                       message.latitude  [alert_no],
+                                       alert_time),
+                        alert_dst) ;
+
+        alertTbl.put (alert_dst, alert_info) ;
+        alertIdx.put (alert_msgid, alert_time, alert_dst) ;
+        alertTree.add (alert_dst, message.longitude [alert_no],
+                                  message.latitude  [alert_no], alert_time) ;
+        alertExpiry.add (alert_info) ;
+        addGridAlert (alert_info, alert_dst) ;
+      }
+    }
+    finally
+    {
+      alertLock.writeLock ().unlock () ;
+    }
+
+    return (alert_dst) ;
+
+  } //  END private int findAlert
 
 
   /*************************************************************************
    *
-   *  Send Alerts
-   *  Send all the alerts needed by any car in each grid.
+   *  Find the alerts in an area.
+   *  Alerts that have ended their lifetime but have not been expired yet
+   *  are left out.  Searches can run alongside message ingest.
+   *
+   *  @param    min_lon       Western edge of the area.
+   *  @param    min_lat       Southern edge of the area.
+   *  @param    max_lon       Eastern edge of the area.
+   *  @param    max_lat       Northern edge of the area.
+   *  @param    since         Earliest alert time wanted.
+   *  @return                 Alerts found in the order they were added.
    *
    *************************************************************************
    */
 
-  public void sendAlerts ()
+  public AlertInfo [] findAlerts (
+    double                    min_lon,
+    double                    min_lat,
+    double                    max_lon,
+    double                    max_lat,
+    double                    since
+  )
   {
-    double                    now ;
-    double                    lon_adjust ;
-    double                    lon_diff ;
-    double                    lat_diff ;
-    double                    dist_sqr ;
+    double                    now = simulation.getCurrentTime () ;
+    int                   []  alert_nos ;
+    AlertInfo             []  result ;
+    int                       result_cnt = 0 ;
+    Alert                     alert ;
 
-    HashMap<Integer,MissingAlerts>
-                              missed_cars =
-                                  new HashMap<Integer,MissingAlerts> () ;
-    Iterator<MissingAlerts>   grid_iterator ;
-    MissingAlerts             missed_grid ;
-    Iterator<CarInfo>         car_iterator ;
-    int                       car_no ;
-    CarInfo                   cur_car ;
-    byte                      missed_count ;
-    byte                  []  new_alerts ;
+    alertLock.readLock ().lock () ;
 
-    int                       alert_no ;
-    Alert                     cur_alert ;
-    Alert                     missed_alert ;
-    Iterator<Alert>           alert_iterator ;
-    AlertInfo                 cur_alert_info ;
+    try
+    {
+      alert_nos = alertTree.find (min_lon, min_lat, max_lon, max_lat, since) ;
+      result    = new AlertInfo [alert_nos.length] ;
 
-    CellCommMessage           message ;
-    int                   []  alert_ids ;
-    byte                  []  alert_types ;
-    double                []  longitudes ;
-    double                []  latitudes ;
-    double                []  times ;
+      Arrays.sort (alert_nos) ;
 
-    //  Perform the operation only if there are alerts in the table.
-    //  Reschedule the operation as well.
+      for (int i = 0 ; i < alert_nos.length ; i ++)
+      {
+        alert = alertTbl.get (alert_nos [i]) ;
 
-    if (alertCnt <= 0 || alertResendTimer <= 0.0)
-    {
-      alertResendTimer = 0.0 ;
-      return ;
+        if (alert.expireTime > now)
+        {
+          result [result_cnt ++] = alert.alertInfo ;
+        }
+      }
     }
-
-    now = simulation.getCurrentTime () ;
-
-    if (now < alertResendTimer)
+    finally
     {
-      return ;
+      alertLock.readLock ().unlock () ;
     }
 
-    alertResendTimer = now + ALERT_RESEND_INTERVAL ;
+    return (Arrays.copyOf (result, result_cnt)) ;
 
-    simulation.timerUpdate (alertResendTimer) ;
+  } //  END public AlertInfo [] findAlerts
 
-    //  Search for missing alerts for each car.
 
-    car_iterator = carTbl.values ().iterator () ;
+  /*************************************************************************
+   *
+   *  Store a location table.
+   *  The locations of cars the server already has newer information for
+   *  are dropped first by comparing times.  The rest are stored in the
+   *  car store in one pass, with the stripes of all their cars locked,
+   *  and their cars marked as moved.  Cars not yet known are added first
+   *  unless their location is already stale.
+   *
+   *  @param    message       Location table message.
+   *  @param    cur_time      Current time.
+   *
+   *************************************************************************
+   */
+
+  private void ingestLocations (
+    CellCommMessage           message,
+    double                    cur_time
+  )
+  {
+    int                       entry_max = message.carIds.length ;
+    int                   []  entries   = new int     [entry_max] ;
+    int                   []  rows      = new int     [entry_max] ;
+    CarInfo               []  cars      = new CarInfo [entry_max] ;
+    int                       entry_cnt ;
+    int                       unknown_cnt ;
+    long                      stripes ;
+    int                       car_id ;
+    double                    msg_time ;
+    CarInfo                   car_info ;
+
+    while (true)
+    {
+      tableLock.readLock ().lock () ;
+
+      try
+      {
+        //  Find the entries that are newer than what is known.
+
+        entry_cnt   = 0 ;
+        unknown_cnt = 0 ;
+        stripes     = 0 ;
+
+        for (int car_no = 0 ; car_no < entry_max ; car_no ++)
+        {
+          car_id   = message.carIds  [car_no] ;
+          msg_time = message.msgTime [car_no] ;
+
+          car_info = carTbl.get (car_id) ;
+
+          if (car_info == null)
+          {
+            //  Reports of unknown cars that are already stale are ignored
+            //  so that evicted cars are not brought back by old location
+            //  tables.
+
+            if (msg_time + carInfoHorizon > cur_time)
+            {
+              unknown_cnt ++ ;
+            }
+
+            continue ;
+          }
+          else if (carStore.time [car_info.row] > msg_time)
+          {
+            continue ;
+          }
+
+          entries [entry_cnt] = car_no ;
+          rows    [entry_cnt] = car_info.row ;
+          cars    [entry_cnt] = car_info ;
+          entry_cnt ++ ;
+
+          stripes |= 1L << (car_id & (CAR_STRIPES - 1)) ;
+        }
+
+        //  Store the locations once all the cars are known.
+
+        if (unknown_cnt == 0)
+        {
+          lockStripes (stripes) ;
+
+          try
+          {
+            carStore.setLocations (rows, entries, entry_cnt,
+                                   message.longitude, message.latitude,
+                                   message.speed,     message.bearing,
+                                   message.msgTime) ;
+
+            //  The alerts the cars need must be found again.
+
+            for (int i = 0 ; i < entry_cnt ; i ++)
+            {
+              car_info        = cars [i] ;
+              car_info.moved  = true ;
+
+              activateCar (car_info) ;
+
+              if (car_info.queuedTime < 0.0)
+              {
+                car_info.queuedTime = carStore.time [car_info.row] ;
+
+                synchronized (carExpiry)
+                {
+                  carExpiry.add (car_info) ;
+                }
+              }
+            }
+          }
+          finally
+          {
+            unlockStripes (stripes) ;
+          }
+
+          return ;
+        }
+      }
+      finally
+      {
+        tableLock.readLock ().unlock () ;
+      }
+
+      addCars (message, cur_time) ;
+    }
+  } //  END private void ingestLocations
+
+
+  /*************************************************************************
+   *
+   *  Return the CPU time used by the current thread.
+   *  Elapsed time is used instead where thread CPU time is not supported.
+   *
+   *  @return                 CPU time.  (In nanoseconds.)
+   *
+   *************************************************************************
+   */
+
+  private static long cpuTime ()
+  {
+    return (cpuClock.isCurrentThreadCpuTimeSupported ()
+                ? cpuClock.getCurrentThreadCpuTime ()
+                : System.nanoTime ()) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add the unknown cars in a location table.
+   *  Cars whose location is already stale are not added.  New cars are
+   *  queued for eviction once their location is stored.
+   *
+   *  @param    message       Location table message.
+   *  @param    cur_time      Current time.
+   *
+   *************************************************************************
+   */
+
+  private void addCars (
+    CellCommMessage           message,
+    double                    cur_time
+  )
+  {
+    int                       car_id ;
+    double                    msg_time ;
+    CarInfo                   car_info ;
+
+    tableLock.writeLock ().lock () ;
+
+    try
+    {
+      for (int car_no = 0 ; car_no < message.carIds.length ; car_no ++)
+      {
+        car_id   = message.carIds  [car_no] ;
+        msg_time = message.msgTime [car_no] ;
+
+        car_info = carTbl.get (car_id) ;
+
+        if (car_info == null && msg_time + carInfoHorizon > cur_time)
+        {
+          car_info            = new CarInfo (car_id) ;
+          car_info.queuedTime = -1.0 ;
+
+          carTbl.put (car_id, car_info) ;
+        }
+      }
+    }
+    finally
+    {
+      tableLock.writeLock ().unlock () ;
+    }
+  } //  END private void addCars
+
+
+  /*************************************************************************
+   *
+   *  Hand a car off to another server.
+   *  The car is removed from this server and the information needed to
+   *  continue tracking it is returned.  Alerts that have expired are left
+   *  out.
+   *
+   *  @param    car_id        ID of the car to hand off.
+   *  @return                 Car information for the other server or null
+   *                          if the car is not known.
+   *
+   *************************************************************************
+   */
+
+  public CarHandoff handOffCar (
+    int                       car_id
+  )
+  {
+    CarInfo                   car_info ;
+    CarHandoff                result ;
+
+    tableLock.writeLock ().lock () ;
+    alertLock.readLock ().lock () ;
+
+    try
+    {
+      car_info = carTbl.remove (car_id) ;
+
+      if (car_info == null)
+      {
+        return (null) ;
+      }
+
+      pruneExpired (car_info) ;
+
+      result = carHandoff (car_info) ;
+
+      //  Drop the car from this server's tables.  Active cars are dropped
+      //  when they are next checked.
+
+      carExpiry.remove (car_info) ;
+      carStore.remove (car_info.row) ;
+      car_info.evicted = true ;
+
+      if (car_info.tracked)
+      {
+        trackedCars.removeElement (car_info) ;
+      }
+    }
+    finally
+    {
+      alertLock.readLock ().unlock () ;
+      tableLock.writeLock ().unlock () ;
+    }
+
+    return (result) ;
+
+  } //  END public CarHandoff handOffCar
+
+
+  /*************************************************************************
+   *
+   *  Build the handoff information of a car.
+   *  The car's missed alert counts are given by alert message ID and
+   *  time.  The car's expired alerts must have been pruned first.
+   *
+   *  @param    car_info      Car to build the information of.
+   *  @return                 Car information for another server.
+   *
+   *************************************************************************
+   */
+
+  private CarHandoff carHandoff (
+    CarInfo                   car_info
+  )
+  {
+    CarHandoff                result ;
+    Alert                     alert ;
+
+    result = new CarHandoff (car_info.carId, car_info.tracked,
+                             car_info.missedEntryCnt) ;
+
+    for (int i = 0 ; i < car_info.missedEntryCnt ; i ++)
+    {
+      alert = alertTbl.get (car_info.missedAlertNos [i]) ;
+
+      result.alertMsgIds [i] = alert.alertInfo.msgId ;
+      result.alertTimes  [i] = alert.alertInfo.time ;
+      result.missedCnts  [i] = car_info.missedAlertCnt [i] ;
+    }
+
+    return (result) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add the server's tables to a snapshot.
+   *  The alerts are added as an alert table received by no cars, in the
+   *  order they were numbered, followed by each car's missed alerts and
+   *  a location table of the locations last reported.  Receiving them in
+   *  that order rebuilds the tables.  Alerts are renumbered when they are
+   *  received, but a car's missed alerts are kept by message ID and time.
+   *
+   *  @param    snapshot      Snapshot to add the tables to.
+   *  @param    shard_no      Shard number the tables are added under.
+   *
+   *************************************************************************
+   */
+
+  public void snapshot (
+    CellLog.Snapshot          snapshot,
+    int                       shard_no
+  )
+  {
+    int                   []  alert_nos ;
+    long                  []  alert_ids ;
+    byte                  []  alert_types ;
+    double                []  times ;
+    double                []  lons ;
+    double                []  lats ;
+    double                []  speeds ;
+    double                []  bearings ;
+    int                   []  car_ids ;
+    int                       entry_cnt ;
+    int                       row ;
+    Alert                     alert ;
+    CarInfo                   car_info ;
+
+    tableLock.writeLock ().lock () ;
+    alertLock.readLock ().lock () ;
+
+    try
+    {
+      snapshot.addShard (shard_no, carId, alertResendTimer) ;
+
+      //  Alert table.
+
+      alert_nos = new int [alertTbl.size ()] ;
+      entry_cnt = 0 ;
+
+      for (int slot = 0 ; slot < alertTbl.slots () ; slot ++)
+      {
+        if (alertTbl.valueAt (slot) != null)
+        {
+          alert_nos [entry_cnt ++] = alertTbl.valueAt (slot).alertNo ;
+        }
+      }
+
+      Arrays.sort (alert_nos, 0, entry_cnt) ;
+
+      alert_ids   = new long   [entry_cnt] ;
+      alert_types = new byte   [entry_cnt] ;
+      times       = new double [entry_cnt] ;
+      lons        = new double [entry_cnt] ;
+      lats        = new double [entry_cnt] ;
+
+      for (int i = 0 ; i < entry_cnt ; i ++)
+      {
+        alert = alertTbl.get (alert_nos [i]) ;
+
+        alert_ids   [i] = alert.alertInfo.msgId ;
+        alert_types [i] = alert.alertInfo.msgType ;
+        times       [i] = alert.alertInfo.time ;
+        lons        [i] = alert.alertInfo.longitude ;
+        lats        [i] = alert.alertInfo.latitude ;
+      }
+
+      if (entry_cnt > 0)
+      {
+        snapshot.addMessage (shard_no,
+                    new CellCommMessage (MT_ALERT_TBL_SENT, new int [0],
+                                         times, lons, lats, null, null,
+                                         alert_ids, alert_types,
+                                         new CarAlertMatrix.Builder (
+                                                    0, entry_cnt).build ())) ;
+      }
+
+      //  Car missed alerts.  Cars without a location yet are kept too.
+
+      car_ids   = new int [carTbl.size ()] ;
+      entry_cnt = 0 ;
+
+      for (int slot = 0 ; slot < carTbl.slots () ; slot ++)
+      {
+        car_info = carTbl.valueAt (slot) ;
+
+        if (car_info == null)
+        {
+          continue ;
+        }
+
+        pruneExpired (car_info) ;
+
+        snapshot.addCar (shard_no, carHandoff (car_info)) ;
+
+        if (carStore.time [car_info.row] > 0.0)
+        {
+          car_ids [entry_cnt ++] = car_info.carId ;
+        }
+      }
+
+      //  Location table.
+
+      times     = new double [entry_cnt] ;
+      lons      = new double [entry_cnt] ;
+      lats      = new double [entry_cnt] ;
+      speeds    = new double [entry_cnt] ;
+      bearings  = new double [entry_cnt] ;
+
+      for (int i = 0 ; i < entry_cnt ; i ++)
+      {
+        row           = carTbl.get (car_ids [i]).row ;
+
+        times     [i] = carStore.time      [row] ;
+        lons      [i] = carStore.reportLon [row] ;
+        lats      [i] = carStore.reportLat [row] ;
+        speeds    [i] = carStore.speed     [row] ;
+        bearings  [i] = carStore.bearing   [row] ;
+      }
+
+      if (entry_cnt > 0)
+      {
+        snapshot.addMessage (shard_no,
+                    new CellCommMessage (MT_LOC_TBL_SENT,
+                                         Arrays.copyOf (car_ids, entry_cnt),
+                                         times, lons, lats, speeds, bearings,
+                                         null, null, null)) ;
+      }
+    }
+    finally
+    {
+      alertLock.readLock ().unlock () ;
+      tableLock.writeLock ().unlock () ;
+    }
+  } //  END public void snapshot
+
+
+  /*************************************************************************
+   *
+   *  Restore the server's counters from a snapshot.
+   *
+   *  @param    next_car_id   Last car ID provided.
+   *  @param    resend_timer  Time of the next alert resend.
+   *
+   *************************************************************************
+   */
+
+  public void restore (
+    int                       next_car_id,
+    double                    resend_timer
+  )
+  {
+    alertLock.writeLock ().lock () ;
+
+    try
+    {
+      carId            = next_car_id ;
+      alertResendTimer = resend_timer ;
+    }
+    finally
+    {
+      alertLock.writeLock ().unlock () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Take over a car handed off by another server.
+   *  The car's missed alert counts are kept for the alerts this server
+   *  also has.  Its location is stored when it is next received, after
+   *  which it is queued for eviction.
+   *
+   *  @param    handoff       Car information from the other server.
+   *
+   *************************************************************************
+   */
+
+  public void takeCar (
+    CarHandoff                handoff
+  )
+  {
+    CarInfo                   car_info ;
+    int                       alert_no ;
+
+    tableLock.writeLock ().lock () ;
+    alertLock.readLock ().lock () ;
+
+    try
+    {
+      if (carTbl.get (handoff.carId) != null)
+      {
+        return ;
+      }
+
+      car_info            = new CarInfo (handoff.carId) ;
+      car_info.queuedTime = -1.0 ;
+      car_info.prunedCnt  = expiredCnt ;
+
+      carTbl.put (handoff.carId, car_info) ;
+
+      for (int i = 0 ; i < handoff.missedCnts.length ; i ++)
+      {
+        alert_no = alertIdx.get (handoff.alertMsgIds [i],
+                                 handoff.alertTimes  [i]) ;
+
+        if (alert_no >= 0)
+        {
+          car_info.setMissed (alert_no, handoff.missedCnts [i]) ;
+
+          if (handoff.missedCnts [i] > 0)
+          {
+            car_info.missedPosCnt ++ ;
+          }
+        }
+      }
+
+      //  The alerts the car needs in this server's area must be found.
+
+      if (handoff.tracked)
+      {
+        car_info.tracked = true ;
+        car_info.moved   = true ;
+
+        trackedCars.addElement (car_info) ;
+        activateCar (car_info) ;
+      }
+    }
+    finally
+    {
+      alertLock.readLock ().unlock () ;
+      tableLock.writeLock ().unlock () ;
+    }
+  } //  END public void takeCar
+
+
+  /*************************************************************************
+   *
+   *  Lock a set of car stripes in increasing order.
+   *
+   *  @param    stripes       Bit mask of the stripes to lock.
+   *
+   *************************************************************************
+   */
+
+  private void lockStripes (
+    long                      stripes
+  )
+  {
+    for (int i = 0 ; i < CAR_STRIPES ; i ++)
+    {
+      if ((stripes & (1L << i)) != 0)
+      {
+        carLocks [i].lock () ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Unlock a set of car stripes.
+   *
+   *  @param    stripes       Bit mask of the stripes to unlock.
+   *
+   *************************************************************************
+   */
+
+  private void unlockStripes (
+    long                      stripes
+  )
+  {
+    for (int i = CAR_STRIPES - 1 ; i >= 0 ; i --)
+    {
+      if ((stripes & (1L << i)) != 0)
+      {
+        carLocks [i].unlock () ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add an alert to the alerts by grid tables.
+   *
+   *  @param    alert         Alert to add.
+   *  @param    alert_no      Number of the alert in the alert table.
+   *
+   *************************************************************************
+   */
+
+  private void addGridAlert (
+    Alert                     alert,
+    int                       alert_no
+  )
+  {
+    GridAlerts                grid ;
+
+    grid = alertGridMap.get (alert.gridId) ;
+
+    if (grid == null)
+    {
+      grid = new GridAlerts (alert.gridX, alert.gridY) ;
+
+      alertGridMap.put (alert.gridId, grid) ;
+      alertGridTbl.addElement (grid) ;
+    }
+
+    grid.add (alert_no) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Remove an alert from the alerts by grid tables.
+   *  Grids left without alerts are removed.
+   *
+   *  @param    alert         Alert to remove.
+   *
+   *************************************************************************
+   */
+
+  private void removeGridAlert (
+    Alert                     alert
+  )
+  {
+    GridAlerts                grid ;
+
+    grid = alertGridMap.get (alert.gridId) ;
+
+    if (grid == null)
+    {
+      return ;
+    }
+
+    grid.remove (alert.alertNo) ;
+
+    if (grid.alertNoCnt == 0)
+    {
+      alertGridMap.remove (alert.gridId) ;
+      alertGridTbl.removeElement (grid) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the time an alert of the given type is kept.
+   *
+   *  @param    alert_type    Type of the alert.
+   *  @return                 Seconds after the alert occured that it
+   *                          expires.
+   *
+   *************************************************************************
+   */
+
+  private static double alertLifetime (
+    byte                      alert_type
+  )
+  {
+    int                       type_no = alert_type - MT_ALERTS ;
+
+    if (type_no < 0 || type_no >= ALERT_LIFETIME.length)
+    {
+      return (ALERT_LIFETIME_DEFAULT) ;
+    }
+
+    return (ALERT_LIFETIME [type_no]) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Expire alerts.
+   *  Remove all alerts whose lifetime has ended from the alert tables.
+   *  Cars' tables drop the expired alerts the next time they are checked.
+   *
+   *  @param    now           Current time.
+   *
+   *************************************************************************
+   */
+
+  private void expireAlerts (
+    double                    now
+  )
+  {
+    Alert                     alert ;
+
+    while (alertExpiry.size () > 0 && alertExpiry.peek ().expireTime <= now)
+    {
+      alert = alertExpiry.poll () ;
+
+      alertTbl.remove (alert.alertNo) ;
+      alertIdx.remove (alert.alertInfo.msgId, alert.alertInfo.time) ;
+      alertTree.remove (alert.alertNo, alert.alertInfo.longitude,
+                                       alert.alertInfo.latitude) ;
+      removeGridAlert (alert) ;
+
+      expiredCnt ++ ;
+
+      System.out.format ("AlertExpired: %g %s\n",
+                         now, alert.alertInfo.toString ()) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Evict stale cars.
+   *  Remove the cars that have not reported a location within the
+   *  horizon from the car tables.  Cars that have reported since they
+   *  were queued are queued again with their latest report time.
+   *
+   *  @param    now           Current time.
+   *
+   *************************************************************************
+   */
+
+  private void evictCars (
+    double                    now
+  )
+  {
+    CarInfo                   car ;
+    int                       evict_cnt = 0 ;
+    int                       kept_cnt ;
+
+    while (carExpiry.size () > 0 &&
+           carExpiry.peek ().queuedTime + carInfoHorizon <= now)
+    {
+      car = carExpiry.poll () ;
+
+      if (carStore.time [car.row] > car.queuedTime)
+      {
+        car.queuedTime = carStore.time [car.row] ;
+        carExpiry.add (car) ;
+        continue ;
+      }
+
+      System.out.format ("CarInfoEvicted: %g %d %g\n",
+                         now, car.carId, carStore.time [car.row]) ;
+
+      carTbl.remove (car.carId) ;
+      carStore.remove (car.row) ;
+      car.evicted = true ;
+      evict_cnt ++ ;
+    }
+
+    //  Remove the evicted cars from the tracked cars.  Active cars are
+    //  dropped when they are next checked.
+
+    if (evict_cnt > 0)
+    {
+      kept_cnt = 0 ;
+
+      for (int i = 0 ; i < trackedCars.size () ; i ++)
+      {
+        car = trackedCars.elementAt (i) ;
+
+        if (! car.evicted)
+        {
+          trackedCars.setElementAt (car, kept_cnt ++) ;
+        }
+      }
+
+      trackedCars.setSize (kept_cnt) ;
+    }
+  } //  END private void evictCars
+
+
+  /*************************************************************************
+   *
+   *  Drop expired alerts from a car's tables.
+   *
+   *  @param    car           Car to update.
+   *
+   *************************************************************************
+   */
+
+  private void pruneExpired (
+    CarInfo                   car
+  )
+  {
+    int                       kept_cnt ;
+    int                       alert_no ;
+
+    if (car.prunedCnt == expiredCnt)
+    {
+      return ;
+    }
+
+    kept_cnt          = 0 ;
+    car.missedPosCnt  = 0 ;
+
+    for (int i = 0 ; i < car.missedEntryCnt ; i ++)
+    {
+      alert_no = car.missedAlertNos [i] ;
+
+      if (alertTbl.get (alert_no) != null)
+      {
+        car.missedAlertNos [kept_cnt] = alert_no ;
+        car.missedAlertCnt [kept_cnt] = car.missedAlertCnt [i] ;
+
+        if (car.missedAlertCnt [kept_cnt] > 0)
+        {
+          car.missedPosCnt ++ ;
+        }
+
+        kept_cnt ++ ;
+      }
+    }
+
+    car.missedEntryCnt = kept_cnt ;
+
+    kept_cnt = 0 ;
+
+    for (int i = 0 ; i < car.neededCnt ; i ++)
+    {
+      alert_no = car.neededAlerts [i] ;
+
+      if (alertTbl.get (alert_no) != null)
+      {
+        car.neededAlerts [kept_cnt ++] = alert_no ;
+      }
+    }
+
+    car.neededCnt = kept_cnt ;
+    car.prunedCnt = expiredCnt ;
+
+  } //  END private void pruneExpired
+
+
+  /*************************************************************************
+   *
+   *  Dead reckon all cars.
+   *  Each car is moved ahead of its last report to where it is expected
+   *  to be.  Cars that move have the alerts around them checked again.
+   *
+   *  @param    now           Current time.
+   *
+   *************************************************************************
+   */
+
+  private void reckonCars (
+    double                    now
+  )
+  {
+    CarInfo                   car ;
+
+    for (int slot = 0 ; slot < carTbl.slots () ; slot ++)
+    {
+      car = carTbl.valueAt (slot) ;
+
+      if (car != null && carStore.deadReckon (car.row, now))
+      {
+        car.moved = true ;
+
+        activateCar (car) ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add a car to the cars to check at the next alert resend.
+   *  Only cars with missed alert information are added.
+   *
+   *  @param    car           Car to add.
+   *
+   *************************************************************************
+   */
+
+  private void activateCar (
+    CarInfo                   car
+  )
+  {
+    if (! car.active && car.tracked)
+    {
+      car.active = true ;
+      activeCars.addElement (car) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Determine if a car needs an alert.
+   *  A car needs an alert it has missed being sent, or one that it has
+   *  not received in its local area.
+   *
+   *  @param    car           Car to check.
+   *  @param    alert_no      Number of the alert in the alert table.
+   *  @param    lon_adjust    Longitude distance adjustment at the car.
+   *  @return                 True if the alert should be sent to the car.
+   *
+   *************************************************************************
+   */
+
+  private boolean alertNeeded (
+    CarInfo                   car,
+    int                       alert_no,
+    double                    lon_adjust
+  )
+  {
+    byte                      missed_count ;
+    double                    lon_diff ;
+    double                    lat_diff ;
+    double                    dist_sqr ;
+    int                       row = car.row ;
+    Alert                     alert ;
+
+    alert = alertTbl.get (alert_no) ;
+
+    if (alert == null)
+    {
+      return (false) ;
+    }
+
+    missed_count = car.getMissed (alert_no) ;
+
+    //  Car has already received this alert or has missed it.
+
+    if (missed_count != 0)
+    {
+      return (missed_count > 0) ;
+    }
+
+    //  Check if the alert is in the local area.
+
+    if (carStore.gridMinX [row] >= alert.gridX ||
+        carStore.gridMaxX [row] <= alert.gridX ||
+        carStore.gridMinY [row] >= alert.gridY ||
+        carStore.gridMaxY [row] <= alert.gridY)
+    {
+      return (false) ;
+    }
+
+    lat_diff  = (carStore.latitude  [row] - alert.alertInfo.latitude)  *
+                                                              LAT2KM ;
+    lon_diff  = (carStore.longitude [row] - alert.alertInfo.longitude) *
+                                                LON2KM * lon_adjust ;
+    dist_sqr  = lat_diff * lat_diff + lon_diff * lon_diff ;
+
+    return (dist_sqr <= Math.pow (SEPARATION_BASE +
+                                  SEPARATION_TIME * carStore.speed [row],
+                                  2)) ;
+
+  } //  END private boolean alertNeeded
+
+
+  /*************************************************************************
+   *
+   *  Bring a car's needed alerts up to date.
+   *  A car that has moved has all the alerts around it checked again.
+   *  Otherwise alerts it has received since the last check are dropped
+   *  and only alerts added since then are checked.
+   *
+   *  @param    car           Car to check.
+   *
+   *************************************************************************
+   */
+
+  private void checkNeededAlerts (
+    CarInfo                   car
+  )
+  {
+    double                    lon_adjust ;
+    int                       alert_no ;
+    int                       kept_cnt ;
+
+    pruneExpired (car) ;
+
+    lon_adjust = Math.cos (carStore.latitude [car.row] * Math.PI / 180.0) ;
+
+    if (car.moved)
+    {
+      findCandidates (car) ;
+
+      kept_cnt = 0 ;
+
+      for (int i = 0 ; i < car.neededCnt ; i ++)
+      {
+        alert_no = car.neededAlerts [i] ;
+
+        if (alertNeeded (car, alert_no, lon_adjust))
+        {
+          car.neededAlerts [kept_cnt ++] = alert_no ;
+        }
+      }
+
+      car.neededCnt = kept_cnt ;
+      car.moved     = false ;
+    }
+    else
+    {
+      kept_cnt = 0 ;
+
+      for (int i = 0 ; i < car.neededCnt ; i ++)
+      {
+        alert_no = car.neededAlerts [i] ;
+
+        if (car.getMissed (alert_no) >= 0)
+        {
+          car.neededAlerts [kept_cnt ++] = alert_no ;
+        }
+      }
+
+      car.neededCnt = kept_cnt ;
+
+      for (alert_no = car.checkedCnt ; alert_no < alertCnt ; alert_no ++)
+      {
+        if (alertNeeded (car, alert_no, lon_adjust))
+        {
+          car.addNeeded (alert_no) ;
+        }
+      }
+    }
+
+    car.checkedCnt = alertCnt ;
+
+  } //  END private void checkNeededAlerts
+
+
+  /*************************************************************************
+   *
+   *  Mark an alert as received by a car.
+   *
+   *  @param    car           Car that has received the alert.
+   *  @param    alert_no      Number of the alert in the alert table.
+   *
+   *************************************************************************
+   */
+
+  private void setAlertReceived (
+    CarInfo                   car,
+    int                       alert_no
+  )
+  {
+    if (car.getMissed (alert_no) > 0)
+    {
+      car.missedPosCnt -- ;
+    }
+
+    car.setMissed (alert_no, (byte) -1) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find the alerts that may be missing for a car.
+   *  Collect the numbers of all alerts in the grids within the car's
+   *  local area and all alerts the car has a missed count above zero for
+   *  into the car's needed alerts, in increasing order.  Either the grids
+   *  in the local area are looked up or all grids with alerts are
+   *  checked, whichever is fewer.  Only the car's own tables are changed,
+   *  so cars can be checked in parallel.
+   *
+   *  @param    car           Car to find alerts for.
+   *
+   *************************************************************************
+   */
+
+  private void findCandidates (
+    CarInfo                   car
+  )
+  {
+    long                      area_grids = areaGrids (car.row) ;
+    int                       min_x      = carStore.gridMinX [car.row] ;
+    int                       max_x      = carStore.gridMaxX [car.row] ;
+    int                       min_y      = carStore.gridMinY [car.row] ;
+    int                       max_y      = carStore.gridMaxY [car.row] ;
+    GridAlerts                grid ;
+
+    car.neededCnt = 0 ;
+
+    if (area_grids > 0 && area_grids < alertGridTbl.size ())
+    {
+      for (int x = min_x + 1 ; x < max_x ; x ++)
+      {
+        for (int y = min_y + 1 ; y < max_y ; y ++)
+        {
+          grid = alertGridMap.get (x * GRID_ID_XMULT + y) ;
+
+          if (grid != null)
+          {
+            addCandidates (grid, car) ;
+          }
+        }
+      }
+    }
+    else if (area_grids > 0)
+    {
+      for (int i = 0 ; i < alertGridTbl.size () ; i ++)
+      {
+        addCandidates (alertGridTbl.elementAt (i), car) ;
+      }
+    }
+
+    //  Add the alerts that have been missed wherever they are.
+
+    if (car.missedPosCnt > 0)
+    {
+      for (int i = 0 ; i < car.missedEntryCnt ; i ++)
+      {
+        if (car.missedAlertCnt [i] > 0)
+        {
+          car.addNeeded (car.missedAlertNos [i]) ;
+        }
+      }
+    }
+
+    sortNeeded (car) ;
+
+  } //  END private void findCandidates
+
+
+  /*************************************************************************
+   *
+   *  Return the number of grids in a car's local area.
+   *  Grids strictly between the car's minimum and maximum grids are in
+   *  the local area.
+   *
+   *  @param    row           Row the car is stored in.
+   *  @return                 Number of grids in the local area.
+   *
+   *************************************************************************
+   */
+
+  private long areaGrids (
+    int                       row
+  )
+  {
+    int                       width  = carStore.gridMaxX [row] -
+                                       carStore.gridMinX [row] - 1 ;
+    int                       height = carStore.gridMaxY [row] -
+                                       carStore.gridMinY [row] - 1 ;
+
+    return ((width > 0 && height > 0) ? (long) width * height : 0) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Put a car's needed alerts in the order of the alert table and remove
+   *  any duplicates.
+   *
+   *  @param    car           Car whose needed alerts are ordered.
+   *
+   *************************************************************************
+   */
+
+  private void sortNeeded (
+    CarInfo                   car
+  )
+  {
+    int                       last_no ;
+
+    if (car.neededCnt == 0)
+    {
+      return ;
+    }
 
-    while (car_iterator.hasNext ())
+    Arrays.sort (car.neededAlerts, 0, car.neededCnt) ;
+
+    last_no = 0 ;
+
+    for (int i = 1 ; i < car.neededCnt ; i ++)
     {
-      cur_car = car_iterator.next () ;
+      if (car.neededAlerts [i] != car.neededAlerts [last_no])
+      {
+        car.neededAlerts [++ last_no] = car.neededAlerts [i] ;
+      }
+    }
+
+    car.neededCnt = last_no + 1 ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add the alerts of a grid to a car's needed alerts.
+   *  Only alerts whose grids are in the car's local area are added.
+   *  (Different grids can share a grid ID.)
+   *
+   *  @param    grid          Grid to add the alerts of.
+   *  @param    car           Car the alerts may be missing for.
+   *
+   *************************************************************************
+   */
+
+  private void addCandidates (
+    GridAlerts                grid,
+    CarInfo                   car
+  )
+  {
+    int                       row = car.row ;
+
+    if (carStore.gridMinX [row] >= grid.gridX ||
+        carStore.gridMaxX [row] <= grid.gridX ||
+        carStore.gridMinY [row] >= grid.gridY ||
+        carStore.gridMaxY [row] <= grid.gridY)
+    {
+      return ;
+    }
+
+    for (int i = 0 ; i < grid.alertNoCnt ; i ++)
+    {
+      car.addNeeded (grid.alertNos [i]) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send a message to the given car.
+   *  The message is send to the car with the given ID.
+   *
+   *  @param    car_id        ID of the car to send the message to.
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
+
+  public void sendMessage (
+    int                       car_id,
+    CellCommMessage           message
+  )
+  {
+    if (replaying)
+    {
+      return ;
+    }
+
+    if (! simulation.cellComm.sendMessageToCar (car_id, message))
+    {
+      System.out.format ("CellToCarFail: %d %s\n",
+                         car_id, message.toString ()) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Bring the needed alerts of a range of active cars up to date.
+   *
+   *  @param    first_no      First active car to check.
+   *  @param    last_no       Active car after the last one to check.
+   *
+   *************************************************************************
+   */
+
+  private void checkCars (
+    int                       first_no,
+    int                       last_no
+  )
+  {
+    CarInfo                   car ;
+
+    for (int car_no = first_no ; car_no < last_no ; car_no ++)
+    {
+      car = activeCars.elementAt (car_no) ;
+
+      if (! car.evicted)
+      {
+        checkNeededAlerts (car) ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Parallel car check task.
+   *  Checks a range of the active cars, splitting it among the pool's
+   *  threads.
+   *
+   *************************************************************************
+   */
+
+  private class CheckCarsTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L ;
+
+    private final int         firstNo ;
+    private final int         lastNo ;
+
+    public CheckCarsTask (
+      int                     first_no,
+      int                     last_no
+    )
+    {
+      firstNo = first_no ;
+      lastNo  = last_no ;
+    }
+
+    protected void compute ()
+    {
+      int                     mid_no ;
+
+      if (lastNo - firstNo <= SWEEP_CHUNK_CARS)
+      {
+        checkCars (firstNo, lastNo) ;
+        return ;
+      }
+
+      mid_no = (firstNo + lastNo) >>> 1 ;
+
+      invokeAll (new CheckCarsTask (firstNo, mid_no),
+                 new CheckCarsTask (mid_no,  lastNo)) ;
+    }
+  }   //  END private class CheckCarsTask
+
+
+  /*************************************************************************
+   *
+   *  Determine whether checking the cars around each alert is cheaper than
+   *  checking each car's local area.
+   *  The grids each way would visit are counted.  A car that has moved
+   *  visits the grids with alerts in its local area, and one that has not
+   *  looks at the alerts added since its last check.  An alert visits the
+   *  grids with active cars that could have it in their local area.  Each
+   *  active car is visited once more to index it.
+   *
+   *  @return                 True if the alerts should be swept.
+   *
+   *************************************************************************
+   */
+
+  private boolean alertSweepCheaper ()
+  {
+    long                      car_cost    = 0 ;
+    long                      alert_cost ;
+    long                      cells ;
+    int                       reach       = 0 ;
+    int                       min_checked = alertCnt ;
+    boolean                   moved       = false ;
+    int                       swept_cnt   = 0 ;
+    CarInfo                   car ;
+
+    for (int i = 0 ; i < activeCars.size () ; i ++)
+    {
+      car = activeCars.elementAt (i) ;
+
+      if (car.evicted)
+      {
+        continue ;
+      }
+
+      if (car.moved)
+      {
+        car_cost   += Math.min (areaGrids (car.row), alertGridTbl.size ()) ;
+        moved       = true ;
+      }
+      else
+      {
+        car_cost   += alertCnt - car.checkedCnt ;
+        min_checked = Math.min (min_checked, car.checkedCnt) ;
+      }
+
+      reach = Math.max (reach, gridReach (car.row)) ;
+    }
+
+    //  Count the alerts that would be swept.
+
+    for (int slot = 0 ; slot < alertTbl.slots () ; slot ++)
+    {
+      if (alertTbl.valueAt (slot) != null &&
+          (moved || alertTbl.valueAt (slot).alertNo >= min_checked))
+      {
+        swept_cnt ++ ;
+      }
+    }
+
+    cells      = (reach > 0) ? (long) (2 * reach - 1) * (2 * reach - 1) : 0 ;
+    alert_cost = activeCars.size () +
+                 swept_cnt * Math.min (cells, activeCars.size ()) ;
+
+    return (alert_cost < car_cost) ;
+
+  } //  END private boolean alertSweepCheaper
+
+
+  /*************************************************************************
+   *
+   *  Return the farthest a car's local area reaches from its grid.
+   *
+   *  @param    row           Row the car is stored in.
+   *  @return                 Most grids from the car's grid to the edge of
+   *                          its local area bounds.
+   *
+   *************************************************************************
+   */
+
+  private int gridReach (
+    int                       row
+  )
+  {
+    return (Math.max (Math.max (carStore.gridX    [row] -
+                                carStore.gridMinX [row],
+                                carStore.gridMaxX [row] -
+                                carStore.gridX    [row]),
+                      Math.max (carStore.gridY    [row] -
+                                carStore.gridMinY [row],
+                                carStore.gridMaxY [row] -
+                                carStore.gridY    [row]))) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Bring the needed alerts of the active cars up to date alert by alert.
+   *  Each active car's own tables are brought up to date and the car is
+   *  indexed by its grid.  Then the cars that could have each alert in
+   *  their local area are looked up and checked for it.  All alerts are
+   *  checked if any car has moved, otherwise only those added since the
+   *  earliest check.  The cars end up with the same needed alerts as
+   *  when checked car by car.
+   *
+   *************************************************************************
+   */
+
+  private void checkAlerts ()
+  {
+    int                       reach       = 0 ;
+    int                       min_checked = alertCnt ;
+    boolean                   moved       = false ;
+    long                      cells ;
+    int                   []  alert_nos ;
+    int                       alert_cnt   = 0 ;
+    int                       kept_cnt ;
+    int                       alert_no ;
+    int                       row ;
+    CarInfo                   car ;
+    Alert                     alert ;
+    GridCars                  grid ;
+
+    carGridMap.clear () ;
+    carGridTbl.removeAllElements () ;
+
+    for (int i = 0 ; i < activeCars.size () ; i ++)
+    {
+      car = activeCars.elementAt (i) ;
+      row = car.row ;
+
+      if (car.evicted)
+      {
+        continue ;
+      }
+
+      pruneExpired (car) ;
+
+      //  Start a car that has moved with the alerts it has missed, and
+      //  drop the alerts another car has received since its last check.
+      //  Alerts it has missed since then are added wherever they are.
+
+      if (car.moved)
+      {
+        car.neededCnt = 0 ;
+        moved         = true ;
+      }
+      else
+      {
+        kept_cnt = 0 ;
+
+        for (int j = 0 ; j < car.neededCnt ; j ++)
+        {
+          if (car.getMissed (car.neededAlerts [j]) >= 0)
+          {
+            car.neededAlerts [kept_cnt ++] = car.neededAlerts [j] ;
+          }
+        }
+
+        car.neededCnt = kept_cnt ;
+        min_checked   = Math.min (min_checked, car.checkedCnt) ;
+      }
+
+      for (int j = 0 ; car.missedPosCnt > 0 && j < car.missedEntryCnt ; j ++)
+      {
+        if (car.missedAlertCnt [j] > 0 &&
+            (car.moved || car.missedAlertNos [j] >= car.checkedCnt))
+        {
+          car.addNeeded (car.missedAlertNos [j]) ;
+        }
+      }
+
+      //  Index the car by its grid.
+
+      grid = carGridMap.get (carStore.gridId [row]) ;
+
+      if (grid == null)
+      {
+        grid = new GridCars (carStore.gridX [row], carStore.gridY [row]) ;
+
+        carGridMap.put (carStore.gridId [row], grid) ;
+        carGridTbl.addElement (grid) ;
+      }
+
+      grid.add (car, Math.cos (carStore.latitude [row] * Math.PI / 180.0)) ;
+
+      reach = Math.max (reach, gridReach (row)) ;
+    }
+
+    //  Find the alerts to check in the order of the alert table.
+
+    alert_nos = new int [alertTbl.size ()] ;
+
+    for (int slot = 0 ; slot < alertTbl.slots () ; slot ++)
+    {
+      alert = alertTbl.valueAt (slot) ;
+
+      if (alert != null && (moved || alert.alertNo >= min_checked))
+      {
+        alert_nos [alert_cnt ++] = alert.alertNo ;
+      }
+    }
+
+    Arrays.sort (alert_nos, 0, alert_cnt) ;
+
+    //  Check the cars around each alert.  Either the grids within reach
+    //  of the alert are looked up or all grids with cars are checked,
+    //  whichever is fewer.
+
+    cells = (reach > 0) ? (long) (2 * reach - 1) * (2 * reach - 1) : 0 ;
+
+    for (int i = 0 ; i < alert_cnt ; i ++)
+    {
+      alert_no = alert_nos [i] ;
+      alert    = alertTbl.get (alert_no) ;
+
+      if (cells < carGridTbl.size ())
+      {
+        for (int x = alert.gridX - reach + 1 ; x < alert.gridX + reach ; x ++)
+        {
+          for (int y = alert.gridY - reach + 1 ; y < alert.gridY + reach ;
+               y ++)
+          {
+            grid = carGridMap.get (x * GRID_ID_XMULT + y) ;
+
+            if (grid != null)
+            {
+              checkGridCars (grid, alert_no) ;
+            }
+          }
+        }
+      }
+      else
+      {
+        for (int j = 0 ; j < carGridTbl.size () ; j ++)
+        {
+          checkGridCars (carGridTbl.elementAt (j), alert_no) ;
+        }
+      }
+    }
+
+    //  Put each car's needed alerts in order and mark it checked.
+
+    for (int i = 0 ; i < activeCars.size () ; i ++)
+    {
+      car = activeCars.elementAt (i) ;
+
+      if (car.evicted)
+      {
+        continue ;
+      }
+
+      sortNeeded (car) ;
+
+      car.moved      = false ;
+      car.checkedCnt = alertCnt ;
+    }
+  } //  END private void checkAlerts
+
+
+  /*************************************************************************
+   *
+   *  Check whether the cars in a grid need an alert.
+   *  Cars that have not moved only check alerts added since their last
+   *  check.
+   *
+   *  @param    grid          Grid of the cars to check.
+   *  @param    alert_no      Number of the alert in the alert table.
+   *
+   *************************************************************************
+   */
+
+  private void checkGridCars (
+    GridCars                  grid,
+    int                       alert_no
+  )
+  {
+    CarInfo                   car ;
+
+    for (int i = 0 ; i < grid.carCnt ; i ++)
+    {
+      car = grid.cars [i] ;
+
+      if ((car.moved || alert_no >= car.checkedCnt) &&
+          alertNeeded (car, alert_no, grid.lonAdjusts [i]))
+      {
+        car.addNeeded (alert_no) ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Group the active cars by grid.
+   *  Add each active car in a shard and the alerts it needs to the
+   *  missing alerts of its grid.  Grids are assigned to shards by grid ID
+   *  so each grid is built by one shard.  Cars are added in car ID order.
+   *
+   *  @param    missed_cars   Missing alerts by grid ID for the shard.
+   *  @param    shard_no      Shard to group.
+   *  @param    shard_cnt     Number of shards.
+   *
+   *************************************************************************
+   */
+
+  private void groupCars (
+    HashMap<Integer,MissingAlerts>
+                              missed_cars,
+    int                       shard_no,
+    int                       shard_cnt
+  )
+  {
+    CarInfo                   car ;
+    Integer                   grid_key ;
+    MissingAlerts             missed_grid ;
+    Alert                     alert ;
+    int                       alert_no ;
+    byte                      missed_count ;
 
-      // System.out.format ("FindAlert: %d %d,%d [%d:%d,%d:%d]",
-                         // cur_car.carId, cur_car.gridY, cur_car.gridX,
-                         // cur_car.gridMinY, cur_car.gridMaxY,
-                         // cur_car.gridMinX, cur_car.gridMaxX) ;
+    for (int car_no = 0 ; car_no < activeCars.size () ; car_no ++)
+    {
+      car       = activeCars.elementAt (car_no) ;
+      grid_key  = carStore.gridId [car.row] ;
 
-      if (cur_car.missedAlertCnt == null)
+      if (shard_cnt > 1 && Math.floorMod (grid_key, shard_cnt) != shard_no)
       {
-        // System.out.format (" no-misses\n") ;
         continue ;
       }
 
-      cur_car.missedMaxCnt = -1 ;
+      car.missedMaxCnt = -1 ;
 
-      lon_adjust = Math.cos (cur_car.latitude * Math.PI / 180.0) ;
-
-      for (alert_no = 0 ; alert_no < alertCnt ; alert_no ++)
+      for (int need_no = 0 ; need_no < car.neededCnt ; need_no ++)
       {
-        cur_alert = alertTbl.elementAt (alert_no) ;
+        alert_no      = car.neededAlerts [need_no] ;
+        alert         = alertTbl.get (alert_no) ;
+        missed_count  = car.getMissed (alert_no) ;
+
+        //  Add the car and alert to the missing alerts for the car's grid.
 
-        // System.out.format (" %s", cur_alert.toString ()) ;
+        missed_grid = missed_cars.get (grid_key) ;
 
-        if (alert_no >= cur_car.missedAlertCnt.length)
+        if (missed_grid == null)
         {
-          missed_count = 0 ;
+          missed_grid = new MissingAlerts (car, (byte) -1, car_no) ;
+
+          missed_cars.put (grid_key, missed_grid) ;
         }
-        else
-        {
-          missed_count = cur_car.missedAlertCnt [alert_no] ;
 
-          if (missed_count < 0)
-          {
-            //  Car has already received this alert.
+        if (missed_grid.gridCars.get (car.carKey) == null)
+        {
+          missed_grid.gridCars.put (car.carKey, car) ;
+        }
 
-            // System.out.format ("+") ;
-            continue ;
-          }
+        if (missed_grid.missedAlerts.get (alert.alertId) == null)
+        {
+          missed_grid.missedAlerts.put (alert.alertId, alert) ;
         }
 
-        //  Check if the alert is in the local area.
+        if (missed_count > car.missedMaxCnt)
+        {
+          car.missedMaxCnt = missed_count ;
+        }
 
-        if (missed_count == 0)
+        if (missed_grid.maxMissedCnt < car.missedMaxCnt)
         {
-          if (cur_car.gridMinX >= cur_alert.gridX ||
-              cur_car.gridMaxX <= cur_alert.gridX ||
-              cur_car.gridMinY >= cur_alert.gridY ||
-              cur_car.gridMaxY <= cur_alert.gridY)
-          {
-            // System.out.format ("-") ;
-            continue ;
-          }
+          missed_grid.maxMissedCnt = car.missedMaxCnt ;
+          missed_grid.sendToCar    = car ;
+        }
+      } //  FOR (int need_no = 0 ; need_no < car.neededCnt ; need_no ++)
+    }   //  FOR (int car_no = 0 ; car_no < activeCars.size () ; car_no ++)
+  } //  END private void groupCars
 
-          lat_diff      = (cur_car.latitude  -
-                           cur_alert.alertInfo.latitude)  * LAT2KM ;
-          lon_diff      = (cur_car.longitude -
-                           cur_alert.alertInfo.longitude) * LON2KM *
-                                                            lon_adjust ;
 
-          dist_sqr      = lat_diff * lat_diff + lon_diff * lon_diff ;
+  /*************************************************************************
+   *
+   *  Group the active cars by grid in parallel.
+   *  Each shard of grids is grouped by its own task.  The grids are then
+   *  put in one table in the order their first car was checked, which is
+   *  the order a single threaded grouping adds them, so the table is
+   *  iterated in the same order.
+   *
+   *  @return                 Missing alerts by grid ID.
+   *
+   *************************************************************************
+   */
 
-          if (dist_sqr > Math.pow (SEPARATION_BASE +
-                                   SEPARATION_TIME * cur_car.speed, 2))
-          {
-            // System.out.format ("!") ;
-            continue ;
-          }
-        }
+  private HashMap<Integer,MissingAlerts> groupCarsParallel ()
+  {
+    int                       shard_cnt = sweepPool.getParallelism () * 4 ;
+    Vector<GroupCarsTask>     tasks     = new Vector<GroupCarsTask> () ;
+    Vector<MissingAlerts>     grids     = new Vector<MissingAlerts> () ;
+    HashMap<Integer,MissingAlerts>
+                              result    =
+                                  new HashMap<Integer,MissingAlerts> () ;
+    MissingAlerts             grid ;
 
-        //  Add the car and alert to the missing alerts for the car's grid.
+    for (int shard_no = 0 ; shard_no < shard_cnt ; shard_no ++)
+    {
+      tasks.addElement (new GroupCarsTask (shard_no, shard_cnt)) ;
+    }
 
-        // System.out.format ("&") ;
+    sweepPool.invoke (new InvokeAllTask (tasks)) ;
 
-        missed_grid = missed_cars.get (cur_car.gridId) ;
+    for (int i = 0 ; i < tasks.size () ; i ++)
+    {
+      grids.addAll (tasks.elementAt (i).missedCars.values ()) ;
+    }
 
-        if (missed_grid == null)
-        {
-          missed_grid = new MissingAlerts (cur_car, (byte) -1) ;
+    Collections.sort (grids, firstCarOrder) ;
 
-          missed_cars.put (cur_car.gridId, missed_grid) ;
-        }
+    for (int i = 0 ; i < grids.size () ; i ++)
+    {
+      grid = grids.elementAt (i) ;
 
-        missed_grid.gridAlertNos [alert_no] = true ;
+      result.put (carStore.gridId [grid.sendToCar.row], grid) ;
+    }
 
-        if (missed_grid.gridCars.get (cur_car.carKey) == null)
-        {
-          missed_grid.gridCars.put (cur_car.carKey, cur_car) ;
-        }
+    return (result) ;
 
-        missed_alert = missed_grid.missedAlerts.get (cur_alert.alertId) ;
+  } //  END private HashMap<Integer,MissingAlerts> groupCarsParallel
 
-        if (missed_alert == null)
-        {
-          missed_grid.missedAlerts.put (cur_alert.alertId, cur_alert) ;
-        }
 
-        if (missed_count > cur_car.missedMaxCnt)
-        {
-          cur_car.missedMaxCnt = missed_count ;
-        }
+  /*************************************************************************
+   *
+   *  Parallel grouping task.
+   *  Groups one shard of the grids into its own table.
+   *
+   *************************************************************************
+   */
 
-        if (missed_grid.maxMissedCnt < cur_car.missedMaxCnt)
-        {
-          missed_grid.maxMissedCnt = cur_car.missedMaxCnt ;
-          missed_grid.sendToCar    = cur_car ;
-        }
-      } //  FOR (alert_no = 0 ; alert_no < alertCnt ; alert_no ++)
+  private class GroupCarsTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L ;
 
-      // System.out.println () ;
+    private final int         shardNo ;
+    private final int         shardCnt ;
 
-    }   //  WHILE (car_interator.hasNext ())
+    public HashMap<Integer,MissingAlerts>
+                              missedCars =
+                                  new HashMap<Integer,MissingAlerts> () ;
 
-    //  For all grids that have cars missing alerts, send the alerts to one
-    //  (or more) of the cars for rebroadcast.
+    public GroupCarsTask (
+      int                     shard_no,
+      int                     shard_cnt
+    )
+    {
+      shardNo   = shard_no ;
+      shardCnt  = shard_cnt ;
+    }
 
-    grid_iterator = missed_cars.values ().iterator () ;
+    protected void compute ()
+    {
+      groupCars (missedCars, shardNo, shardCnt) ;
+    }
+  }   //  END private class GroupCarsTask
 
-    while (grid_iterator.hasNext ())
+
+  /*************************************************************************
+   *
+   *  Task that runs a set of tasks in the pool and waits for them all.
+   *
+   *************************************************************************
+   */
+
+  private static class InvokeAllTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L ;
+
+    private final Collection<? extends RecursiveAction>
+                              tasks ;
+
+    public InvokeAllTask (
+      Collection<? extends RecursiveAction>
+                              task_list
+    )
     {
-      missed_grid = grid_iterator.next () ;
+      tasks = task_list ;
+    }
 
-      //  Build the Cell Comm Message to send to cars for this grid.
+    protected void compute ()
+    {
+      invokeAll (tasks) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send Alerts
+   *  Send all the alerts needed by any car in each grid.  No messages are
+   *  received while the alerts are being found and sent.
+   *
+   *************************************************************************
+   */
+
+  public void sendAlerts ()
+  {
+    tableLock.writeLock ().lock () ;
+    alertLock.writeLock ().lock () ;
+
+    try
+    {
+      resendAlerts () ;
+    }
+    finally
+    {
+      alertLock.writeLock ().unlock () ;
+      tableLock.writeLock ().unlock () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Resend alerts.
+   *  Drop stale cars and expired alerts, then find the cars missing
+   *  alerts and send the alerts to them by grid.
+   *
+   *************************************************************************
+   */
+
+  private void resendAlerts ()
+  {
+    double                    now ;
+
+    HashMap<Integer,MissingAlerts>
+                              missed_cars ;
+    Iterator<MissingAlerts>   grid_iterator ;
+    MissingAlerts             missed_grid ;
+    Iterator<CarInfo>         car_iterator ;
+    int                       car_no ;
+    CarInfo                   cur_car ;
+    byte                      missed_count ;
+    boolean                   parallel ;
+    boolean                   broadcast ;
+    int                   []  grid_ids ;
+
+    int                       alert_no ;
+    Iterator<Alert>           alert_iterator ;
+
+    CellCommMessage           message ;
+
+    //  Drop the cars that have stopped reporting.
+
+    now = simulation.getCurrentTime () ;
 
-      alert_no    = missed_grid.missedAlerts.size () ;
+    evictCars (now) ;
 
-      alert_ids   = new int    [alert_no] ;
-      alert_types = new byte   [alert_no] ;
-      longitudes  = new double [alert_no] ;
-      latitudes   = new double [alert_no] ;
-      times       = new double [alert_no] ;
+    //  Perform the operation only if there are alerts in the table.
+    //  Reschedule the operation as well.
+
+    if (alertTbl.size () <= 0 || alertResendTimer <= 0.0)
+    {
+      alertResendTimer = 0.0 ;
+      return ;
+    }
+
+    if (now < alertResendTimer)
+    {
+      return ;
+    }
+
+    alertResendTimer = now + ALERT_RESEND_INTERVAL ;
+
+    simulation.timerUpdate (alertResendTimer) ;
 
-      message     = new CellCommMessage (MT_ALERT_TBL_SENT,
-                                         null, times,
-                                         longitudes, latitudes, null,
-                                         alert_ids, alert_types, null) ;
+    expireAlerts (now) ;
 
-      alert_no    = 0 ;
+    //  Move the cars to where they are expected to be by now.
 
-      alert_iterator = missed_grid.missedAlerts.values ().iterator () ;
+    if (simulation.deadReckon)
+    {
+      reckonCars (now) ;
+    }
 
-      while (alert_iterator.hasNext ())
+    //  New alerts may be needed by any car with missed alert information.
+
+    if (alertCnt > sweptAlertCnt)
+    {
+      for (int i = 0 ; i < trackedCars.size () ; i ++)
       {
-        cur_alert_info         = alert_iterator.next ().alertInfo ;
+        activateCar (trackedCars.elementAt (i)) ;
+      }
+
+      sweptAlertCnt = alertCnt ;
+    }
+
+    //  Search for missing alerts for each car that has moved, has new
+    //  alerts to check, or still needs alerts.  Cars are checked in car ID
+    //  order, or the cars around each alert are checked if that is
+    //  cheaper.  Either way gives the same alerts.
+
+    Collections.sort (activeCars, carIdOrder) ;
+
+    parallel = (sweepPool != null && activeCars.size () > SWEEP_CHUNK_CARS) ;
+
+    if (CELL_ALERT_SWEEP && alertSweepCheaper ())
+    {
+      checkAlerts () ;
+      alertSweepCnt ++ ;
+    }
+    else if (parallel)
+    {
+      sweepPool.invoke (new CheckCarsTask (0, activeCars.size ())) ;
+      carSweepCnt ++ ;
+    }
+    else
+    {
+      checkCars (0, activeCars.size ()) ;
+      carSweepCnt ++ ;
+    }
+
+    //  Cars that need no alerts are dropped until something changes.
+
+    car_no = 0 ;
 
-        alert_ids   [alert_no] = cur_alert_info.msgId ;
-        alert_types [alert_no] = cur_alert_info.msgType ;
-        longitudes  [alert_no] = cur_alert_info.longitude ;
-        latitudes   [alert_no] = cur_alert_info.latitude ;
-        times       [alert_no] = cur_alert_info.time ;
+    for (int active_no = 0 ; active_no < activeCars.size () ; active_no ++)
+    {
+      cur_car = activeCars.elementAt (active_no) ;
 
-        alert_no ++ ;
+      if (cur_car.evicted || cur_car.neededCnt == 0)
+      {
+        cur_car.active = false ;
+        continue ;
       }
 
+      activeCars.setElementAt (cur_car, car_no ++) ;
+    }
+
+    activeCars.setSize (car_no) ;
+
+    //  Collect the cars and the alerts they need by grid.
+
+    if (parallel)
+    {
+      missed_cars = groupCarsParallel () ;
+    }
+    else
+    {
+      missed_cars = new HashMap<Integer,MissingAlerts> () ;
+
+      groupCars (missed_cars, 0, 1) ;
+    }
+
+    //  For all grids that have cars missing alerts, send the alerts to one
+    //  (or more) of the cars for rebroadcast.
+
+    grid_iterator = missed_cars.values ().iterator () ;
+
+    while (grid_iterator.hasNext ())
+    {
+      missed_grid = grid_iterator.next () ;
+
+      //  Build the Cell Comm Message to send to cars for this grid.
+
+      message = alertMessage (missed_grid.missedAlerts.values ()) ;
+
       // System.out.format ("CellAlert: %s\n", message.toString ()) ;
 
       //  Send the message to the grid's car with the highest missed
       //  alerts and all cars with a missed alert count over the limit.
+      //  If broadcasting the message once to the whole grid takes fewer
+      //  bytes than sending each car in the grid that still needs alerts
+      //  just the alerts it needs, broadcast it instead.  The cars the
+      //  server has in the grid are the ones taken to receive it.
 
-      car_iterator = missed_grid.gridCars.values ().iterator () ;
+      broadcast = CELL_BROADCAST &&
+                  MessageCodec.sizeOf (message) < unicastBytes (missed_grid) ;
 
-      while (car_iterator.hasNext ())
+      if (broadcast && ! replaying)
       {
-        cur_car = car_iterator.next () ;
+        grid_ids = new int [] {
+                          carStore.gridId [missed_grid.sendToCar.row] } ;
 
-        //  Make sure all the alerts are represented in the car's missed
-        //  alerts table.
+        simulation.cellComm.sendMessageToGrids (grid_ids, message) ;
+      }
 
-        if (cur_car.missedAlertCnt.length < alertCnt)
-        {
-          new_alerts = new byte [alertCnt] ;
+      car_iterator = missed_grid.gridCars.values ().iterator () ;
 
-          System.arraycopy (cur_car.missedAlertCnt, 0, new_alerts, 0,
-                            cur_car.missedAlertCnt.length) ;
-          cur_car.missedAlertCnt = new_alerts ;
-        }
+      while (car_iterator.hasNext ())
+      {
+        cur_car = car_iterator.next () ;
 
         //  Send the message and update the missed counts appropriately.
 
-        if (cur_car == missed_grid.sendToCar ||
+        if (broadcast || cur_car == missed_grid.sendToCar ||
             cur_car.missedMaxCnt >= ALERT_MISS_LIMIT)
         {
           // System.out.format ("CellAlertSend: %d\n", cur_car.carId) ;
 
-          sendMessage (cur_car.carId, message) ;
+          if (! broadcast)
+          {
+            sendMessage (cur_car.carId, message) ;
+          }
 
-          for (int i = 0 ; i < alertCnt ; i ++)
+          alert_iterator = missed_grid.missedAlerts.values ().iterator () ;
+
+          while (alert_iterator.hasNext ())
           {
-            if (missed_grid.gridAlertNos [i])
-            {
-              cur_car.missedAlertCnt [i] = -1 ;
-            }
+            setAlertReceived (cur_car, alert_iterator.next ().alertNo) ;
           }
         }
         else
         {
-          for (int i = 0 ; i < alertCnt ; i ++)
+          alert_iterator = missed_grid.missedAlerts.values ().iterator () ;
+
+          while (alert_iterator.hasNext ())
           {
-            if (missed_grid.gridAlertNos [i] &&
-                cur_car.missedAlertCnt   [i] > 0)
+            alert_no     = alert_iterator.next ().alertNo ;
+            missed_count = cur_car.getMissed (alert_no) ;
+
+            if (missed_count > 0)
             {
-              cur_car.missedAlertCnt [i] ++ ;
+              cur_car.setMissed (alert_no, (byte) (missed_count + 1)) ;
             }
           }
         }
       } //  WHILE (car_iterator.hasNext ())
     }   //  WHILE (grid_interator.hasNext ())
 
-  } //  END private void sendAlerts ()
+  } //  END private void resendAlerts ()
+
+
+  /*************************************************************************
+   *
+   *  Build an alert table message for cars.
+   *
+   *  @param    alerts        Alerts to put in the message.
+   *  @return                 Message holding the alerts.
+   *
+   *************************************************************************
+   */
+
+  private CellCommMessage alertMessage (
+    Collection<Alert>         alerts
+  )
+  {
+    int                       alert_no    = alerts.size () ;
+    long                  []  alert_ids   = new long   [alert_no] ;
+    byte                  []  alert_types = new byte   [alert_no] ;
+    double                []  longitudes  = new double [alert_no] ;
+    double                []  latitudes   = new double [alert_no] ;
+    double                []  times       = new double [alert_no] ;
+    Iterator<Alert>           alert_iterator ;
+    AlertInfo                 cur_alert_info ;
+
+    alert_no       = 0 ;
+    alert_iterator = alerts.iterator () ;
+
+    while (alert_iterator.hasNext ())
+    {
+      cur_alert_info         = alert_iterator.next ().alertInfo ;
+
+      alert_ids   [alert_no] = cur_alert_info.msgId ;
+      alert_types [alert_no] = cur_alert_info.msgType ;
+      longitudes  [alert_no] = cur_alert_info.longitude ;
+      latitudes   [alert_no] = cur_alert_info.latitude ;
+      times       [alert_no] = cur_alert_info.time ;
+
+      alert_no ++ ;
+    }
+
+    return (new CellCommMessage (MT_ALERT_TBL_SENT,
+                                 null, times,
+                                 longitudes, latitudes, null, null,
+                                 alert_ids, alert_types, null)) ;
+
+  } //  END private CellCommMessage alertMessage
+
+
+  /*************************************************************************
+   *
+   *  Find the bytes needed to send alerts to a grid's cars one at a time.
+   *  Each car in the grid that still needs alerts is sent a message
+   *  holding only the alerts it needs.  Cars that already have all the
+   *  grid's alerts are sent nothing.
+   *
+   *  @param    missed_grid   Cars in the grid and the alerts they need.
+   *  @return                 Bytes of all the messages.
+   *
+   *************************************************************************
+   */
+
+  private int unicastBytes (
+    MissingAlerts             missed_grid
+  )
+  {
+    Iterator<CarInfo>         car_iterator ;
+    CarInfo                   cur_car ;
+    Vector<Alert>             needed = new Vector<Alert> () ;
+    int                       result = 0 ;
+
+    car_iterator = missed_grid.gridCars.values ().iterator () ;
+
+    while (car_iterator.hasNext ())
+    {
+      cur_car = car_iterator.next () ;
+
+      needed.clear () ;
+
+      for (int need_no = 0 ; need_no < cur_car.neededCnt ; need_no ++)
+      {
+        needed.addElement (alertTbl.get (cur_car.neededAlerts [need_no])) ;
+      }
+
+      if (needed.size () > 0)
+      {
+        result += MessageCodec.sizeOf (alertMessage (needed)) ;
+      }
+    }
+
+    return (result) ;
+
+  } //  END private int unicastBytes
 
 } //  END public class CellServer
@@ -0,0 +1,659 @@
+/***************************************************************************
+ *
+ *  Network cellular service.
+ *  Runs the cell server as a standalone network service.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.io.* ;
+import java.net.* ;
+import java.nio.* ;
+import java.nio.channels.* ;
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Cellular Network Service.
+ *  Accepts TCP connections from load generators running the simulation's
+ *  cars and passes the messages they send to the cell server pipeline.
+ *  Messages the server sends to cars are passed back over the connection
+ *  the car's messages last arrived on, and grid broadcasts are passed to
+ *  every connection.  All connections are handled by one thread with
+ *  non-blocking channels.
+ *
+ *  Every frame is its length, not counting the length itself, followed
+ *  by its kind and contents.  Load generators send FRAME_MESSAGE frames
+ *  holding a sequence number and message, each answered by a FRAME_ACK
+ *  frame once the message has been received, and FRAME_TICK frames
+ *  holding a sequence number and the simulation time, each answered by
+ *  a FRAME_TICK_DONE frame once the alert resend for that time has been
+ *  run.  Messages to cars are sent in FRAME_PUSH_CAR frames holding the
+ *  car ID and message, and FRAME_PUSH_GRIDS frames holding the grid IDs
+ *  and message.  Other clients, such as dashboards, may send FRAME_QUERY
+ *  frames holding a sequence number, the western, southern, eastern and
+ *  northern edges of an area and the earliest alert time wanted, each
+ *  answered by a FRAME_ALERTS frame holding the sequence number, the
+ *  count of alerts in the area and each alert's message ID, type,
+ *  longitude, latitude and time.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CellService implements RoadReportInfo
+{
+  //  Frame kinds.
+
+  static final byte           FRAME_MESSAGE     = 1 ;
+  static final byte           FRAME_ACK         = 2 ;
+  static final byte           FRAME_TICK        = 3 ;
+  static final byte           FRAME_TICK_DONE   = 4 ;
+  static final byte           FRAME_PUSH_CAR    = 5 ;
+  static final byte           FRAME_PUSH_GRIDS  = 6 ;
+  static final byte           FRAME_QUERY       = 7 ;
+  static final byte           FRAME_ALERTS      = 8 ;
+
+  //  Largest frame accepted.  (In bytes, not counting the length.)
+
+  static final int            FRAME_MAX         = 16 * 1024 * 1024 ;
+
+  //  Inner class for a load generator connection.  Frames are read into
+  //  the input buffer, and frames that could not be written immediately
+  //  are queued in order.
+
+  private class Connection
+  {
+    public final SocketChannel      channel ;
+    public final SelectionKey       key ;
+    public ByteBuffer               input   = ByteBuffer.allocate (65536) ;
+    public ArrayDeque<ByteBuffer>   output  = new ArrayDeque<ByteBuffer> () ;
+    public boolean                  open    = true ;
+
+    public Connection (
+      SocketChannel         sock_channel,
+      SelectionKey          sel_key
+    )
+    {
+      channel = sock_channel ;
+      key     = sel_key ;
+    }
+  }   //  END private class Connection
+
+  //  Simulator using this object.
+
+  final RoadReport            simulation ;
+
+  //  Channels the service runs on.
+
+  private final Selector      selector ;
+  private final ServerSocketChannel
+                              listener ;
+
+  //  Open connections and the connection each car's messages last
+  //  arrived on.
+
+  private Vector<Connection>  connections = new Vector<Connection> () ;
+  private IntMap<Connection>  carConns    = new IntMap<Connection> () ;
+
+  //  Number of frames received and messages sent to cars.
+
+  public long                 frameCnt    = 0 ;
+  public long                 pushCnt     = 0 ;
+
+
+  /*************************************************************************
+   *
+   *  Start the cell service program.
+   *  Run the cell server as a network service until it is killed.  If
+   *  a log directory is given the server's tables are rebuilt from the
+   *  log kept there and the messages received are added to it.
+   *
+   *  @param      args    Optional port to listen on and log directory.
+   *
+   *************************************************************************
+   */
+
+  public static void main (
+    String              []  args
+  )
+    throws IOException
+  {
+    RoadReport              sim ;
+    CellService             service ;
+    int                     port    = CELL_SERVICE_PORT ;
+    String                  log_dir = CELL_LOG_DIR ;
+
+    if (args.length > 0)
+    {
+      port = Integer.parseInt (args [0]) ;
+    }
+
+    if (args.length > 1)
+    {
+      log_dir = args [1] ;
+    }
+
+    sim = RoadReport.create () ;
+
+    if (log_dir != null)
+    {
+      sim.cellServer.openLog (log_dir) ;
+    }
+
+    sim.cellPipeline = new CellPipeline (sim, sim.cellServer, CELL_PIPELINE) ;
+
+    service = new CellService (sim, port) ;
+
+    sim.cellComm.setService (service) ;
+
+    System.out.format ("CellService: %d\n", port) ;
+
+    service.serve () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Open the service's listening channel on the loopback address.
+   *
+   *  @param    sim           Road report simulator whose cell server is
+   *                          used.
+   *  @param    port          Port to listen on.
+   *
+   *************************************************************************
+   */
+
+  public CellService (
+    RoadReport                sim,
+    int                       port
+  )
+    throws IOException
+  {
+    simulation  = sim ;
+    selector    = Selector.open () ;
+    listener    = ServerSocketChannel.open () ;
+
+    listener.bind (new InetSocketAddress (InetAddress.getLoopbackAddress (),
+                                          port)) ;
+    listener.configureBlocking (false) ;
+    listener.register (selector, SelectionKey.OP_ACCEPT) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Serve connections.
+   *  Accept connections and handle their frames.  Never returns unless
+   *  the selector fails.
+   *
+   *************************************************************************
+   */
+
+  public void serve ()
+    throws IOException
+  {
+    Iterator<SelectionKey>    key_iterator ;
+    SelectionKey              cur_key ;
+    SocketChannel             channel ;
+    Connection                conn ;
+
+    while (true)
+    {
+      selector.select () ;
+
+      key_iterator = selector.selectedKeys ().iterator () ;
+
+      while (key_iterator.hasNext ())
+      {
+        cur_key = key_iterator.next () ;
+        key_iterator.remove () ;
+
+        if (! cur_key.isValid ())
+        {
+          continue ;
+        }
+
+        //  Accept a new connection.
+
+        if (cur_key.isAcceptable ())
+        {
+          channel = listener.accept () ;
+
+          if (channel == null)
+          {
+            continue ;
+          }
+
+          channel.configureBlocking (false) ;
+          channel.setOption (StandardSocketOptions.TCP_NODELAY, true) ;
+
+          conn = new Connection (channel,
+                                 channel.register (selector,
+                                                   SelectionKey.OP_READ)) ;
+          conn.key.attach (conn) ;
+
+          connections.addElement (conn) ;
+
+          System.out.format ("CellServiceOpen: %s\n",
+                             channel.getRemoteAddress ()) ;
+          continue ;
+        }
+
+        conn = (Connection) cur_key.attachment () ;
+
+        try
+        {
+          if (cur_key.isWritable ())
+          {
+            flush (conn) ;
+          }
+
+          if (cur_key.isValid () && cur_key.isReadable ())
+          {
+            readFrames (conn) ;
+          }
+        }
+        catch (IOException | RuntimeException e)
+        {
+          System.out.format ("CellServiceError: %s\n", e.toString ()) ;
+
+          close (conn) ;
+        }
+      } //  WHILE (key_iterator.hasNext ())
+    }   //  WHILE (true)
+  }     //  END public void serve
+
+
+  /*************************************************************************
+   *
+   *  Send a message to a car.
+   *  The message is sent over the connection the car's messages last
+   *  arrived on.
+   *
+   *  @param    car_id        ID of the car to send the message to.
+   *  @param    message       Message being sent.
+   *  @return                 True if the message was sent.  False if the
+   *                          car is not connected.
+   *
+   *************************************************************************
+   */
+
+  public boolean sendToCar (
+    int                       car_id,
+    CellCommMessage           message
+  )
+  {
+    Connection                conn = carConns.get (car_id) ;
+    ByteBuffer                frame ;
+
+    if (conn == null || ! conn.open)
+    {
+      return (false) ;
+    }
+
+    frame = newFrame (FRAME_PUSH_CAR, 4 + MessageCodec.sizeOf (message)) ;
+
+    frame.putInt (car_id) ;
+    MessageCodec.encode (message, frame) ;
+
+    send (conn, frame) ;
+
+    pushCnt ++ ;
+
+    return (true) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Broadcast a message to the cars in a set of grids.
+   *  The message is sent over every connection, leaving each load
+   *  generator to pass it to its cars in the grids.
+   *
+   *  @param    grid_ids      IDs of the grids to broadcast to.
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
+
+  public void sendToGrids (
+    int                   []  grid_ids,
+    CellCommMessage           message
+  )
+  {
+    ByteBuffer                frame ;
+
+    for (int conn_no = 0 ; conn_no < connections.size () ; conn_no ++)
+    {
+      frame = newFrame (FRAME_PUSH_GRIDS,
+                        4 + grid_ids.length * 4 +
+                        MessageCodec.sizeOf (message)) ;
+
+      frame.putInt (grid_ids.length) ;
+
+      for (int i = 0 ; i < grid_ids.length ; i ++)
+      {
+        frame.putInt (grid_ids [i]) ;
+      }
+
+      MessageCodec.encode (message, frame) ;
+
+      send (connections.elementAt (conn_no), frame) ;
+    }
+
+    pushCnt ++ ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Read and handle the complete frames waiting on a connection.
+   *
+   *  @param    conn          Connection to read from.
+   *
+   *************************************************************************
+   */
+
+  private void readFrames (
+    Connection                conn
+  )
+    throws IOException
+  {
+    ByteBuffer                input ;
+    ByteBuffer                frame ;
+    int                       length ;
+
+    if (conn.channel.read (conn.input) < 0)
+    {
+      close (conn) ;
+      return ;
+    }
+
+    input = conn.input ;
+    input.flip () ;
+
+    while (input.remaining () >= 4)
+    {
+      length = input.getInt (input.position ()) ;
+
+      if (length < 1 || length > FRAME_MAX)
+      {
+        throw new IOException ("Bad frame length " + length) ;
+      }
+
+      if (input.remaining () < 4 + length)
+      {
+        break ;
+      }
+
+      frame = input.duplicate () ;
+      frame.position (input.position () + 4) ;
+      frame.limit    (input.position () + 4 + length) ;
+
+      input.position (input.position () + 4 + length) ;
+
+      handleFrame (conn, frame) ;
+
+      if (! conn.open)
+      {
+        return ;
+      }
+    }
+
+    input.compact () ;
+
+    //  Make room for a frame larger than the buffer.
+
+    if (input.position () >= 4)
+    {
+      length = input.getInt (0) + 4 ;
+
+      if (length > input.capacity ())
+      {
+        input.flip () ;
+
+        conn.input = ByteBuffer.allocate (length) ;
+        conn.input.put (input) ;
+      }
+    }
+  } //  END private void readFrames
+
+
+  /*************************************************************************
+   *
+   *  Handle a frame from a load generator or other client.
+   *
+   *  @param    conn          Connection the frame arrived on.
+   *  @param    frame         Frame contents following its length.
+   *
+   *************************************************************************
+   */
+
+  private void handleFrame (
+    Connection                conn,
+    ByteBuffer                frame
+  )
+    throws IOException
+  {
+    byte                      kind = frame.get () ;
+    long                      seq ;
+    CellCommMessage           message ;
+    ByteBuffer                reply ;
+    AlertInfo             []  alerts ;
+
+    frameCnt ++ ;
+
+    //  Pass a message to the server and acknowledge it.
+
+    if (kind == FRAME_MESSAGE)
+    {
+      seq     = frame.getLong () ;
+      message = MessageCodec.decodeCell (frame) ;
+
+      for (int i = 0 ; message.carIds != null && i < message.carIds.length ;
+           i ++)
+      {
+        carConns.put (message.carIds [i], conn) ;
+      }
+
+      simulation.cellPipeline.receiveMessage (message) ;
+
+      reply = newFrame (FRAME_ACK, 8) ;
+      reply.putLong (seq) ;
+
+      send (conn, reply) ;
+    }
+
+    //  Move the server's time forward and resend alerts.
+
+    else if (kind == FRAME_TICK)
+    {
+      seq = frame.getLong () ;
+
+      simulation.setCurrentTime (frame.getDouble ()) ;
+      simulation.cellPipeline.sendAlerts () ;
+
+      reply = newFrame (FRAME_TICK_DONE, 8) ;
+      reply.putLong (seq) ;
+
+      send (conn, reply) ;
+    }
+
+    //  Answer with the alerts in an area.
+
+    else if (kind == FRAME_QUERY)
+    {
+      seq    = frame.getLong () ;
+      alerts = simulation.cellServer.findAlerts (frame.getDouble (),
+                                                 frame.getDouble (),
+                                                 frame.getDouble (),
+                                                 frame.getDouble (),
+                                                 frame.getDouble ()) ;
+
+      reply = newFrame (FRAME_ALERTS, 8 + 4 + alerts.length * 33) ;
+      reply.putLong (seq) ;
+      reply.putInt  (alerts.length) ;
+
+      for (int i = 0 ; i < alerts.length ; i ++)
+      {
+        reply.putLong   (alerts [i].msgId) ;
+        reply.put       (alerts [i].msgType) ;
+        reply.putDouble (alerts [i].longitude) ;
+        reply.putDouble (alerts [i].latitude) ;
+        reply.putDouble (alerts [i].time) ;
+      }
+
+      send (conn, reply) ;
+    }
+    else
+    {
+      throw new IOException ("Bad frame kind " + kind) ;
+    }
+  } //  END private void handleFrame
+
+
+  /*************************************************************************
+   *
+   *  Create a frame.
+   *  The frame's length and kind are filled in.
+   *
+   *  @param    kind          Kind of frame.
+   *  @param    size          Size of the frame contents after the kind.
+   *  @return                 Frame buffer positioned for the contents.
+   *
+   *************************************************************************
+   */
+
+  static ByteBuffer newFrame (
+    byte                      kind,
+    int                       size
+  )
+  {
+    ByteBuffer                frame = ByteBuffer.allocate (4 + 1 + size) ;
+
+    frame.putInt (1 + size) ;
+    frame.put (kind) ;
+
+    return (frame) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send a frame over a connection.
+   *  Frames that can not be written immediately are queued until the
+   *  channel is writable.
+   *
+   *  @param    conn          Connection to send the frame over.
+   *  @param    frame         Frame to send, positioned at its end.
+   *
+   *************************************************************************
+   */
+
+  private void send (
+    Connection                conn,
+    ByteBuffer                frame
+  )
+  {
+    if (! conn.open)
+    {
+      return ;
+    }
+
+    frame.flip () ;
+
+    conn.output.addLast (frame) ;
+
+    try
+    {
+      flush (conn) ;
+    }
+    catch (IOException e)
+    {
+      System.out.format ("CellServiceError: %s\n", e.toString ()) ;
+
+      close (conn) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Write the queued frames of a connection.
+   *  The connection is only selected for writing while frames remain.
+   *
+   *  @param    conn          Connection to write.
+   *
+   *************************************************************************
+   */
+
+  private void flush (
+    Connection                conn
+  )
+    throws IOException
+  {
+    while (! conn.output.isEmpty ())
+    {
+      conn.channel.write (conn.output.peekFirst ()) ;
+
+      if (conn.output.peekFirst ().hasRemaining ())
+      {
+        conn.key.interestOps (SelectionKey.OP_READ | SelectionKey.OP_WRITE) ;
+        return ;
+      }
+
+      conn.output.removeFirst () ;
+    }
+
+    conn.key.interestOps (SelectionKey.OP_READ) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Close a connection.
+   *  The server's counts so far are printed.
+   *
+   *  @param    conn          Connection to close.
+   *
+   *************************************************************************
+   */
+
+  private void close (
+    Connection                conn
+  )
+  {
+    if (! conn.open)
+    {
+      return ;
+    }
+
+    conn.open = false ;
+    conn.key.cancel () ;
+
+    try
+    {
+      conn.channel.close () ;
+    }
+    catch (IOException e)
+    {
+      //  Nothing more can be done with the channel.
+    }
+
+    connections.removeElement (conn) ;
+
+    System.out.format ("CellServiceClose: %d %d\n", frameCnt, pushCnt) ;
+
+    simulation.cellPipeline.printStages () ;
+    simulation.cellServer.printIngest () ;
+    simulation.cellServer.printSweeps () ;
+    simulation.cellServer.printLog () ;
+  }
+
+} //  END public class CellService
@@ -0,0 +1,992 @@
+/***************************************************************************
+ *
+ *  Geographically sharded cellular server.
+ *  Splits the map into regions each served by its own cell server.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.io.* ;
+import java.util.* ;
+import java.util.concurrent.locks.* ;
+
+
+/***************************************************************************
+ *
+ *  Cellular Server Shards.
+ *  Receives messages from cars through the cellular network and passes
+ *  them on to the cell server shards whose regions they concern.  The
+ *  map is divided into square regions of grids, and each region is
+ *  assigned to a shard.  A car's information is kept by the shard of the
+ *  region it last reported from, and is handed off to another shard when
+ *  the car crosses into one of its regions.  Alerts are kept by the shard
+ *  of their region and by the shards of any regions whose cars may have
+ *  them in their local area.  With only one shard messages are passed
+ *  straight through.  Only one such object is used in the simulation.
+ *
+ *  When a log is open every message received and every alert resend is
+ *  logged before it is passed on, and a snapshot of all the shards is
+ *  logged from time to time, so the shards can be rebuilt by replaying
+ *  the log after a restart.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class CellShards implements RoadReportInfo
+{
+  //  Inner class for the shard a car is kept by and the time of the
+  //  latest location that placed it there.
+
+  private class CarRoute
+  {
+    public int              carId ;
+    public int              shardNo ;
+    public double           time ;
+    public double           queuedTime ;
+
+    public CarRoute (
+      int                   car_id,
+      int                   shard_no,
+      double                car_time
+    )
+    {
+      carId       = car_id ;
+      shardNo     = shard_no ;
+      time        = car_time ;
+      queuedTime  = car_time ;
+    }
+  }   //  END private class CarRoute
+
+  //  Order of car routes in the route expiry queue.
+
+  private static final Comparator<CarRoute>
+                              staleOrder = new Comparator<CarRoute> ()
+  {
+    public int compare (
+      CarRoute                  route_a,
+      CarRoute                  route_b
+    )
+    {
+      if (route_a.queuedTime != route_b.queuedTime)
+      {
+        return (Double.compare (route_a.queuedTime, route_b.queuedTime)) ;
+      }
+
+      return (Integer.compare (route_a.carId, route_b.carId)) ;
+    }
+  } ;
+
+  //  Simulator using this object.
+
+  final RoadReport            simulation ;
+
+  //  Cell server for each shard.
+
+  private final CellServer [] shards ;
+
+  //  Shard each car is kept by, and the cars in the order their routes
+  //  become stale.  Routes are dropped after the same horizon the shards
+  //  evict cars after.
+
+  private IntMap<CarRoute>    carRoutes   = new IntMap<CarRoute> () ;
+  private PriorityQueue<CarRoute>
+                              routeExpiry =
+                                  new PriorityQueue<CarRoute> (64,
+                                                               staleOrder) ;
+
+  //  Log of the messages received, or null if there is none.  The log
+  //  lock is held shared while a message is logged and passed on, and
+  //  exclusively during the alert resend, so the log holds messages and
+  //  resends in the order they were handled.  Snapshots are taken after
+  //  the resend once the snapshot interval has passed.
+
+  private CellLog             log ;
+  private final ReentrantReadWriteLock
+                              logLock       = new ReentrantReadWriteLock () ;
+  private double              snapshotTime  = 0.0 ;
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create the cell server shards.
+   *
+   *  @param    sim           Road report simulator using this object.
+   *  @param    shard_cnt     Number of shards.  At least one is created.
+   *
+   *************************************************************************
+   */
+
+  public CellShards (
+    RoadReport                sim,
+    int                       shard_cnt
+  )
+  {
+    simulation  = sim ;
+    shards      = new CellServer [Math.max (shard_cnt, 1)] ;
+
+    for (int i = 0 ; i < shards.length ; i ++)
+    {
+      shards [i] = new CellServer (sim) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the next car ID.
+   *  Car IDs are provided by the first shard for all of them.
+   *
+   *  @return                 Next available car ID.
+   *
+   *************************************************************************
+   */
+
+  public int newCarId ()
+  {
+    return (shards [0].newCarId ()) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Set the number of threads each shard uses for the alert resend.
+   *
+   *  @param    thread_cnt    Number of threads.  One or less for none.
+   *
+   *************************************************************************
+   */
+
+  public void setSweepThreads (
+    int                       thread_cnt
+  )
+  {
+    for (int i = 0 ; i < shards.length ; i ++)
+    {
+      shards [i].setSweepThreads (thread_cnt) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Receive a message from cellular communications.
+   *  Pass the parts of the message each shard needs on to it.
+   *
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
+
+  public void receiveMessage (
+    CellCommMessage           message
+  )
+  {
+    if (log == null)
+    {
+      routeMessage (message) ;
+      return ;
+    }
+
+    logLock.readLock ().lock () ;
+
+    try
+    {
+      log.append (CellLog.REC_MESSAGE, simulation.getCurrentTime (),
+                  message) ;
+
+      routeMessage (message) ;
+    }
+    finally
+    {
+      logLock.readLock ().unlock () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Send Alerts
+   *  Each shard sends the alerts needed by the cars it keeps.  Routes of
+   *  cars that have stopped reporting are dropped as well.
+   *
+   *************************************************************************
+   */
+
+  public void sendAlerts ()
+  {
+    double                    now = simulation.getCurrentTime () ;
+    CellLog.Snapshot          snapshot ;
+
+    if (log == null)
+    {
+      resend () ;
+      return ;
+    }
+
+    logLock.writeLock ().lock () ;
+
+    try
+    {
+      log.append (CellLog.REC_TICK, now, null) ;
+
+      resend () ;
+
+      if (now >= snapshotTime)
+      {
+        snapshot = new CellLog.Snapshot (now) ;
+
+        for (int i = 0 ; i < shards.length ; i ++)
+        {
+          shards [i].snapshot (snapshot, i) ;
+        }
+
+        log.appendSnapshot (snapshot) ;
+
+        snapshotTime = now + CELL_LOG_SNAPSHOT_INTERVAL ;
+      }
+    }
+    finally
+    {
+      logLock.writeLock ().unlock () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Open a log.
+   *  The shards are rebuilt from what is already in the log, then every
+   *  message received and alert resend is added to it.
+   *
+   *  @param    dir           Directory the log is kept in.
+   *  @throws   IOException   Thrown when the log cannot be read or
+   *                          written.
+   *
+   *************************************************************************
+   */
+
+  public void openLog (
+    String                    dir
+  )
+    throws IOException
+  {
+    log = new CellLog (simulation, dir) ;
+
+    log.recover (this) ;
+    log.start () ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Print the number of alert resends of all the shards that checked
+   *  cars car by car and alert by alert.
+   *
+   *************************************************************************
+   */
+
+  public void printSweeps ()
+  {
+    long                      car_cnt   = 0 ;
+    long                      alert_cnt = 0 ;
+
+    for (int i = 0 ; i < shards.length ; i ++)
+    {
+      car_cnt   += shards [i].carSweepCnt ;
+      alert_cnt += shards [i].alertSweepCnt ;
+    }
+
+    System.out.format ("CellSweeps: %d %d\n", car_cnt, alert_cnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Print the records, batches, bytes and snapshots written to the log.
+   *  Nothing is printed if there is no log.
+   *
+   *************************************************************************
+   */
+
+  public void printLog ()
+  {
+    if (log != null)
+    {
+      System.out.format ("CellLog: %s\n", log.toString ()) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Restore a shard's counters from a snapshot.
+   *
+   *  @param    shard_no      Shard to restore.
+   *  @param    time          Time of the snapshot.
+   *  @param    next_car_id   Last car ID provided by the shard.
+   *  @param    resend_timer  Time of the shard's next alert resend.
+   *
+   *************************************************************************
+   */
+
+  void restoreShard (
+    int                       shard_no,
+    double                    time,
+    int                       next_car_id,
+    double                    resend_timer
+  )
+  {
+    simulation.setCurrentTime (time) ;
+
+    shards [shard_no].restore (next_car_id, resend_timer) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Restore part of a shard's tables from a snapshot message.
+   *  The routes of the cars in a location table are restored along with
+   *  them.
+   *
+   *  @param    shard_no      Shard to restore.
+   *  @param    time          Time of the snapshot.
+   *  @param    message       Alert or location table of the shard.
+   *
+   *************************************************************************
+   */
+
+  void restoreMessage (
+    int                       shard_no,
+    double                    time,
+    CellCommMessage           message
+  )
+  {
+    CarRoute                  route ;
+
+    simulation.setCurrentTime (time) ;
+
+    shards [shard_no].receiveMessage (message) ;
+
+    if (shards.length == 1 || message.msgType != MT_LOC_TBL_SENT)
+    {
+      return ;
+    }
+
+    synchronized (carRoutes)
+    {
+      for (int car_no = 0 ; car_no < message.carIds.length ; car_no ++)
+      {
+        route = new CarRoute (message.carIds  [car_no], shard_no,
+                              message.msgTime [car_no]) ;
+
+        carRoutes.put (route.carId, route) ;
+        routeExpiry.add (route) ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Restore a car's missed alerts from a snapshot.
+   *
+   *  @param    shard_no      Shard keeping the car.
+   *  @param    time          Time of the snapshot.
+   *  @param    handoff       Car's missed alerts.
+   *
+   *************************************************************************
+   */
+
+  void restoreCar (
+    int                       shard_no,
+    double                    time,
+    CellServer.CarHandoff     handoff
+  )
+  {
+    simulation.setCurrentTime (time) ;
+
+    shards [shard_no].takeCar (handoff) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Replay a logged message.
+   *
+   *  @param    time          Time the message was received at.
+   *  @param    message       Message received.
+   *
+   *************************************************************************
+   */
+
+  void replayMessage (
+    double                    time,
+    CellCommMessage           message
+  )
+  {
+    simulation.setCurrentTime (time) ;
+
+    routeMessage (message) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Replay a logged alert resend.
+   *  Nothing is sent to cars.
+   *
+   *  @param    time          Time of the alert resend.
+   *
+   *************************************************************************
+   */
+
+  void replayTick (
+    double                    time
+  )
+  {
+    simulation.setCurrentTime (time) ;
+
+    for (int i = 0 ; i < shards.length ; i ++)
+    {
+      shards [i].replaying = true ;
+    }
+
+    try
+    {
+      resend () ;
+    }
+    finally
+    {
+      for (int i = 0 ; i < shards.length ; i ++)
+      {
+        shards [i].replaying = false ;
+      }
+    }
+
+    snapshotTime = time + CELL_LOG_SNAPSHOT_INTERVAL ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Pass a message on to the shards.
+   *  Pass the parts of the message each shard needs on to it.
+   *
+   *  @param    message       Message being sent.
+   *
+   *************************************************************************
+   */
+
+  private void routeMessage (
+    CellCommMessage           message
+  )
+  {
+    if (shards.length == 1)
+    {
+      shards [0].receiveMessage (message) ;
+    }
+    else if (message.msgType == MT_LOC_TBL_SENT)
+    {
+      routeLocations (message) ;
+    }
+    else if (message.msgType == MT_ALERT_TBL_SENT)
+    {
+      routeAlerts (message) ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Resend alerts.
+   *  Each shard sends the alerts needed by the cars it keeps.  Routes of
+   *  cars that have stopped reporting are dropped as well.
+   *
+   *************************************************************************
+   */
+
+  private void resend ()
+  {
+    double                    now = simulation.getCurrentTime () ;
+    CarRoute                  route ;
+
+    if (shards.length > 1)
+    {
+      synchronized (carRoutes)
+      {
+        while (routeExpiry.size () > 0 &&
+               routeExpiry.peek ().queuedTime + CAR_INFO_HORIZON <= now)
+        {
+          route = routeExpiry.poll () ;
+
+          if (route.time > route.queuedTime)
+          {
+            route.queuedTime = route.time ;
+            routeExpiry.add (route) ;
+            continue ;
+          }
+
+          carRoutes.remove (route.carId) ;
+        }
+      }
+    }
+
+    for (int i = 0 ; i < shards.length ; i ++)
+    {
+      shards [i].sendAlerts () ;
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find the alerts in an area.
+   *  Each alert is taken from the shard of its own region, since the
+   *  shards of nearby regions may have it as well.
+   *
+   *  @param    min_lon       Western edge of the area.
+   *  @param    min_lat       Southern edge of the area.
+   *  @param    max_lon       Eastern edge of the area.
+   *  @param    max_lat       Northern edge of the area.
+   *  @param    since         Earliest alert time wanted.
+   *  @return                 Alerts found that have not expired.
+   *
+   *************************************************************************
+   */
+
+  public AlertInfo [] findAlerts (
+    double                    min_lon,
+    double                    min_lat,
+    double                    max_lon,
+    double                    max_lat,
+    double                    since
+  )
+  {
+    Vector<AlertInfo>         result = new Vector<AlertInfo> () ;
+    AlertInfo             []  found ;
+
+    if (shards.length == 1)
+    {
+      return (shards [0].findAlerts (min_lon, min_lat, max_lon, max_lat,
+                                     since)) ;
+    }
+
+    for (int i = 0 ; i < shards.length ; i ++)
+    {
+      found = shards [i].findAlerts (min_lon, min_lat, max_lon, max_lat,
+                                     since) ;
+
+      for (int j = 0 ; j < found.length ; j ++)
+      {
+        if (regionShard (found [j].longitude, found [j].latitude) == i)
+        {
+          result.addElement (found [j]) ;
+        }
+      }
+    }
+
+    return (result.toArray (new AlertInfo [result.size ()])) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Print the location tables ingested by all the shards.
+   *  The tables, entries and CPU time spent ingesting them (in
+   *  microseconds) are printed.  A table split between shards is counted
+   *  once by each of them.
+   *
+   *************************************************************************
+   */
+
+  public void printIngest ()
+  {
+    long                      table_cnt = 0 ;
+    long                      entry_cnt = 0 ;
+    long                      cpu_nanos = 0 ;
+
+    for (int i = 0 ; i < shards.length ; i ++)
+    {
+      table_cnt += shards [i].locTableCnt.get () ;
+      entry_cnt += shards [i].locEntryCnt.get () ;
+      cpu_nanos += shards [i].locIngestCpu.get () ;
+    }
+
+    System.out.format ("LocIngest: %d %d %.1f\n",
+                       table_cnt, entry_cnt, cpu_nanos / 1000.0) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Route a location table.
+   *  Each location is passed to the shard of the region it is in, unless
+   *  it is older than the car's latest location, in which case it goes
+   *  to the shard keeping the car.  A car whose latest location is in
+   *  another shard's region is handed off to that shard first.  Tables
+   *  are routed one at a time.
+   *
+   *  @param    message       Location table message.
+   *
+   *************************************************************************
+   */
+
+  private void routeLocations (
+    CellCommMessage           message
+  )
+  {
+    int                       entry_max   = message.carIds.length ;
+    int                   []  entry_shard = new int [entry_max] ;
+    int                   []  entry_cnt   = new int [shards.length] ;
+    int                       car_id ;
+    double                    msg_time ;
+    int                       shard_no ;
+    CarRoute                  route ;
+    CellServer.CarHandoff     handoff ;
+
+    synchronized (carRoutes)
+    {
+      for (int car_no = 0 ; car_no < entry_max ; car_no ++)
+      {
+        car_id    = message.carIds  [car_no] ;
+        msg_time  = message.msgTime [car_no] ;
+        shard_no  = regionShard (message.longitude [car_no],
+                                 message.latitude  [car_no]) ;
+
+        route     = carRoutes.get (car_id) ;
+
+        if (route == null)
+        {
+          route = new CarRoute (car_id, shard_no, msg_time) ;
+
+          carRoutes.put (car_id, route) ;
+          routeExpiry.add (route) ;
+        }
+        else if (route.time < msg_time)
+        {
+          //  Move the car's information to the shard of its new region.
+
+          if (route.shardNo != shard_no)
+          {
+            System.out.format ("CarHandoff: %g %d %d %d\n",
+                               simulation.getCurrentTime (),
+                               car_id, route.shardNo, shard_no) ;
+
+            handoff = shards [route.shardNo].handOffCar (car_id) ;
+
+            if (handoff != null)
+            {
+              shards [shard_no].takeCar (handoff) ;
+            }
+
+            route.shardNo = shard_no ;
+          }
+
+          route.time = msg_time ;
+        }
+        else
+        {
+          shard_no = route.shardNo ;
+        }
+
+        entry_shard [car_no] = shard_no ;
+        entry_cnt [shard_no] ++ ;
+      }
+
+      //  Pass each shard its part of the table.  The route lock is held
+      //  until the shards have the locations, so another table cannot
+      //  hand a car off to a new shard in between and leave this one
+      //  adding the car back to the old shard.
+
+      for (shard_no = 0 ; shard_no < shards.length ; shard_no ++)
+      {
+        if (entry_cnt [shard_no] == 0)
+        {
+          continue ;
+        }
+
+        shards [shard_no].receiveMessage (
+                      selectLocations (message, entry_shard, shard_no,
+                                       entry_cnt [shard_no])) ;
+      }
+    }
+  } //  END private void routeLocations
+
+
+  /*************************************************************************
+   *
+   *  Select the locations of a location table for one shard.
+   *
+   *  @param    message       Location table message.
+   *  @param    entry_shard   Shard each location is passed to.
+   *  @param    shard_no      Shard to select the locations for.
+   *  @param    entry_cnt     Number of locations for the shard.
+   *  @return                 Location table message for the shard.
+   *
+   *************************************************************************
+   */
+
+  private CellCommMessage selectLocations (
+    CellCommMessage           message,
+    int                   []  entry_shard,
+    int                       shard_no,
+    int                       entry_cnt
+  )
+  {
+    int                   []  car_ids  = new int    [entry_cnt] ;
+    double                []  times    = new double [entry_cnt] ;
+    double                []  lons     = new double [entry_cnt] ;
+    double                []  lats     = new double [entry_cnt] ;
+    double                []  speeds   = new double [entry_cnt] ;
+    double                []  bearings = new double [entry_cnt] ;
+    int                       entry_no = 0 ;
+
+    for (int car_no = 0 ; car_no < entry_shard.length ; car_no ++)
+    {
+      if (entry_shard [car_no] != shard_no)
+      {
+        continue ;
+      }
+
+      car_ids  [entry_no] = message.carIds    [car_no] ;
+      times    [entry_no] = message.msgTime   [car_no] ;
+      lons     [entry_no] = message.longitude [car_no] ;
+      lats     [entry_no] = message.latitude  [car_no] ;
+      speeds   [entry_no] = message.speed     [car_no] ;
+      bearings [entry_no] = message.bearing   [car_no] ;
+      entry_no ++ ;
+    }
+
+    return (new CellCommMessage (MT_LOC_TBL_SENT, car_ids,
+                                 times, lons, lats, speeds, bearings,
+                                 null, null, null)) ;
+  } //  END private CellCommMessage selectLocations
+
+
+  /*************************************************************************
+   *
+   *  Route an alert table.
+   *  Each shard is passed the alerts in or near its regions, along with
+   *  which of them were received by the cars it keeps.
+   *
+   *  @param    message       Alert table message.
+   *
+   *************************************************************************
+   */
+
+  private void routeAlerts (
+    CellCommMessage           message
+  )
+  {
+    int                       alert_max = message.msgAlertTbl.length ;
+    int                       car_max   = message.carIds.length ;
+    boolean               []  alert_shards ;
+    int                   []  car_shard = new int [car_max] ;
+    int                   []  columns   = new int [alert_max] ;
+    int                   []  rows      = new int [car_max] ;
+    int                       alert_cnt ;
+    int                       car_cnt ;
+    CarRoute                  route ;
+    CarAlertMatrix.Builder    matrix ;
+    long                  []  alert_ids ;
+    byte                  []  alert_types ;
+    double                []  times ;
+    double                []  lons ;
+    double                []  lats ;
+    int                   []  car_ids ;
+
+    //  Find the shards the alerts belong to and the shards keeping the
+    //  cars.
+
+    alert_shards = new boolean [alert_max * shards.length] ;
+
+    for (int alert_no = 0 ; alert_no < alert_max ; alert_no ++)
+    {
+      nearShards (message.longitude [alert_no], message.latitude [alert_no],
+                  alert_shards, alert_no * shards.length) ;
+    }
+
+    synchronized (carRoutes)
+    {
+      for (int car_no = 0 ; car_no < car_max ; car_no ++)
+      {
+        route = carRoutes.get (message.carIds [car_no]) ;
+
+        car_shard [car_no] = (route == null) ? -1 : route.shardNo ;
+      }
+    }
+
+    //  Build and pass on the table for each shard with alerts.
+
+    for (int shard_no = 0 ; shard_no < shards.length ; shard_no ++)
+    {
+      alert_cnt = 0 ;
+
+      for (int alert_no = 0 ; alert_no < alert_max ; alert_no ++)
+      {
+        if (alert_shards [alert_no * shards.length + shard_no])
+        {
+          columns [alert_cnt ++] = alert_no ;
+        }
+      }
+
+      if (alert_cnt == 0)
+      {
+        continue ;
+      }
+
+      car_cnt = 0 ;
+
+      for (int car_no = 0 ; car_no < car_max ; car_no ++)
+      {
+        if (car_shard [car_no] == shard_no)
+        {
+          rows [car_cnt ++] = car_no ;
+        }
+      }
+
+      alert_ids   = new long   [alert_cnt] ;
+      alert_types = new byte   [alert_cnt] ;
+      times       = new double [alert_cnt] ;
+      lons        = new double [alert_cnt] ;
+      lats        = new double [alert_cnt] ;
+      car_ids     = new int    [car_cnt] ;
+      matrix      = new CarAlertMatrix.Builder (car_cnt, alert_cnt) ;
+
+      for (int i = 0 ; i < alert_cnt ; i ++)
+      {
+        alert_ids   [i] = message.msgAlertTbl  [columns [i]] ;
+        alert_types [i] = message.msgAlertType [columns [i]] ;
+        times       [i] = message.msgTime      [columns [i]] ;
+        lons        [i] = message.longitude    [columns [i]] ;
+        lats        [i] = message.latitude     [columns [i]] ;
+      }
+
+      for (int j = 0 ; j < car_cnt ; j ++)
+      {
+        car_ids [j] = message.carIds [rows [j]] ;
+
+        for (int i = 0 ; i < alert_cnt ; i ++)
+        {
+          if (message.carAlertTbl.get (rows [j], columns [i]))
+          {
+            matrix.set (j, i) ;
+          }
+        }
+      }
+
+      shards [shard_no].receiveMessage (
+                    new CellCommMessage (MT_ALERT_TBL_SENT, car_ids,
+                                         times, lons, lats, null, null,
+                                         alert_ids, alert_types,
+                                         matrix.build ())) ;
+    } //  FOR (int shard_no = 0 ; shard_no < shards.length ; shard_no ++)
+  }   //  END private void routeAlerts
+
+
+  /*************************************************************************
+   *
+   *  Determine the shard of the region a location is in.
+   *
+   *  @param    lon           Longitude of the location.
+   *  @param    lat           Latitude of the location.
+   *  @return                 Shard of the location's region.
+   *
+   *************************************************************************
+   */
+
+  private int regionShard (
+    double                    lon,
+    double                    lat
+  )
+  {
+    double                    lon_adjust = Math.cos (lat * Math.PI / 180.0) ;
+    int                       grid_x ;
+    int                       grid_y ;
+
+    grid_x = (int) (lon * LON2KM * lon_adjust / GRID_KM) ;
+    grid_y = (int) (lat * LAT2KM / GRID_KM) ;
+
+    return (shardOf (Math.floorDiv (grid_x, CELL_REGION_GRIDS),
+                     Math.floorDiv (grid_y, CELL_REGION_GRIDS))) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find the shards an alert at a location belongs to.
+   *  These are the shards of all regions within the region margin of the
+   *  location's grid.  Shards repeat every shard count regions along a
+   *  row or column, so no more regions than that are checked along
+   *  either one however wide the margin is.
+   *
+   *  @param    lon           Longitude of the location.
+   *  @param    lat           Latitude of the location.
+   *  @param    near          Flags set for each shard found.
+   *  @param    first_no      Flag of the first shard.
+   *
+   *************************************************************************
+   */
+
+  private void nearShards (
+    double                    lon,
+    double                    lat,
+    boolean               []  near,
+    int                       first_no
+  )
+  {
+    double                    lon_adjust = Math.cos (lat * Math.PI / 180.0) ;
+    int                       grid_x ;
+    int                       grid_y ;
+    int                       min_x ;
+    int                       max_x ;
+    int                       min_y ;
+    int                       max_y ;
+
+    grid_x = (int) (lon * LON2KM * lon_adjust / GRID_KM) ;
+    grid_y = (int) (lat * LAT2KM / GRID_KM) ;
+
+    min_x  = Math.floorDiv (grid_x - CELL_REGION_MARGIN, CELL_REGION_GRIDS) ;
+    max_x  = Math.floorDiv (grid_x + CELL_REGION_MARGIN, CELL_REGION_GRIDS) ;
+    min_y  = Math.floorDiv (grid_y - CELL_REGION_MARGIN, CELL_REGION_GRIDS) ;
+    max_y  = Math.floorDiv (grid_y + CELL_REGION_MARGIN, CELL_REGION_GRIDS) ;
+
+    max_x  = Math.min (max_x, min_x + shards.length - 1) ;
+    max_y  = Math.min (max_y, min_y + shards.length - 1) ;
+
+    for (int x = min_x ; x <= max_x ; x ++)
+    {
+      for (int y = min_y ; y <= max_y ; y ++)
+      {
+        near [first_no + shardOf (x, y)] = true ;
+      }
+    }
+  }
+
+
+  /*************************************************************************
+   *
+   *  Determine the shard a region is assigned to.
+   *  Neighboring regions are assigned to different shards where possible.
+   *
+   *  @param    region_x      Region column.
+   *  @param    region_y      Region row.
+   *  @return                 Shard of the region.
+   *
+   *************************************************************************
+   */
+
+  private int shardOf (
+    int                       region_x,
+    int                       region_y
+  )
+  {
+    return (Math.floorMod (region_x * 3 + region_y, shards.length)) ;
+  }
+
+} //  END public class CellShards
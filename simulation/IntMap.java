@@ -0,0 +1,360 @@
+/***************************************************************************
+ *
+ *  Integer keyed map.
+ *  Hash table from int keys to objects.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.util.* ;
+
+
+/***************************************************************************
+ *
+ *  Integer keyed map.
+ *  Open addressed hash table from int keys to objects.  Keys are kept in
+ *  a primitive array so no Integer objects are created for lookups.
+ *  Null values can not be stored.  The entries can be iterated by slot:
+ *    for (i = 0 ; i < m.slots () ; i ++)
+ *      if (m.valueAt (i) != null) ... m.keyAt (i) ...
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+class IntMap<V>
+{
+  //  Initial number of slots in the hash table.  Must be a power of 2.
+
+  private static final int    INITIAL_SLOTS   = 16 ;
+
+  //  Hash table.  Empty slots have a null value.
+
+  private int             []  keys ;
+  private Object          []  values ;
+  private int                 slotMask ;
+  private int                 entryCnt ;
+
+
+  /*************************************************************************
+   *
+   *  Constructor.
+   *  Create an empty map.
+   *
+   *************************************************************************
+   */
+
+  public IntMap ()
+  {
+    allocate (INITIAL_SLOTS) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the number of entries in the map.
+   *
+   *  @return                 Number of entries.
+   *
+   *************************************************************************
+   */
+
+  public int size ()
+  {
+    return (entryCnt) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the number of slots in the hash table.
+   *
+   *  @return                 Number of slots for iterating by slot.
+   *
+   *************************************************************************
+   */
+
+  public int slots ()
+  {
+    return (values.length) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the key in a slot.
+   *
+   *  @param    slot          Slot number.
+   *  @return                 Key in the slot.  Only valid if the slot's
+   *                          value is not null.
+   *
+   *************************************************************************
+   */
+
+  public int keyAt (
+    int                       slot
+  )
+  {
+    return (keys [slot]) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Return the value in a slot.
+   *
+   *  @param    slot          Slot number.
+   *  @return                 Value in the slot or null if it is empty.
+   *
+   *************************************************************************
+   */
+
+  @SuppressWarnings ("unchecked")
+  public V valueAt (
+    int                       slot
+  )
+  {
+    return ((V) values [slot]) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Remove all entries from the map.
+   *
+   *************************************************************************
+   */
+
+  public void clear ()
+  {
+    Arrays.fill (values, null) ;
+    entryCnt = 0 ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Find a value.
+   *
+   *  @param    key           Key of the value.
+   *  @return                 Value stored with the key or null if none.
+   *
+   *************************************************************************
+   */
+
+  @SuppressWarnings ("unchecked")
+  public V get (
+    int                       key
+  )
+  {
+    int                       slot = hashSlot (key) ;
+
+    while (values [slot] != null)
+    {
+      if (keys [slot] == key)
+      {
+        return ((V) values [slot]) ;
+      }
+
+      slot = (slot + 1) & slotMask ;
+    }
+
+    return (null) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Add or replace a value.
+   *
+   *  @param    key           Key of the value.
+   *  @param    value         Value to store.  Must not be null.
+   *
+   *************************************************************************
+   */
+
+  public void put (
+    int                       key,
+    V                         value
+  )
+  {
+    int                       slot ;
+
+    //  Keep the table at most half full so probe sequences stay short.
+
+    if ((entryCnt + 1) * 2 > values.length)
+    {
+      rehash (values.length * 2) ;
+    }
+
+    slot = hashSlot (key) ;
+
+    while (values [slot] != null)
+    {
+      if (keys [slot] == key)
+      {
+        values [slot] = value ;
+        return ;
+      }
+
+      slot = (slot + 1) & slotMask ;
+    }
+
+    keys   [slot] = key ;
+    values [slot] = value ;
+    entryCnt ++ ;
+
+  } //  END public void put
+
+
+  /*************************************************************************
+   *
+   *  Remove a value.
+   *  Entries after it in the same probe sequence are moved back to fill
+   *  the hole.
+   *
+   *  @param    key           Key of the value.
+   *  @return                 Value that was removed or null if none.
+   *
+   *************************************************************************
+   */
+
+  @SuppressWarnings ("unchecked")
+  public V remove (
+    int                       key
+  )
+  {
+    int                       slot = hashSlot (key) ;
+    int                       next ;
+    int                       home ;
+    Object                    result ;
+
+    while (values [slot] != null && keys [slot] != key)
+    {
+      slot = (slot + 1) & slotMask ;
+    }
+
+    result = values [slot] ;
+
+    if (result == null)
+    {
+      return (null) ;
+    }
+
+    //  Shift following entries back into the hole unless doing so would
+    //  move them in front of their home slot.
+
+    next = slot ;
+
+    while (true)
+    {
+      next = (next + 1) & slotMask ;
+
+      if (values [next] == null)
+      {
+        break ;
+      }
+
+      home = hashSlot (keys [next]) ;
+
+      if (((next - home) & slotMask) >= ((next - slot) & slotMask))
+      {
+        keys   [slot] = keys   [next] ;
+        values [slot] = values [next] ;
+        slot          = next ;
+      }
+    }
+
+    values [slot] = null ;
+    entryCnt -- ;
+
+    return ((V) result) ;
+
+  } //  END public V remove
+
+
+  /*************************************************************************
+   *
+   *  Determine the home slot of a key.
+   *
+   *  @param    key           Key to hash.
+   *  @return                 Slot the key hashes to.
+   *
+   *************************************************************************
+   */
+
+  private int hashSlot (
+    int                       key
+  )
+  {
+    int                       hash ;
+
+    hash  = key * 0x9E3779B9 ;
+    hash ^= (hash >>> 16) ;
+
+    return (hash & slotMask) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Allocate empty hash table arrays.
+   *
+   *  @param    slot_cnt      Number of slots.  Must be a power of 2.
+   *
+   *************************************************************************
+   */
+
+  private void allocate (
+    int                       slot_cnt
+  )
+  {
+    keys      = new int    [slot_cnt] ;
+    values    = new Object [slot_cnt] ;
+    slotMask  = slot_cnt - 1 ;
+    entryCnt  = 0 ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Grow the hash table.
+   *  Move all the entries into a new table of the given size.
+   *
+   *  @param    slot_cnt      Number of slots.  Must be a power of 2.
+   *
+   *************************************************************************
+   */
+
+  private void rehash (
+    int                       slot_cnt
+  )
+  {
+    int                   []  old_keys    = keys ;
+    Object                []  old_values  = values ;
+    int                       slot ;
+
+    allocate (slot_cnt) ;
+
+    for (int i = 0 ; i < old_values.length ; i ++)
+    {
+      if (old_values [i] != null)
+      {
+        slot = hashSlot (old_keys [i]) ;
+
+        while (values [slot] != null)
+        {
+          slot = (slot + 1) & slotMask ;
+        }
+
+        keys   [slot] = old_keys   [i] ;
+        values [slot] = old_values [i] ;
+        entryCnt ++ ;
+      }
+    }
+  } //  END private void rehash
+
+} //  END class IntMap
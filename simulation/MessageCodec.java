@@ -0,0 +1,960 @@
+/***************************************************************************
+ *
+ *  Message wire codec.
+ *  Compact binary form of the messages sent between cars and the server.
+ *
+ *  @copyright  Copyright 2014 Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+import java.nio.* ;
+
+
+/***************************************************************************
+ *
+ *  Message Codec.
+ *  Encodes car and cell messages into the bytes a radio or cellular link
+ *  would carry, and decodes them straight from a byte buffer.
+ *
+ *  Counts and IDs are unsigned variable length integers of 7 bits a byte
+ *  (varints).  Signed values are zig-zag encoded first.  A table is
+ *  preceded by its length plus one, with zero for a table not used.
+ *  Car ID tables are encoded as differences from the previous ID, and
+ *  message IDs as the car ID and sequence number.  Times are encoded in
+ *  milliseconds relative to the time of the message, or as full doubles
+ *  when they are not whole milliseconds, so they decode exactly.
+ *  Latitudes and longitudes are quantized to LOC_QUANTUM degrees, speeds
+ *  to SPEED_QUANTUM kph and bearings to BEARING_QUANTUM degrees.  Car
+ *  alert tables are packed a bit per flag with no padding between rows.
+ *
+ *  @author     Emery Newlon
+ *
+ ***************************************************************************
+ */
+
+public class MessageCodec implements RoadReportInfo
+{
+  //  Quantization of locations and bearings (in degrees) and speeds (in
+  //  kph).
+
+  static final double         LOC_QUANTUM     = 1.0e-7 ;
+  static final double         SPEED_QUANTUM   = 0.01 ;
+  static final double         BEARING_QUANTUM = 0.1 ;
+
+  //  Inner class for counts of messages and their encoded bytes by
+  //  message type.
+
+  public static class Counts
+  {
+    private final long    []  msgCnt  = new long [256] ;
+    private final long    []  byteCnt = new long [256] ;
+
+    public synchronized void add (
+      byte                  msg_type,
+      int                   bytes
+    )
+    {
+      msgCnt  [msg_type & 0xFF] ++ ;
+      byteCnt [msg_type & 0xFF] += bytes ;
+    }
+
+    //  Total bytes of all message types.
+
+    public synchronized long bytes ()
+    {
+      long                  result = 0 ;
+
+      for (int i = 0 ; i < byteCnt.length ; i ++)
+      {
+        result += byteCnt [i] ;
+      }
+
+      return (result) ;
+    }
+
+    //  Total bytes followed by the type, message count and bytes of each
+    //  type sent.
+
+    public synchronized String toString ()
+    {
+      StringBuilder         result = new StringBuilder () ;
+
+      result.append (bytes ()) ;
+
+      for (int i = 0 ; i < msgCnt.length ; i ++)
+      {
+        if (msgCnt [i] > 0)
+        {
+          result.append (String.format (" %d:%d:%d",
+                                        i, msgCnt [i], byteCnt [i])) ;
+        }
+      }
+
+      return (result.toString ()) ;
+    }
+  }   //  END public static class Counts
+
+
+  /*************************************************************************
+   *
+   *  Return the encoded size of a car message.
+   *
+   *  @param    message       Message to size.
+   *  @return                 Number of bytes written by encode.
+   *
+   *************************************************************************
+   */
+
+  public static int sizeOf (
+    CarCommMessage            message
+  )
+  {
+    long                      base = timeBase (message.msgTime) ;
+    int                       result ;
+
+    result  = 1 + varSize (message.msgId >>> MSG_SEQ_BITS) +
+                  varSize (message.msgId &   MSG_SEQ_MASK) +
+              timeSize (message.msgTime, 0) + 4 + 4 +
+              varSize (zigZag (quantize (message.speed, SPEED_QUANTUM))) +
+              varSize (zigZag (quantize (message.bearing, BEARING_QUANTUM))) ;
+
+    result += idsSize (message.carIdTbl) ;
+    result += msgIdsSize (message.msgAlertTbl) ;
+
+    result += varSize ((message.timeAlertTbl == null)
+                          ? 0 : message.timeAlertTbl.length + 1) ;
+
+    for (int i = 0 ; message.timeAlertTbl != null &&
+                     i < message.timeAlertTbl.length ; i ++)
+    {
+      result += timeSize (message.timeAlertTbl [i], base) ;
+    }
+
+    result += matrixSize (message.carAlertTbl) ;
+
+    return (result) ;
+  } //  END public static int sizeOf (CarCommMessage
+
+
+  /*************************************************************************
+   *
+   *  Encode a car message.
+   *
+   *  @param    message       Message to encode.
+   *  @param    buffer        Buffer to write the message into.  It must
+   *                          have room for sizeOf bytes.
+   *
+   *************************************************************************
+   */
+
+  public static void encode (
+    CarCommMessage            message,
+    ByteBuffer                buffer
+  )
+  {
+    long                      base = timeBase (message.msgTime) ;
+
+    buffer.put (message.msgType) ;
+
+    putVar (buffer, message.msgId >>> MSG_SEQ_BITS) ;
+    putVar (buffer, message.msgId &   MSG_SEQ_MASK) ;
+
+    putTime (buffer, message.msgTime, 0) ;
+
+    buffer.putInt ((int) quantize (message.longitude, LOC_QUANTUM)) ;
+    buffer.putInt ((int) quantize (message.latitude,  LOC_QUANTUM)) ;
+
+    putVar (buffer, zigZag (quantize (message.speed,   SPEED_QUANTUM))) ;
+    putVar (buffer, zigZag (quantize (message.bearing, BEARING_QUANTUM))) ;
+
+    putIds    (buffer, message.carIdTbl) ;
+    putMsgIds (buffer, message.msgAlertTbl) ;
+
+    putVar (buffer, (message.timeAlertTbl == null)
+                        ? 0 : message.timeAlertTbl.length + 1) ;
+
+    for (int i = 0 ; message.timeAlertTbl != null &&
+                     i < message.timeAlertTbl.length ; i ++)
+    {
+      putTime (buffer, message.timeAlertTbl [i], base) ;
+    }
+
+    putMatrix (buffer, message.carAlertTbl) ;
+  } //  END public static void encode (CarCommMessage
+
+
+  /*************************************************************************
+   *
+   *  Decode a car message.
+   *  The message is read from the buffer's position, which is left after
+   *  it.
+   *
+   *  @param    buffer        Buffer to read the message from.
+   *  @return                 Message read.
+   *
+   *************************************************************************
+   */
+
+  public static CarCommMessage decodeCar (
+    ByteBuffer                buffer
+  )
+  {
+    byte                      msg_type ;
+    int                       car_id ;
+    long                      msg_seq ;
+    double                    msg_time ;
+    double                    lon ;
+    double                    lat ;
+    double                    spd ;
+    double                    brg ;
+    int                   []  car_ids ;
+    long                  []  alert_ids ;
+    double                []  alert_times = null ;
+    long                      base ;
+    int                       length ;
+
+    msg_type  = buffer.get () ;
+    car_id    = (int) getVar (buffer) ;
+    msg_seq   = getVar (buffer) ;
+    msg_time  = getTime (buffer, 0) ;
+    lon       = buffer.getInt () * LOC_QUANTUM ;
+    lat       = buffer.getInt () * LOC_QUANTUM ;
+    spd       = unZigZag (getVar (buffer)) * SPEED_QUANTUM ;
+    brg       = unZigZag (getVar (buffer)) * BEARING_QUANTUM ;
+    car_ids   = getIds    (buffer) ;
+    alert_ids = getMsgIds (buffer) ;
+    base      = timeBase (msg_time) ;
+    length    = getLength (buffer) ;
+
+    if (length >= 0)
+    {
+      alert_times = new double [length] ;
+
+      for (int i = 0 ; i < length ; i ++)
+      {
+        alert_times [i] = getTime (buffer, base) ;
+      }
+    }
+
+    return (new CarCommMessage (car_id, msg_seq, lon, lat, spd, brg,
+                                msg_type, msg_time, car_ids, alert_ids,
+                                alert_times, getMatrix (buffer))) ;
+  } //  END public static CarCommMessage decodeCar
+
+
+  /*************************************************************************
+   *
+   *  Return the encoded size of a cell message.
+   *
+   *  @param    message       Message to size.
+   *  @return                 Number of bytes written by encode.
+   *
+   *************************************************************************
+   */
+
+  public static int sizeOf (
+    CellCommMessage           message
+  )
+  {
+    long                      base = cellTimeBase (message) ;
+    int                       result ;
+
+    result  = 1 + idsSize (message.carIds) ;
+
+    result += varSize ((message.msgTime == null)
+                          ? 0 : message.msgTime.length + 1) ;
+
+    for (int i = 0 ; message.msgTime != null &&
+                     i < message.msgTime.length ; i ++)
+    {
+      result += timeSize (message.msgTime [i], (i == 0) ? 0 : base) ;
+    }
+
+    result += locsSize (message.longitude) ;
+    result += locsSize (message.latitude) ;
+
+    result += valuesSize (message.speed,   SPEED_QUANTUM) ;
+    result += valuesSize (message.bearing, BEARING_QUANTUM) ;
+
+    result += msgIdsSize (message.msgAlertTbl) ;
+
+    result += varSize ((message.msgAlertType == null)
+                          ? 0 : message.msgAlertType.length + 1) ;
+    result += (message.msgAlertType == null)
+                          ? 0 : message.msgAlertType.length ;
+
+    result += matrixSize (message.carAlertTbl) ;
+
+    return (result) ;
+  } //  END public static int sizeOf (CellCommMessage
+
+
+  /*************************************************************************
+   *
+   *  Encode a cell message.
+   *  Times after the first are relative to the first.
+   *
+   *  @param    message       Message to encode.
+   *  @param    buffer        Buffer to write the message into.  It must
+   *                          have room for sizeOf bytes.
+   *
+   *************************************************************************
+   */
+
+  public static void encode (
+    CellCommMessage           message,
+    ByteBuffer                buffer
+  )
+  {
+    long                      base = cellTimeBase (message) ;
+
+    buffer.put (message.msgType) ;
+
+    putIds (buffer, message.carIds) ;
+
+    putVar (buffer, (message.msgTime == null)
+                        ? 0 : message.msgTime.length + 1) ;
+
+    for (int i = 0 ; message.msgTime != null &&
+                     i < message.msgTime.length ; i ++)
+    {
+      putTime (buffer, message.msgTime [i], (i == 0) ? 0 : base) ;
+    }
+
+    putLocs (buffer, message.longitude) ;
+    putLocs (buffer, message.latitude) ;
+
+    putValues (buffer, message.speed,   SPEED_QUANTUM) ;
+    putValues (buffer, message.bearing, BEARING_QUANTUM) ;
+
+    putMsgIds (buffer, message.msgAlertTbl) ;
+
+    putVar (buffer, (message.msgAlertType == null)
+                        ? 0 : message.msgAlertType.length + 1) ;
+
+    if (message.msgAlertType != null)
+    {
+      buffer.put (message.msgAlertType) ;
+    }
+
+    putMatrix (buffer, message.carAlertTbl) ;
+  } //  END public static void encode (CellCommMessage
+
+
+  /*************************************************************************
+   *
+   *  Decode a cell message.
+   *  The message is read from the buffer's position, which is left after
+   *  it.
+   *
+   *  @param    buffer        Buffer to read the message from.
+   *  @return                 Message read.
+   *
+   *************************************************************************
+   */
+
+  public static CellCommMessage decodeCell (
+    ByteBuffer                buffer
+  )
+  {
+    byte                      msg_type ;
+    int                   []  car_ids ;
+    double                []  times       = null ;
+    double                []  lons ;
+    double                []  lats ;
+    double                []  speeds ;
+    double                []  bearings ;
+    long                  []  alert_ids ;
+    byte                  []  alert_types = null ;
+    long                      base        = 0 ;
+    int                       length ;
+
+    msg_type  = buffer.get () ;
+    car_ids   = getIds (buffer) ;
+    length    = getLength (buffer) ;
+
+    if (length >= 0)
+    {
+      times = new double [length] ;
+
+      for (int i = 0 ; i < length ; i ++)
+      {
+        times [i] = getTime (buffer, base) ;
+
+        if (i == 0)
+        {
+          base = timeBase (times [0]) ;
+        }
+      }
+    }
+
+    lons      = getLocs (buffer) ;
+    lats      = getLocs (buffer) ;
+    speeds    = getValues (buffer, SPEED_QUANTUM) ;
+    bearings  = getValues (buffer, BEARING_QUANTUM) ;
+    alert_ids = getMsgIds (buffer) ;
+    length    = getLength (buffer) ;
+
+    if (length >= 0)
+    {
+      alert_types = new byte [length] ;
+
+      buffer.get (alert_types) ;
+    }
+
+    return (new CellCommMessage (msg_type, car_ids, times, lons, lats,
+                                 speeds, bearings, alert_ids, alert_types,
+                                 getMatrix (buffer))) ;
+  } //  END public static CellCommMessage decodeCell
+
+
+  /*************************************************************************
+   *
+   *  Variable length integers.
+   *
+   *************************************************************************
+   */
+
+  static int varSize (
+    long                      value
+  )
+  {
+    int                       result = 1 ;
+
+    while ((value >>>= 7) != 0)
+    {
+      result ++ ;
+    }
+
+    return (result) ;
+  }
+
+  static void putVar (
+    ByteBuffer                buffer,
+    long                      value
+  )
+  {
+    while ((value & ~0x7FL) != 0)
+    {
+      buffer.put ((byte) ((value & 0x7F) | 0x80)) ;
+      value >>>= 7 ;
+    }
+
+    buffer.put ((byte) value) ;
+  }
+
+  static long getVar (
+    ByteBuffer                buffer
+  )
+  {
+    long                      result = 0 ;
+    int                       shift  = 0 ;
+    byte                      cur_byte ;
+
+    do
+    {
+      if (shift >= 64)
+      {
+        throw new IllegalArgumentException ("Bad varint") ;
+      }
+
+      cur_byte  = buffer.get () ;
+      result   |= (long) (cur_byte & 0x7F) << shift ;
+      shift    += 7 ;
+    }
+    while (cur_byte < 0) ;
+
+    return (result) ;
+  }
+
+  static long zigZag (
+    long                      value
+  )
+  {
+    return ((value << 1) ^ (value >> 63)) ;
+  }
+
+  static long unZigZag (
+    long                      value
+  )
+  {
+    return ((value >>> 1) ^ -(value & 1)) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Read a table length.
+   *  The length must fit in what is left of the buffer.
+   *
+   *  @param    buffer        Buffer to read the length from.
+   *  @return                 Length read, -1 for a table not used.
+   *
+   *************************************************************************
+   */
+
+  private static int getLength (
+    ByteBuffer                buffer
+  )
+  {
+    long                      length = getVar (buffer) - 1 ;
+
+    if (length < -1 || length > buffer.remaining ())
+    {
+      throw new IllegalArgumentException ("Bad message table length") ;
+    }
+
+    return ((int) length) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Times.
+   *  A time is tagged with its low bit.  A clear bit is followed by the
+   *  zig-zag encoded difference in milliseconds from the base, and a set
+   *  bit by the full double.
+   *
+   *************************************************************************
+   */
+
+  private static long timeBase (
+    double                    time
+  )
+  {
+    return (Math.round (time * 1000.0)) ;
+  }
+
+  private static long cellTimeBase (
+    CellCommMessage           message
+  )
+  {
+    return ((message.msgTime == null || message.msgTime.length == 0)
+                ? 0 : timeBase (message.msgTime [0])) ;
+  }
+
+  private static int timeSize (
+    double                    time,
+    long                      base
+  )
+  {
+    long                      millis = timeBase (time) ;
+
+    if (millis / 1000.0 != time)
+    {
+      return (1 + 8) ;
+    }
+
+    return (varSize (zigZag (millis - base) << 1)) ;
+  }
+
+  private static void putTime (
+    ByteBuffer                buffer,
+    double                    time,
+    long                      base
+  )
+  {
+    long                      millis = timeBase (time) ;
+
+    if (millis / 1000.0 != time)
+    {
+      buffer.put ((byte) 1) ;
+      buffer.putDouble (time) ;
+    }
+    else
+    {
+      putVar (buffer, zigZag (millis - base) << 1) ;
+    }
+  }
+
+  private static double getTime (
+    ByteBuffer                buffer,
+    long                      base
+  )
+  {
+    long                      tag = getVar (buffer) ;
+
+    if ((tag & 1) != 0)
+    {
+      return (buffer.getDouble ()) ;
+    }
+
+    return ((unZigZag (tag >>> 1) + base) / 1000.0) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Quantized values.
+   *  Tables of locations are encoded as zig-zag differences from the
+   *  previous location.  Other tables are encoded as the zig-zag values.
+   *
+   *************************************************************************
+   */
+
+  private static long quantize (
+    double                    value,
+    double                    quantum
+  )
+  {
+    return (Math.round (value / quantum)) ;
+  }
+
+  private static int locsSize (
+    double                []  locs
+  )
+  {
+    int                       result ;
+    long                      last = 0 ;
+    long                      cur ;
+
+    result = varSize ((locs == null) ? 0 : locs.length + 1) ;
+
+    for (int i = 0 ; locs != null && i < locs.length ; i ++)
+    {
+      cur     = quantize (locs [i], LOC_QUANTUM) ;
+      result += varSize (zigZag (cur - last)) ;
+      last    = cur ;
+    }
+
+    return (result) ;
+  }
+
+  private static void putLocs (
+    ByteBuffer                buffer,
+    double                []  locs
+  )
+  {
+    long                      last = 0 ;
+    long                      cur ;
+
+    putVar (buffer, (locs == null) ? 0 : locs.length + 1) ;
+
+    for (int i = 0 ; locs != null && i < locs.length ; i ++)
+    {
+      cur   = quantize (locs [i], LOC_QUANTUM) ;
+      putVar (buffer, zigZag (cur - last)) ;
+      last  = cur ;
+    }
+  }
+
+  private static double [] getLocs (
+    ByteBuffer                buffer
+  )
+  {
+    int                       length = getLength (buffer) ;
+    double                []  result ;
+    long                      last   = 0 ;
+
+    if (length < 0)
+    {
+      return (null) ;
+    }
+
+    result = new double [length] ;
+
+    for (int i = 0 ; i < length ; i ++)
+    {
+      last       += unZigZag (getVar (buffer)) ;
+      result [i]  = last * LOC_QUANTUM ;
+    }
+
+    return (result) ;
+  }
+
+  private static int valuesSize (
+    double                []  values,
+    double                    quantum
+  )
+  {
+    int                       result ;
+
+    result = varSize ((values == null) ? 0 : values.length + 1) ;
+
+    for (int i = 0 ; values != null && i < values.length ; i ++)
+    {
+      result += varSize (zigZag (quantize (values [i], quantum))) ;
+    }
+
+    return (result) ;
+  }
+
+  private static void putValues (
+    ByteBuffer                buffer,
+    double                []  values,
+    double                    quantum
+  )
+  {
+    putVar (buffer, (values == null) ? 0 : values.length + 1) ;
+
+    for (int i = 0 ; values != null && i < values.length ; i ++)
+    {
+      putVar (buffer, zigZag (quantize (values [i], quantum))) ;
+    }
+  }
+
+  private static double [] getValues (
+    ByteBuffer                buffer,
+    double                    quantum
+  )
+  {
+    int                       length = getLength (buffer) ;
+    double                []  result ;
+
+    if (length < 0)
+    {
+      return (null) ;
+    }
+
+    result = new double [length] ;
+
+    for (int i = 0 ; i < length ; i ++)
+    {
+      result [i] = unZigZag (getVar (buffer)) * quantum ;
+    }
+
+    return (result) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Car ID tables.
+   *  Each ID is the zig-zag encoded difference from the previous one.
+   *
+   *************************************************************************
+   */
+
+  private static int idsSize (
+    int                   []  ids
+  )
+  {
+    int                       result ;
+    int                       last = 0 ;
+
+    result = varSize ((ids == null) ? 0 : ids.length + 1) ;
+
+    for (int i = 0 ; ids != null && i < ids.length ; i ++)
+    {
+      result += varSize (zigZag ((long) ids [i] - last)) ;
+      last    = ids [i] ;
+    }
+
+    return (result) ;
+  }
+
+  private static void putIds (
+    ByteBuffer                buffer,
+    int                   []  ids
+  )
+  {
+    int                       last = 0 ;
+
+    putVar (buffer, (ids == null) ? 0 : ids.length + 1) ;
+
+    for (int i = 0 ; ids != null && i < ids.length ; i ++)
+    {
+      putVar (buffer, zigZag ((long) ids [i] - last)) ;
+      last = ids [i] ;
+    }
+  }
+
+  private static int [] getIds (
+    ByteBuffer                buffer
+  )
+  {
+    int                       length = getLength (buffer) ;
+    int                   []  result ;
+    long                      last   = 0 ;
+
+    if (length < 0)
+    {
+      return (null) ;
+    }
+
+    result = new int [length] ;
+
+    for (int i = 0 ; i < length ; i ++)
+    {
+      last       += unZigZag (getVar (buffer)) ;
+      result [i]  = (int) last ;
+    }
+
+    return (result) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Message ID tables.
+   *  Each ID is its car ID followed by its sequence number.
+   *
+   *************************************************************************
+   */
+
+  private static int msgIdsSize (
+    long                  []  ids
+  )
+  {
+    int                       result ;
+
+    result = varSize ((ids == null) ? 0 : ids.length + 1) ;
+
+    for (int i = 0 ; ids != null && i < ids.length ; i ++)
+    {
+      result += varSize (ids [i] >>> MSG_SEQ_BITS) +
+                varSize (ids [i] &   MSG_SEQ_MASK) ;
+    }
+
+    return (result) ;
+  }
+
+  private static void putMsgIds (
+    ByteBuffer                buffer,
+    long                  []  ids
+  )
+  {
+    putVar (buffer, (ids == null) ? 0 : ids.length + 1) ;
+
+    for (int i = 0 ; ids != null && i < ids.length ; i ++)
+    {
+      putVar (buffer, ids [i] >>> MSG_SEQ_BITS) ;
+      putVar (buffer, ids [i] &   MSG_SEQ_MASK) ;
+    }
+  }
+
+  private static long [] getMsgIds (
+    ByteBuffer                buffer
+  )
+  {
+    int                       length = getLength (buffer) ;
+    long                  []  result ;
+
+    if (length < 0)
+    {
+      return (null) ;
+    }
+
+    result = new long [length] ;
+
+    for (int i = 0 ; i < length ; i ++)
+    {
+      result [i]  = getVar (buffer) << MSG_SEQ_BITS ;
+      result [i] |= getVar (buffer) & MSG_SEQ_MASK ;
+    }
+
+    return (result) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Car alert tables.
+   *  The row count plus one (zero for no table) and column count are
+   *  followed by the flags packed a bit each, row after row.
+   *
+   *************************************************************************
+   */
+
+  private static int matrixSize (
+    CarAlertMatrix            matrix
+  )
+  {
+    if (matrix == null)
+    {
+      return (1) ;
+    }
+
+    return (varSize (matrix.rows () + 1) + varSize (matrix.columns ()) +
+            (int) (((long) matrix.rows () * matrix.columns () + 7) / 8)) ;
+  }
+
+  private static void putMatrix (
+    ByteBuffer                buffer,
+    CarAlertMatrix            matrix
+  )
+  {
+    int                       start ;
+    long                      bit ;
+    int                       byte_no ;
+
+    if (matrix == null)
+    {
+      putVar (buffer, 0) ;
+      return ;
+    }
+
+    putVar (buffer, matrix.rows () + 1) ;
+    putVar (buffer, matrix.columns ()) ;
+
+    start = buffer.position () ;
+
+    for (int i = 0 ; i < ((long) matrix.rows () * matrix.columns () + 7) / 8 ;
+         i ++)
+    {
+      buffer.put ((byte) 0) ;
+    }
+
+    for (int row = 0 ; row < matrix.rows () ; row ++)
+    {
+      for (int column = matrix.nextSetBit (row, 0) ;
+              column >= 0 ;
+           column = matrix.nextSetBit (row, column + 1))
+      {
+        bit     = (long) row * matrix.columns () + column ;
+        byte_no = start + (int) (bit >>> 3) ;
+
+        buffer.put (byte_no,
+                    (byte) (buffer.get (byte_no) | (1 << (bit & 7)))) ;
+      }
+    }
+  } //  END private static void putMatrix
+
+  private static CarAlertMatrix getMatrix (
+    ByteBuffer                buffer
+  )
+  {
+    long                      row_cnt    = getVar (buffer) - 1 ;
+    int                       column_cnt ;
+    long                      bit_cnt ;
+    int                       start ;
+    CarAlertMatrix.Builder    builder ;
+    long                      bit ;
+
+    if (row_cnt < 0)
+    {
+      return (null) ;
+    }
+
+    column_cnt  = (int) getVar (buffer) ;
+    bit_cnt     = row_cnt * column_cnt ;
+
+    if (row_cnt > Integer.MAX_VALUE || column_cnt < 0 ||
+        (bit_cnt + 7) / 8 > buffer.remaining ())
+    {
+      throw new IllegalArgumentException ("Bad car alert matrix size") ;
+    }
+
+    start   = buffer.position () ;
+    builder = new CarAlertMatrix.Builder ((int) row_cnt, column_cnt) ;
+
+    for (int row = 0 ; row < row_cnt ; row ++)
+    {
+      for (int column = 0 ; column < column_cnt ; column ++)
+      {
+        bit = (long) row * column_cnt + column ;
+
+        if ((buffer.get (start + (int) (bit >>> 3)) & (1 << (bit & 7))) != 0)
+        {
+          builder.set (row, column) ;
+        }
+      }
+    }
+
+    buffer.position (start + (int) ((bit_cnt + 7) / 8)) ;
+
+    return (builder.build ()) ;
+  } //  END private static CarAlertMatrix getMatrix
+
+} //  END public class MessageCodec
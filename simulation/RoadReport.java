@@ -36,7 +36,8 @@ public class RoadReport implements RoadReportInfo
 
   public CarComm                carComm ;
   public CellComm               cellComm ;
-  public CellServer             cellServer ;
+  public CellShards             cellServer ;
+  public CellPipeline           cellPipeline ;
 
   //  Table of Routes to run cars on.
 
@@ -50,9 +51,45 @@ public class RoadReport implements RoadReportInfo
   public Vector<Car>            carTbl = new Vector<Car> () ;
   public int                    carCnt = 0 ;
 
-  //  Timers and the current time.
+  //  Cars in the car table by car ID.  Retired cars are removed.
 
-  private double                curTime ;
+  public IntMap<Car>            carIdMap = new IntMap<Car> () ;
+
+  //  Cars in the car table ordered by the time they are retired and
+  //  retired cars kept to be reused for new cars.
+
+  private static final Comparator<Car>
+                                retireOrder = new Comparator<Car> ()
+  {
+    public int compare (
+      Car                       car_a,
+      Car                       car_b
+    )
+    {
+      return (Double.compare (car_a.retireTime, car_b.retireTime)) ;
+    }
+  } ;
+
+  private PriorityQueue<Car>    retireQueue =
+                                    new PriorityQueue<Car> (11, retireOrder) ;
+  private Vector<Car>           carPool     = new Vector<Car> () ;
+
+  //  Memory budget for each car's tables.
+
+  public int                    carMemoryBudget = CAR_MEMORY_BUDGET ;
+
+  //  Whether cars only send the server the locations that have changed.
+
+  public boolean                locationDelta   = LOCATION_LOG_DELTA ;
+
+  //  Whether the server dead reckons the cars between their reports.
+
+  public boolean                deadReckon      = LOCATION_DEAD_RECKON ;
+
+  //  Timers and the current time.  The time is read and timers are set
+  //  by the cell server's pipeline stages from their own threads.
+
+  private volatile double       curTime ;
 
   private double                nextTimer ;
 
@@ -60,6 +97,18 @@ public class RoadReport implements RoadReportInfo
                                                 0.3 ;
   private double                addCarTime    = 0.5 ;
 
+  //  Time between new cars and new alerts.  (In seconds.)
+
+  public double                 carInterval   = CAR_CREATION_INTERVAL ;
+  public double                 alertInterval = ALERT_CREATION_INTERVAL ;
+
+  //  Simulated seconds run per second of real time, and the real time
+  //  the simulation started at.  The simulation runs as fast as it can
+  //  when the scale is zero.
+
+  public double                 timeScale     = 0.0 ;
+  private long                  startNanos ;
+
 
   /*************************************************************************
    *
@@ -75,34 +124,88 @@ public class RoadReport implements RoadReportInfo
     String              []  args
   )
   {
+    //  Create the simulation object.
+
+    simulation = create () ;
+
+    simulation.cellPipeline = new CellPipeline (simulation,
+                                                simulation.cellServer,
+                                                CELL_PIPELINE) ;
+
+    //  Run the simulation.
+
+    simulation.run () ;
+
+    simulation.cellPipeline.close () ;
+    simulation.cellPipeline.printStages () ;
+
+    System.out.format ("CellDownlink: %d %d\n",
+                       simulation.cellComm.unicastCnt,
+                       simulation.cellComm.broadcastCnt) ;
+    System.out.format ("LinkBytesCar: %s\n",
+                       simulation.carComm.sentBytes) ;
+    System.out.format ("LinkBytesUp: %s\n",
+                       simulation.cellComm.uplinkBytes) ;
+    System.out.format ("LinkBytesDown: %s\n",
+                       simulation.cellComm.downlinkBytes) ;
+    System.out.format ("LinkBytesLocFull: %s\n",
+                       simulation.cellComm.locFullBytes) ;
+
+    simulation.cellServer.printIngest () ;
+    simulation.cellServer.printSweeps () ;
+
+    System.exit (0) ;
+
+  } // END public static void main
+
+
+  /*************************************************************************
+   *
+   *  Create a simulation.
+   *  Create the simulation's communication objects and cell server and
+   *  fill the route table.  The caller provides the cell server pipeline.
+   *
+   *  @return                 Simulation created.
+   *
+   *************************************************************************
+   */
+
+  public static RoadReport create ()
+  {
+    RoadReport              sim ;
     int                     roads ;
     double                  lati ;
     double                  loni ;
 
-    //  Create the simulation object.
-
-    simulation  = new RoadReport () ;
+    sim = new RoadReport () ;
 
     //  Create a random number generator.
 
-    simulation.randomGen = new Random (randomSeed) ;
+    sim.randomGen = new Random (randomSeed) ;
 
     //  Create the communication ojects.
 
-    simulation.carComm    = new CarComm  (simulation, TX_CLARITY_RANGE,
-                                                      RX_CLARITY_RANGE) ;
-    simulation.cellComm   = new CellComm (simulation) ;
-    simulation.cellServer = new CellServer (simulation) ;
+    sim.carComm    = new CarComm  (sim, TX_CLARITY_RANGE,
+                                        RX_CLARITY_RANGE) ;
+    sim.cellComm   = new CellComm (sim) ;
+    sim.cellServer = new CellShards (sim, CELL_SHARDS) ;
+
+    sim.cellServer.setSweepThreads (SWEEP_THREADS) ;
 
     //  Fill the route table.
 
+    if (routeTbl.size () > 0)
+    {
+      return (sim) ;
+    }
+
     roads = ROUTE_GRID_SIZE - 1 ;
     lati  = 0.09 / roads ;
     loni  = 0.11 / roads ;
 
     for (int i = 0 ; i <= roads ; i += 1)
     {
-      for (int s = 10 ; s < 100 ; s += 20)
+      for (int s = 10 ; s <= ROUTE_SPEED_MAX ; s += 20)
       {
         routeTbl.add (new Route (0.0   * loni - 100.0, i     * lati + 40.0,
                                   90.0, s, 3600 * 10.0 / s)) ;
@@ -115,19 +218,29 @@ public class RoadReport implements RoadReportInfo
       }
     }
 
-    //  Start the timer handler.
+    return (sim) ;
 
-    System.out.println ("Starting the Simulation") ;
+  } // END public static RoadReport create
 
-    simulation.curTime   = 0.0 ;
-    simulation.nextTimer = 0.1 ;
 
-    simulation.timerHandler () ;
+  /*************************************************************************
+   *
+   *  Run the simulation.
+   *  Start the timer handler and run it to the end of the simulation.
+   *
+   *************************************************************************
+   */
 
+  public void run ()
+  {
+    System.out.println ("Starting the Simulation") ;
 
-    System.exit (0) ;
+    curTime     = 0.0 ;
+    nextTimer   = 0.1 ;
+    startNanos  = System.nanoTime () ;
 
-  } // END public static void main
+    timerHandler () ;
+  }
 
 
   /*************************************************************************
@@ -144,6 +257,59 @@ public class RoadReport implements RoadReportInfo
   }
 
 
+  /*************************************************************************
+   *
+   *  Set the current time.
+   *  Used when the time is driven from outside the simulation, as by a
+   *  cell service's load generator.
+   *
+   *  @param    time          New current time.
+   *
+   *************************************************************************
+   */
+
+  public synchronized void setCurrentTime (
+    double              time
+  )
+  {
+    curTime = time ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Wait for real time to catch up with the simulation time.
+   *  Nothing is done if the time scale is zero.
+   *
+   *************************************************************************
+   */
+
+  private void pace ()
+  {
+    long                wait_nanos ;
+
+    if (timeScale <= 0.0)
+    {
+      return ;
+    }
+
+    wait_nanos = startNanos + (long) (curTime / timeScale * 1.0e9) -
+                 System.nanoTime () ;
+
+    if (wait_nanos > 0)
+    {
+      try
+      {
+        Thread.sleep (wait_nanos / 1000000, (int) (wait_nanos % 1000000)) ;
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread ().interrupt () ;
+      }
+    }
+  }
+
+
   /*************************************************************************
    *
    *  Handle the simulation's timers.
@@ -163,12 +329,21 @@ public class RoadReport implements RoadReportInfo
     {
       System.out.format ("Timer: %g %g\n", curTime, nextTimer) ;
 
-      curTime   = nextTimer ;
-      nextTimer = 0.0 ;
+      synchronized (this)
+      {
+        curTime   = nextTimer ;
+        nextTimer = 0.0 ;
+      }
+
+      pace () ;
+
+      //  Remove cars whose routes have ended.
+
+      retireCars () ;
 
       //  Send missing alerts to cars that need them.
 
-      cellServer.sendAlerts () ;
+      cellPipeline.sendAlerts () ;
 
       //  Create any new cars.
 
@@ -217,7 +392,7 @@ public class RoadReport implements RoadReportInfo
 
     //  Schedule the next alert.
 
-    addAlertTime = curTime + ALERT_CREATION_INTERVAL ;
+    addAlertTime = curTime + alertInterval ;
 
     timerUpdate (addAlertTime) ;
   }
@@ -234,6 +409,7 @@ public class RoadReport implements RoadReportInfo
   public void addCar ()
   {
     Route         carRoute ;
+    Car           new_car ;
 
     if (addCarTime > curTime)
     {
@@ -249,14 +425,31 @@ public class RoadReport implements RoadReportInfo
 
     nextRoute = (nextRoute + 33) % routeTbl.size () ;
 
-    //  Create a car using this route.
+    //  Create a car using this route.  Retired cars are reused if there
+    //  are any.
+
+    if (carPool.isEmpty ())
+    {
+      new_car = new Car (this, carRoute) ;
+    }
+    else
+    {
+      new_car = carPool.remove (carPool.size () - 1) ;
+      new_car.start (carRoute) ;
+    }
+
+    new_car.carIndex = carCnt ;
 
-    carTbl.addElement (new Car (this, carRoute)) ;
+    carTbl.addElement (new_car) ;
     carCnt ++ ;
 
+    carIdMap.put (new_car.carId, new_car) ;
+
+    retireQueue.add (new_car) ;
+
     //  Schedule the next car add.
 
-    addCarTime = curTime + CAR_CREATION_INTERVAL ;
+    addCarTime = curTime + carInterval ;
 
     timerUpdate (addCarTime) ;
   }
@@ -264,45 +457,59 @@ public class RoadReport implements RoadReportInfo
 
   /*************************************************************************
    *
-   *  Update the time for all cars.
-   *  Update the cars for the current time.  Cars whose routes have ended
-   *  are removed.
+   *  Retire cars.
+   *  Remove all cars whose routes have ended from the car table.  The
+   *  car objects are kept to be reused by new cars.
    *
    *************************************************************************
    */
 
-  public void updateCars ()
+  public void retireCars ()
   {
-    int                 car_index ;
     Car                 cur_car ;
+    Car                 last_car ;
 
-    //  Update all cars in the table.
+    while (! retireQueue.isEmpty () &&
+           retireQueue.peek ().retireTime <= curTime)
+    {
+      cur_car = retireQueue.poll () ;
 
-    car_index = 0 ;
+      //  Replace the car with the last car in the car table.
 
-    while (car_index < carCnt)
-    {
-      cur_car = carTbl.elementAt (car_index) ;
+      carCnt -- ;
 
-      try
+      if (cur_car.carIndex < carCnt)
       {
-        cur_car.updateTime () ;
+        last_car          = carTbl.elementAt (carCnt) ;
+        last_car.carIndex = cur_car.carIndex ;
 
-        car_index ++ ;
+        carTbl.setElementAt (last_car, cur_car.carIndex) ;
       }
-      catch (RouteExpiredException e)
-      {
-        //  Remove the car from the car table.
 
-        carCnt -- ;
+      carTbl.removeElementAt (carCnt) ;
+      carIdMap.remove (cur_car.carId) ;
 
-        if (car_index < carCnt)
-        {
-          carTbl.setElementAt (carTbl.elementAt (carCnt), car_index) ;
-        }
+      cur_car.retire () ;
 
-        carTbl.removeElementAt (carCnt) ;
-      }
+      carPool.addElement (cur_car) ;
+    }
+  } //  END public void retireCars ()
+
+
+  /*************************************************************************
+   *
+   *  Update the time for all cars.
+   *  Update the cars for the current time.  Cars whose routes have ended
+   *  have already been retired.
+   *
+   *************************************************************************
+   */
+
+  public void updateCars ()
+  {
+    for (int car_index = 0 ; car_index < carCnt ; car_index ++)
+    {
+      carTbl.elementAt (car_index).updateTime () ;
     }
   } //  END public void updateCars ()
 
@@ -311,17 +518,25 @@ public class RoadReport implements RoadReportInfo
    *
    *  Update the timer value.
    *  Update the next timer value to use with a new time if it is sooner
-   *  that the currently set timer value.
+   *  that the currently set timer value.  Times before the current time
+   *  are ignored.  Pipeline stages may work out a timer from a time the
+   *  simulation has already moved past, and using it would move the
+   *  simulation's time backwards.
    *
    *  @param    timer_value   New value to update the timer with.
    *
    *************************************************************************
    */
 
-  public void timerUpdate (
+  public synchronized void timerUpdate (
     double              timer_value
   )
   {
+    if (timer_value < curTime)
+    {
+      return ;
+    }
+
     if (nextTimer == 0.0 || nextTimer > timer_value)
     {
       nextTimer = timer_value ;
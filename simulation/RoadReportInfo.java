@@ -26,6 +26,10 @@ public interface RoadReportInfo
 
   static final int            ROUTE_GRID_SIZE               = 4 ;
 
+  //  Highest speed (in kph) of the routes cars are given.
+
+  static final double         ROUTE_SPEED_MAX               = 90.0 ;
+
   //  Timing parameters (in seconds).
 
   static final double         LOCATION_SEND_INTERVAL        =  5.0 ;
@@ -35,6 +39,22 @@ public interface RoadReportInfo
   static final double         LOCATION_LOG_INTERVAL_FRACT   =  0.5 ;
   static final double         LOCATION_LOG_INTERVAL_BACKOFF =  0.9 ;
 
+  //  Whether location tables only hold the locations that changed since
+  //  they were last sent to the server, and how far (in km) or how much
+  //  the speed (in kph) must change first.  Locations unchanged for the
+  //  refresh interval are sent anyway so the server does not evict them.
+
+  static final boolean        LOCATION_LOG_DELTA            = false ;
+  static final double         LOCATION_DELTA_KM             =  0.05 ;
+  static final double         LOCATION_DELTA_SPEED          =  5.0 ;
+  static final double         LOCATION_DELTA_REFRESH        = 60.0 ;
+
+  //  Whether the server dead reckons cars from their last reported
+  //  location, speed and bearing.  Cars then only send the locations
+  //  that have strayed from where the server expects them.
+
+  static final boolean        LOCATION_DEAD_RECKON          = false ;
+
   static final double         ALERT_LOG_INTERVAL            = 25.0 ;
   static final double         ALERT_LOG_INTERVAL_ADJ        =  0.1 ;
   static final double         ALERT_LOG_INTERVAL_FRACT      =  0.5 ;
@@ -48,6 +68,8 @@ public interface RoadReportInfo
   static final double         ALERT_CREATION_INTERVAL       = 20.0 ;
   static final double         ALERT_RESEND_INTERVAL         = 10.0 ;
 
+  static final double         CAR_INFO_HORIZON              = 120.0 ;
+
   static final double         NEXT_UPDATE_INTERVAL          = 60.0 ;
 
   static final double         SIMULATION_INTERVAL           = 600.0 ;
@@ -55,10 +77,12 @@ public interface RoadReportInfo
   //  Message ID built from car ID and message sequence number.
   //  (Car ID is shifted by given number of bits and added to the
   //   message sequence number which is only the same number of bits.)
+  //  Message IDs are 64 bits so that neither the car ID nor a car's
+  //  sequence number wraps during a simulation.
 
-  static final int            MSG_SEQ_BITS                  = 6 ;
-  static final int            MSG_SEQ_MASK                  =
-                                    ((1 << MSG_SEQ_BITS) - 1) ;
+  static final int            MSG_SEQ_BITS                  = 32 ;
+  static final long           MSG_SEQ_MASK                  =
+                                    ((1L << MSG_SEQ_BITS) - 1) ;
 
   //  Message types.
 
@@ -116,4 +140,76 @@ public interface RoadReportInfo
 
   static final byte           ALERT_MISS_LIMIT              = 3 ;
 
+  //  Broadcast alert resends to a whole grid when that takes fewer bytes
+  //  than sending them to the grid's cars one at a time.
+
+  static final boolean        CELL_BROADCAST                = false ;
+
+  //  Threads used to find the cars missing alerts when alerts are
+  //  resent, and the fewest cars handed to a thread at once.
+
+  static final int            SWEEP_THREADS                 = 1 ;
+  static final int            SWEEP_CHUNK_CARS              = 256 ;
+
+  //  Whether the alert resend may check the cars around each alert
+  //  instead of each car's local area when that is cheaper.
+
+  static final boolean        CELL_ALERT_SWEEP              = true ;
+
+  //  Cell server shards.  The map is divided into square regions of
+  //  grids, each served by one shard.  Alerts are also kept by the shards
+  //  of regions within the margin (in grids) of them.  The margin covers
+  //  the local area of a car at the highest route speed, converted to km
+  //  per second, plus the extra grid and the rounding the cell server
+  //  adds to a car's local area.
+
+  static final int            CELL_SHARDS                   = 1 ;
+  static final int            CELL_REGION_GRIDS             = 8 ;
+  static final int            CELL_REGION_MARGIN            =
+                                  (int) Math.ceil ((SEPARATION_BASE +
+                                                    SEPARATION_TIME *
+                                                    ROUTE_SPEED_MAX /
+                                                    3600.0) /
+                                                   GRID_KM) + 2 ;
+
+  //  Whether the cell server runs as a pipeline of stages on their own
+  //  threads, and the number of jobs each stage's queue holds.
+
+  static final boolean        CELL_PIPELINE                 = false ;
+  static final int            CELL_INGEST_QUEUE             = 256 ;
+  static final int            CELL_INDEX_QUEUE              = 64 ;
+  static final int            CELL_PUSH_QUEUE               = 1 ;
+
+  //  Port the cell server listens on when run as a network service.
+
+  static final int            CELL_SERVICE_PORT             = 5650 ;
+
+  //  Directory the cell service logs the messages it receives in, or
+  //  null for no log.  The size of each log segment (in bytes), the most
+  //  records written to the log at once, the number of records waiting
+  //  to be written the log holds, and the time between snapshots of the
+  //  server's tables.  (In seconds.)
+
+  static final String         CELL_LOG_DIR                  = null ;
+  static final int            CELL_LOG_SEGMENT              = 4 * 1024 * 1024 ;
+  static final int            CELL_LOG_BATCH                = 256 ;
+  static final int            CELL_LOG_QUEUE                = 4096 ;
+  static final double         CELL_LOG_SNAPSHOT_INTERVAL    = 300.0 ;
+
+  //  Time the server keeps alerts of each type after they occur.  (In
+  //  seconds, indexed by the alert type less MT_ALERTS.)
+
+  static final double     []  ALERT_LIFETIME                =
+                                  { 1800.0,       //  MT_ALERT_SLICK
+                                     900.0,       //  MT_ALERT_VISION
+                                    3600.0,       //  MT_ALERT_BLOCKED
+                                     300.0 } ;    //  MT_ALERT_SLOW
+  static final double         ALERT_LIFETIME_DEFAULT        = 3600.0 ;
+
+  //  Memory budget for the tables kept by each car.  (In estimated heap
+  //  bytes.)  The least useful entries are evicted when it is exceeded.
+  //  It is a soft limit since unlogged alerts are never evicted.
+
+  static final int            CAR_MEMORY_BUDGET             = 256 * 1024 ;
+
 } // END public interface RoadReportInfo
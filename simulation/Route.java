@@ -62,28 +62,73 @@ public class Route implements RoadReportInfo
     duration  = dur ;
 
     //  Determine movement information in degrees per second.
-    //  Distance per degree of longitude gets smaller as the latitude
-    //  increases.
 
-    lat_speed = (spd * Math.cos (dir * Math.PI / 180.0) / 3600.0) /
-                LAT2KM ;
-    lon_speed = (spd * Math.sin (dir * Math.PI / 180.0) / 3600.0) /
-                LON2KM / Math.cos (lat * Math.PI / 180.0) ;
+    lat_speed = latSpeed (dir, spd) ;
+    lon_speed = lonSpeed (lat, dir, spd) ;
 
   } // END public Route
 
 
+  /*************************************************************************
+   *
+   *  Determine the rate of change of latitude for a movement.
+   *
+   *  @param    dir           Compass direction of the movement in degrees
+   *                          clockwise of north.
+   *  @param    spd           Speed of the movement in kph.
+   *  @return                 Degrees of latitude per second.
+   *
+   *************************************************************************
+   */
+
+  public static double latSpeed (
+    double                    dir,
+    double                    spd
+  )
+  {
+    return ((spd * Math.cos (dir * Math.PI / 180.0) / 3600.0) / LAT2KM) ;
+  }
+
+
+  /*************************************************************************
+   *
+   *  Determine the rate of change of longitude for a movement.
+   *  Distance per degree of longitude gets smaller as the latitude
+   *  increases.
+   *
+   *  @param    lat           Latitude the movement starts at in degrees
+   *                          north.
+   *  @param    dir           Compass direction of the movement in degrees
+   *                          clockwise of north.
+   *  @param    spd           Speed of the movement in kph.
+   *  @return                 Degrees of longitude per second.
+   *
+   *************************************************************************
+   */
+
+  public static double lonSpeed (
+    double                    lat,
+    double                    dir,
+    double                    spd
+  )
+  {
+    return ((spd * Math.sin (dir * Math.PI / 180.0) / 3600.0) /
+            LON2KM / Math.cos (lat * Math.PI / 180.0)) ;
+  }
+
+
   /*************************************************************************
    *
    *  Determine the movement vector for the route at a given time.
    *  Using the starting location and speed, determine the location
-   *  and velocity at a given time.  If the route has expired null
-   *  is returned instead of a movement vector.
+   *  and velocity at a given time.  Objects using the route are expected
+   *  to stop using it once its duration has passed.
    *
    *  @param    seconds       Seconds from the starting time of the route.
    *  @return                 Movement vector indicating the position and
    *                          velocity on the route at the given time.
-   *  @throws   RouteExpiredException Thrown when the route has expired.
+   *  @throws   RouteExpiredException Thrown when the time is outside the
+   *                          route's duration.
    *
    *************************************************************************
    */